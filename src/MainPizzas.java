@@ -7,6 +7,7 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import pizzas.GestionClient;
 import pizzas.GestionPizzaiolo;
+import pizzas.ModeExecution;
 import ui.ClientControleur;
 import ui.PizzaioloControleur;
 
@@ -21,8 +22,12 @@ public class MainPizzas extends Application {
         GestionPizzaiolo gestionPizzaiolo = new GestionPizzaiolo();
         GestionClient gestionClient =
                 new GestionClient(gestionPizzaiolo.getPizzas());
+        gestionClient.setGestionPizzaiolo(gestionPizzaiolo);
 
         try {
+            // mode d'exécution choisi au lancement : -Dpizzas.mode=ECRIVAIN_UNIQUE
+            gestionPizzaiolo.setModeExecution(ModeExecution.valueOf(
+                    System.getProperty("pizzas.mode", ModeExecution.VERROUS.name())));
          
             // FENÊTRE PIZZAIOLO
 
@@ -0,0 +1,150 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Outil de mesure d'une opération : temps moyen et octets alloués par appel.
+ * <p>
+ * Chaque mesure commence par une phase de chauffe (pour laisser le
+ * compilateur à la volée optimiser le code), puis enchaîne plusieurs
+ * itérations de durée fixe. Le temps retenu est la médiane des itérations,
+ * moins sensible qu'une moyenne à un passage du ramasse-miettes. Les
+ * allocations sont lues sur le fil courant quand la JVM le permet.
+ * </p>
+ * <p>
+ * Les résultats des opérations sont transmis à {@link #consommer(Object)} pour
+ * que le compilateur ne puisse pas supprimer un calcul jugé inutile.
+ * </p>
+ */
+public class Banc {
+
+    /**
+     * Résultat d'une mesure.
+     */
+    public static class Resultat {
+        /** Nom de l'opération mesurée. */
+        public final String nom;
+        /** Paramètres du jeu de données, sous la forme {@code cle=valeur,...}. */
+        public final String parametres;
+        /** Temps médian par appel, en nanosecondes. */
+        public final double nanosParOperation;
+        /** Octets alloués par appel, ou -1 si la JVM ne les mesure pas. */
+        public final double octetsParOperation;
+
+        /**
+         * Crée un résultat.
+         *
+         * @param nom nom de l'opération
+         * @param parametres paramètres du jeu de données
+         * @param nanosParOperation temps par appel en nanosecondes
+         * @param octetsParOperation octets alloués par appel
+         */
+        public Resultat(String nom, String parametres, double nanosParOperation, double octetsParOperation) {
+            this.nom = nom;
+            this.parametres = parametres;
+            this.nanosParOperation = nanosParOperation;
+            this.octetsParOperation = octetsParOperation;
+        }
+
+        /**
+         * Retourne la clé identifiant la mesure dans un fichier de référence.
+         *
+         * @return {@code nom@parametres}
+         */
+        public String cle() {
+            return nom + "@" + parametres;
+        }
+    }
+
+    private static volatile Object puits;
+
+    private final long chauffeNanos;
+    private final long iterationNanos;
+    private final int iterations;
+
+    /**
+     * Crée un banc.
+     *
+     * @param chauffeMillis durée de la chauffe, en millisecondes
+     * @param iterationMillis durée d'une itération mesurée, en millisecondes
+     * @param iterations nombre d'itérations mesurées
+     */
+    public Banc(long chauffeMillis, long iterationMillis, int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Nombre d'itérations invalide");
+        }
+        this.chauffeNanos = chauffeMillis * 1_000_000;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Empêche l'élimination d'un résultat par le compilateur.
+     *
+     * @param resultat résultat d'une opération mesurée
+     */
+    public static void consommer(Object resultat) {
+        puits = resultat;
+    }
+
+    /**
+     * Mesure une opération.
+     *
+     * @param nom nom de l'opération
+     * @param parametres paramètres du jeu de données
+     * @param operation opération à mesurer, dont le résultat est consommé
+     * @return le résultat de la mesure
+     * @throws Exception si l'opération échoue
+     */
+    public Resultat mesurer(String nom, String parametres, Callable<?> operation) throws Exception {
+        executer(operation, chauffeNanos);
+
+        double[] nanos = new double[iterations];
+        long appelsTotal = 0;
+        long octetsTotal = 0;
+        for (int i = 0; i < iterations; i++) {
+            long octetsAvant = octetsAlloues();
+            long debut = System.nanoTime();
+            long appels = executer(operation, iterationNanos);
+            long duree = System.nanoTime() - debut;
+            long octets = octetsAlloues() - octetsAvant;
+            nanos[i] = (double) duree / appels;
+            appelsTotal += appels;
+            octetsTotal += octets;
+        }
+        Arrays.sort(nanos);
+        double mediane = nanos[iterations / 2];
+        double octetsParOperation = octetsAlloues() < 0 ? -1 : (double) octetsTotal / appelsTotal;
+        return new Resultat(nom, parametres, mediane, octetsParOperation);
+    }
+
+    /**
+     * Appelle l'opération en boucle pendant au moins une durée donnée, et au
+     * moins une fois.
+     *
+     * @return le nombre d'appels effectués
+     */
+    private static long executer(Callable<?> operation, long dureeNanos) throws Exception {
+        long fin = System.nanoTime() + dureeNanos;
+        long appels = 0;
+        do {
+            consommer(operation.call());
+            appels++;
+        } while (System.nanoTime() < fin);
+        return appels;
+    }
+
+    /**
+     * Retourne le nombre d'octets alloués par le fil courant depuis son
+     * démarrage, ou -1 si la JVM ne le mesure pas.
+     */
+    private static long octetsAlloues() {
+        java.lang.management.ThreadMXBean fils = ManagementFactory.getThreadMXBean();
+        if (fils instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) fils).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,284 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import pizzas.Client;
+import pizzas.Commande;
+import pizzas.GestionClient;
+import pizzas.GestionPizzaiolo;
+import pizzas.InformationPersonnelle;
+import pizzas.MotDePasse;
+import pizzas.Pizza;
+import pizzas.TypePizza;
+
+/**
+ * Bancs d'essai des opérations les plus sollicitées du paquetage
+ * {@code pizzas}.
+ * <p>
+ * Chaque combinaison de tailles (catalogue de pizzas, nombre de clients,
+ * longueur de l'historique de commandes traitées) donne un jeu de données
+ * construit par les API publiques à partir d'une graine fixe, sur lequel
+ * sont mesurées :
+ * <ul>
+ *   <li>{@code selectionPizzaFiltres} avec un filtre de type, d'ingrédient et de prix</li>
+ *   <li>{@code getPrixMinimal} d'une pizza</li>
+ *   <li>{@code classementPizzasParNombreCommandes}, {@code beneficeParClient}
+ *       et {@code commandesDejaTraitees}</li>
+ *   <li>{@code inscription} et {@code connexion} / {@code deconnexion}</li>
+ *   <li>la sauvegarde et le chargement du gestionnaire pizzaïolo</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Usage : {@code java bench.BancsPizzas [cle=valeur]...} avec les clés
+ * {@code catalogue}, {@code clients}, {@code historique} (listes de tailles
+ * séparées par des virgules), {@code chauffe}, {@code iteration} (ms),
+ * {@code iterations}, {@code sortie} (fichier de résultats),
+ * {@code reference} (fichier de résultats de référence) et
+ * {@code tolerance} (écart relatif toléré, 0.25 par défaut). Le programme
+ * se termine avec le code 1 si une mesure dépasse sa référence au-delà de la
+ * tolérance.
+ * </p>
+ */
+public class BancsPizzas {
+
+    private static final long GRAINE = 42;
+
+    private final Banc banc;
+
+    /**
+     * Crée la suite de bancs.
+     *
+     * @param banc outil de mesure
+     */
+    public BancsPizzas(Banc banc) {
+        this.banc = banc;
+    }
+
+    /**
+     * Construit un jeu de données et mesure toutes les opérations dessus.
+     *
+     * @param catalogue nombre de pizzas
+     * @param nombreClients nombre de clients inscrits
+     * @param historique nombre de commandes traitées
+     * @return les résultats des mesures
+     * @throws Exception si une opération échoue
+     */
+    public List<Banc.Resultat> executer(int catalogue, int nombreClients, int historique) throws Exception {
+        String parametres = "catalogue=" + catalogue + ",clients=" + nombreClients + ",historique=" + historique;
+        SplittableRandom alea = new SplittableRandom(GRAINE);
+        int iterationsMotDePasse = MotDePasse.getIterationsParDefaut();
+
+        GestionPizzaiolo gp = new GestionPizzaiolo();
+        GestionClient gc = new GestionClient(gp.getPizzas());
+        gc.setGestionPizzaiolo(gp);
+
+        int nombreIngredients = Math.max(10, catalogue / 5);
+        for (int i = 0; i < nombreIngredients; i++) {
+            gp.creerIngredient("ingredient" + i, 0.5 + alea.nextInt(300) / 100.0);
+        }
+        TypePizza[] types = TypePizza.values();
+        Pizza[] pizzas = new Pizza[catalogue];
+        for (int i = 0; i < catalogue; i++) {
+            pizzas[i] = gp.creerPizza("pizza" + i, types[alea.nextInt(types.length)]);
+            int nombre = 2 + alea.nextInt(6);
+            for (int k = 0; k < nombre; k++) {
+                gp.ajouterIngredientPizza(pizzas[i], "ingredient" + alea.nextInt(nombreIngredients));
+            }
+        }
+
+        // les comptes du jeu de données sont hachés à bas coût : seuls ceux
+        // créés pendant les mesures utilisent le coût de hachage normal
+        List<Client> clients = new ArrayList<>(nombreClients);
+        MotDePasse.setIterationsParDefaut(1);
+        try {
+            for (int i = 0; i < nombreClients; i++) {
+                clients.add(new Client("client" + i + "@bench.test", MotDePasse.hacher("motdepasse" + i),
+                        new InformationPersonnelle("Nom" + i, "Prenom" + i, "Adresse " + i, 18 + i % 60)));
+            }
+        } finally {
+            MotDePasse.setIterationsParDefaut(iterationsMotDePasse);
+        }
+        gc.importerClients(clients);
+        clients.forEach(gp::enregistrerClient);
+
+        for (int i = 0; i < historique && nombreClients > 0; i++) {
+            Commande c = new Commande(clients.get(alea.nextInt(nombreClients)));
+            int nombre = 1 + alea.nextInt(4);
+            for (int k = 0; k < nombre; k++) {
+                c.ajouterPizza(pizzas[alea.nextInt(catalogue)]);
+            }
+            c.valider();
+            gp.enregistrerCommande(c);
+        }
+        gp.commandeNonTraitees();
+
+        List<Banc.Resultat> resultats = new ArrayList<>();
+
+        gc.inscription("filtre@bench.test", "motdepasse", new InformationPersonnelle("Filtre", "Bench", "", 30));
+        gc.connexion("filtre@bench.test", "motdepasse");
+        gc.ajouterFiltre(TypePizza.VIANDE);
+        gc.ajouterFiltre("ingredient0");
+        gc.ajouterFiltre(15.0);
+        resultats.add(banc.mesurer("selectionPizzaFiltres", parametres, gc::selectionPizzaFiltres));
+        gc.deconnexion();
+
+        Pizza pizza = pizzas[catalogue / 2];
+        resultats.add(banc.mesurer("getPrixMinimal", parametres, pizza::getPrixMinimal));
+        resultats.add(banc.mesurer("classementPizzasParNombreCommandes", parametres,
+                gp::classementPizzasParNombreCommandes));
+        resultats.add(banc.mesurer("beneficeParClient", parametres, gp::beneficeParClient));
+        resultats.add(banc.mesurer("commandesDejaTraitees", parametres, gp::commandesDejaTraitees));
+
+        int[] inscrits = {0};
+        InformationPersonnelle info = new InformationPersonnelle("Nouveau", "Client", "", 30);
+        resultats.add(banc.mesurer("inscription", parametres,
+                () -> gc.inscription("nouveau" + inscrits[0]++ + "@bench.test", "motdepasse", info)));
+        resultats.add(banc.mesurer("connexion", parametres, () -> {
+            boolean connecte = gc.connexion("filtre@bench.test", "motdepasse");
+            gc.deconnexion();
+            return connecte;
+        }));
+
+        byte[] sauvegarde = sauvegarder(gp);
+        resultats.add(banc.mesurer("sauvegarde", parametres, () -> sauvegarder(gp)));
+        resultats.add(banc.mesurer("chargement", parametres, () -> charger(sauvegarde)));
+        return resultats;
+    }
+
+    private static byte[] sauvegarder(GestionPizzaiolo gp) throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(gp);
+        }
+        return octets.toByteArray();
+    }
+
+    private static GestionPizzaiolo charger(byte[] sauvegarde) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(sauvegarde))) {
+            return (GestionPizzaiolo) in.readObject();
+        }
+    }
+
+    /**
+     * Met en forme des résultats, une mesure par ligne :
+     * {@code nom@parametres ns/op octets/op}.
+     *
+     * @param resultats résultats à écrire
+     * @return le texte des résultats
+     */
+    public static String formater(List<Banc.Resultat> resultats) {
+        StringBuilder sb = new StringBuilder();
+        for (Banc.Resultat r : resultats) {
+            sb.append(String.format(Locale.ROOT, "%-90s %14.1f %12.1f%n",
+                    r.cle(), r.nanosParOperation, r.octetsParOperation));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lit des résultats de référence écrits par {@link #formater(List)}. Les
+     * lignes vides et celles commençant par {@code #} sont ignorées.
+     *
+     * @param texte texte des résultats
+     * @return les temps par appel (ns) associés à leur clé
+     */
+    public static Map<String, Double> lireReference(String texte) {
+        Map<String, Double> reference = new LinkedHashMap<>();
+        for (String ligne : texte.split("\n")) {
+            ligne = ligne.trim();
+            if (ligne.isEmpty() || ligne.startsWith("#")) continue;
+            String[] champs = ligne.split("\\s+");
+            reference.put(champs[0], Double.parseDouble(champs[1]));
+        }
+        return reference;
+    }
+
+    /**
+     * Compare des résultats à une référence.
+     *
+     * @param resultats résultats mesurés
+     * @param reference temps de référence par clé
+     * @param tolerance écart relatif toléré (0.25 pour 25 %)
+     * @return la description des régressions, vide s'il n'y en a aucune
+     */
+    public static List<String> regressions(List<Banc.Resultat> resultats,
+                                           Map<String, Double> reference, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Banc.Resultat r : resultats) {
+            Double attendu = reference.get(r.cle());
+            if (attendu != null && r.nanosParOperation > attendu * (1 + tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s : %.1f ns/op au lieu de %.1f (+%.0f %%)",
+                        r.cle(), r.nanosParOperation, attendu,
+                        100 * (r.nanosParOperation / attendu - 1)));
+            }
+        }
+        return regressions;
+    }
+
+    private static int[] tailles(String valeur) {
+        String[] champs = valeur.split(",");
+        int[] tailles = new int[champs.length];
+        for (int i = 0; i < champs.length; i++) {
+            tailles[i] = Integer.parseInt(champs[i].trim());
+        }
+        return tailles;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("catalogue", "100,10000");
+        options.put("clients", "1000,100000");
+        options.put("historique", "1000,100000");
+        options.put("chauffe", "1000");
+        options.put("iteration", "500");
+        options.put("iterations", "5");
+        options.put("tolerance", "0.25");
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (egal < 0 || !options.containsKey(arg.substring(0, egal))
+                    && !arg.startsWith("sortie=") && !arg.startsWith("reference=")) {
+                throw new IllegalArgumentException("Argument invalide : " + arg);
+            }
+            options.put(arg.substring(0, egal), arg.substring(egal + 1));
+        }
+
+        BancsPizzas bancs = new BancsPizzas(new Banc(Long.parseLong(options.get("chauffe")),
+                Long.parseLong(options.get("iteration")), Integer.parseInt(options.get("iterations"))));
+        List<Banc.Resultat> resultats = new ArrayList<>();
+        for (int catalogue : tailles(options.get("catalogue"))) {
+            for (int clients : tailles(options.get("clients"))) {
+                for (int historique : tailles(options.get("historique"))) {
+                    List<Banc.Resultat> r = bancs.executer(catalogue, clients, historique);
+                    System.out.print(formater(r));
+                    resultats.addAll(r);
+                }
+            }
+        }
+
+        if (options.containsKey("sortie")) {
+            Files.write(Path.of(options.get("sortie")), formater(resultats).getBytes(StandardCharsets.UTF_8));
+        }
+        if (options.containsKey("reference")) {
+            String texte = Files.readString(Path.of(options.get("reference")), StandardCharsets.UTF_8);
+            List<String> regressions = regressions(resultats, lireReference(texte),
+                    Double.parseDouble(options.get("tolerance")));
+            regressions.forEach(System.out::println);
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+}
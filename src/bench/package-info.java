@@ -0,0 +1,5 @@
+/**
+ * Bancs d'essai des opérations les plus sollicitées du paquetage
+ * {@code pizzas}, avec résultats de référence pour repérer les régressions.
+ */
+package bench;
@@ -0,0 +1,387 @@
+package charge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import pizzas.Client;
+import pizzas.Commande;
+import pizzas.GestionClient;
+import pizzas.GestionPizzaiolo;
+import pizzas.InformationPersonnelle;
+import pizzas.MotDePasse;
+import pizzas.Pizza;
+import pizzas.TypePizza;
+
+/**
+ * Générateur de charge simulant un coup de feu du soir.
+ * <p>
+ * Le générateur crée d'abord un jeu de données par les API publiques
+ * (ingrédients, pizzas, comptes clients), puis simule pendant une durée donnée
+ * l'arrivée de clients selon un débit qui monte jusqu'à un pic au milieu de la
+ * période puis redescend (courbe en cloche). Chaque visite :
+ * <ol>
+ *   <li>inscrit un nouveau client (une fois sur
+ *       {@code 1/proportionInscriptions}) ou reprend un compte existant</li>
+ *   <li>se connecte, débute une commande, ajoute quelques pizzas, la
+ *       valide et la transmet au pizzaïolo</li>
+ * </ol>
+ * Un fil « cuisine » traite les commandes en attente pendant toute la durée.
+ * </p>
+ * <p>
+ * Les instants d'arrivée et le contenu de chaque visite ne dépendent que de la
+ * graine : deux exécutions de même configuration soumettent exactement le
+ * même trafic. Les latences sont mesurées depuis l'instant d'arrivée prévu, si
+ * bien qu'un service saturé apparaît dans les percentiles au lieu de ralentir
+ * silencieusement le générateur.
+ * </p>
+ * <p>
+ * Usage : {@code java charge.GenerateurCharge [cle=valeur]...}, voir
+ * {@link Configuration} pour les clés.
+ * </p>
+ */
+public class GenerateurCharge {
+
+    /**
+     * Paramètres d'une exécution.
+     */
+    public static class Configuration {
+        /** Graine des tirages aléatoires. */
+        public long graine = 42;
+        /** Nombre d'ingrédients créés. */
+        public int ingredients = 2_000;
+        /** Nombre de pizzas créées. */
+        public int pizzas = 5_000;
+        /** Nombre de comptes clients existants. */
+        public int clients = 1_000_000;
+        /** Durée du coup de feu, en secondes. */
+        public double duree = 30;
+        /** Débit d'arrivée en début et fin de période (visites / s). */
+        public double debitBase = 200;
+        /** Débit d'arrivée au pic (visites / s). */
+        public double debitPic = 2_000;
+        /** Nombre de fils servant les visites. */
+        public int fils = 4 * Runtime.getRuntime().availableProcessors();
+        /** Itérations de hachage des mots de passe des comptes générés. */
+        public int iterations = 10;
+        /** Proportion des visites qui commencent par une inscription. */
+        public double proportionInscriptions = 0.05;
+        /** Nombre maximum de pizzas par commande. */
+        public int pizzasParCommande = 4;
+
+        /**
+         * Lit une configuration de la forme {@code cle=valeur}.
+         *
+         * @param args arguments à lire
+         * @return la configuration
+         */
+        public static Configuration lire(String... args) {
+            Configuration c = new Configuration();
+            for (String arg : args) {
+                int egal = arg.indexOf('=');
+                if (egal < 0) {
+                    throw new IllegalArgumentException("Argument invalide : " + arg);
+                }
+                String valeur = arg.substring(egal + 1);
+                switch (arg.substring(0, egal)) {
+                    case "graine": c.graine = Long.parseLong(valeur); break;
+                    case "ingredients": c.ingredients = Integer.parseInt(valeur); break;
+                    case "pizzas": c.pizzas = Integer.parseInt(valeur); break;
+                    case "clients": c.clients = Integer.parseInt(valeur); break;
+                    case "duree": c.duree = Double.parseDouble(valeur); break;
+                    case "debitBase": c.debitBase = Double.parseDouble(valeur); break;
+                    case "debitPic": c.debitPic = Double.parseDouble(valeur); break;
+                    case "fils": c.fils = Integer.parseInt(valeur); break;
+                    case "iterations": c.iterations = Integer.parseInt(valeur); break;
+                    case "proportionInscriptions":
+                        c.proportionInscriptions = Double.parseDouble(valeur); break;
+                    case "pizzasParCommande":
+                        c.pizzasParCommande = Integer.parseInt(valeur); break;
+                    default:
+                        throw new IllegalArgumentException("Clé inconnue : " + arg);
+                }
+            }
+            return c;
+        }
+
+        /**
+         * Débit d'arrivée à un instant de la période.
+         *
+         * @param t instant en secondes depuis le début
+         * @return le débit en visites par seconde
+         */
+        double debit(double t) {
+            double ecart = (t - duree / 2) / (duree / 6);
+            return debitBase + (debitPic - debitBase) * Math.exp(-ecart * ecart);
+        }
+    }
+
+    /**
+     * Opérations mesurées.
+     */
+    public enum Operation {
+        INSCRIPTION, CONNEXION, DEBUTER_COMMANDE, AJOUTER_PIZZA, VALIDER_COMMANDE, VISITE
+    }
+
+    private final Configuration configuration;
+    private final GestionPizzaiolo gestionPizzaiolo = new GestionPizzaiolo();
+    private final GestionClient gestionClient = new GestionClient(gestionPizzaiolo.getPizzas());
+    private final Map<Operation, HistogrammeLatences> latences = new LinkedHashMap<>();
+    private final AtomicLong echecs = new AtomicLong();
+    private Pizza[] catalogue;
+    private long visitesPlanifiees;
+    private double dureeReelle;
+
+    /**
+     * Crée un générateur.
+     *
+     * @param configuration paramètres de l'exécution
+     */
+    public GenerateurCharge(Configuration configuration) {
+        this.configuration = configuration;
+        gestionClient.setGestionPizzaiolo(gestionPizzaiolo);
+        for (Operation o : Operation.values()) {
+            latences.put(o, new HistogrammeLatences());
+        }
+    }
+
+    /**
+     * Crée le jeu de données : ingrédients, pizzas et comptes clients.
+     */
+    public void preparer() {
+        Configuration c = configuration;
+        MotDePasse.setIterationsParDefaut(c.iterations);
+        SplittableRandom alea = new SplittableRandom(c.graine);
+        for (int i = 0; i < c.ingredients; i++) {
+            gestionPizzaiolo.creerIngredient("ingredient" + i, 0.5 + alea.nextInt(300) / 100.0);
+        }
+        TypePizza[] types = TypePizza.values();
+        catalogue = new Pizza[c.pizzas];
+        for (int i = 0; i < c.pizzas; i++) {
+            Pizza p = gestionPizzaiolo.creerPizza("pizza" + i, types[alea.nextInt(types.length)]);
+            int nombre = 2 + alea.nextInt(6);
+            for (int k = 0; k < nombre; k++) {
+                gestionPizzaiolo.ajouterIngredientPizza(p, "ingredient" + alea.nextInt(c.ingredients));
+            }
+            catalogue[i] = p;
+        }
+        List<Client> comptes = IntStream.range(0, c.clients).parallel()
+                .mapToObj(i -> new Client(email(i), MotDePasse.hacher(motDePasse(i)),
+                        new InformationPersonnelle("Nom" + i, "Prenom" + i, "Adresse " + i, 18 + i % 60)))
+                .collect(Collectors.toList());
+        gestionClient.importerClients(comptes);
+    }
+
+    /**
+     * Simule le coup de feu puis attend la fin des visites en cours.
+     *
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    public void executer() throws InterruptedException {
+        Configuration c = configuration;
+        ExecutorService visites = Executors.newFixedThreadPool(c.fils);
+        Thread cuisine = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                gestionPizzaiolo.commandeNonTraitees();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "cuisine");
+        cuisine.setDaemon(true);
+        cuisine.start();
+
+        long debut = System.nanoTime();
+        double[] arrivees = planifier();
+        visitesPlanifiees = arrivees.length;
+        for (int v = 0; v < arrivees.length; v++) {
+            long prevue = debut + (long) (arrivees[v] * 1e9);
+            long attente = prevue - System.nanoTime();
+            if (attente > 0) {
+                TimeUnit.NANOSECONDS.sleep(attente);
+            }
+            final int numero = v;
+            visites.execute(() -> visiter(numero, prevue));
+        }
+        visites.shutdown();
+        visites.awaitTermination(1, TimeUnit.HOURS);
+        dureeReelle = (System.nanoTime() - debut) / 1e9;
+        cuisine.interrupt();
+        cuisine.join();
+        gestionPizzaiolo.commandeNonTraitees();
+    }
+
+    /**
+     * Tire les instants d'arrivée d'un processus de Poisson de débit variable
+     * (méthode par amincissement), à partir de la seule graine.
+     *
+     * @return les instants d'arrivée, en secondes depuis le début
+     */
+    double[] planifier() {
+        Configuration c = configuration;
+        SplittableRandom alea = new SplittableRandom(c.graine ^ 0x5DEECE66DL);
+        double debitMax = Math.max(c.debitBase, c.debitPic);
+        double[] arrivees = new double[1024];
+        int n = 0;
+        double t = 0;
+        while (true) {
+            t += -Math.log(1 - alea.nextDouble()) / debitMax;
+            if (t >= c.duree) {
+                break;
+            }
+            if (alea.nextDouble() * debitMax <= c.debit(t)) {
+                if (n == arrivees.length) {
+                    arrivees = Arrays.copyOf(arrivees, n * 2);
+                }
+                arrivees[n++] = t;
+            }
+        }
+        return Arrays.copyOf(arrivees, n);
+    }
+
+    /**
+     * Déroule une visite. Les tirages ne dépendent que de la graine et du
+     * numéro de visite.
+     *
+     * @param numero numéro de la visite
+     * @param prevue instant d'arrivée prévu ({@link System#nanoTime()})
+     */
+    private void visiter(int numero, long prevue) {
+        Configuration c = configuration;
+        SplittableRandom alea = new SplittableRandom(c.graine * 0x9E3779B97F4A7C15L + numero);
+        try {
+            String email;
+            String mdp;
+            if (alea.nextDouble() < c.proportionInscriptions) {
+                email = "nouveau" + numero + "@charge.test";
+                mdp = "motdepasse" + numero;
+                long t0 = System.nanoTime();
+                int code = gestionClient.inscription(email, mdp,
+                        new InformationPersonnelle("Nouveau" + numero, "Client", "", 30));
+                mesurer(Operation.INSCRIPTION, t0);
+                if (code != 0) {
+                    echecs.incrementAndGet();
+                    return;
+                }
+            } else {
+                int compte = alea.nextInt(Math.max(1, c.clients));
+                email = email(compte);
+                mdp = motDePasse(compte);
+            }
+
+            long t0 = System.nanoTime();
+            boolean connecte = gestionClient.connexion(email, mdp);
+            mesurer(Operation.CONNEXION, t0);
+            if (!connecte) {
+                echecs.incrementAndGet();
+                return;
+            }
+
+            t0 = System.nanoTime();
+            Commande commande = gestionClient.debuterCommande();
+            mesurer(Operation.DEBUTER_COMMANDE, t0);
+
+            int nombre = 1 + alea.nextInt(Math.max(1, c.pizzasParCommande));
+            for (int i = 0; i < nombre; i++) {
+                Pizza p = catalogue[alea.nextInt(catalogue.length)];
+                t0 = System.nanoTime();
+                gestionClient.ajouterPizza(p, 1, commande);
+                mesurer(Operation.AJOUTER_PIZZA, t0);
+            }
+
+            t0 = System.nanoTime();
+            gestionClient.validerCommande(commande);
+            gestionPizzaiolo.enregistrerCommande(commande);
+            mesurer(Operation.VALIDER_COMMANDE, t0);
+            gestionClient.deconnexion();
+            mesurer(Operation.VISITE, prevue);
+        } catch (Exception e) {
+            echecs.incrementAndGet();
+        }
+    }
+
+    private void mesurer(Operation operation, long debut) {
+        latences.get(operation).enregistrer(System.nanoTime() - debut);
+    }
+
+    private static String email(int compte) {
+        return "client" + compte + "@charge.test";
+    }
+
+    private static String motDePasse(int compte) {
+        return "motdepasse" + compte;
+    }
+
+    /**
+     * Retourne l'histogramme des latences d'une opération.
+     *
+     * @param operation opération mesurée
+     * @return l'histogramme
+     */
+    public HistogrammeLatences getLatences(Operation operation) {
+        return latences.get(operation);
+    }
+
+    /**
+     * Retourne le nombre de visites planifiées par la dernière exécution.
+     *
+     * @return le nombre de visites
+     */
+    public long getVisitesPlanifiees() {
+        return visitesPlanifiees;
+    }
+
+    /**
+     * Retourne le nombre de visites interrompues par une erreur ou un refus.
+     *
+     * @return le nombre d'échecs
+     */
+    public long getEchecs() {
+        return echecs.get();
+    }
+
+    /**
+     * Produit le rapport de la dernière exécution : débit et percentiles de
+     * latence (en microsecondes) par opération.
+     *
+     * @return le rapport
+     */
+    public String rapport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT,
+                "graine=%d visites=%d echecs=%d duree=%.1fs debit=%.1f visites/s%n",
+                configuration.graine, visitesPlanifiees, echecs.get(), dureeReelle,
+                latences.get(Operation.VISITE).nombre() / Math.max(dureeReelle, 1e-9)));
+        sb.append(String.format(Locale.ROOT, "%-18s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "nombre", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)"));
+        List<Operation> operations = new ArrayList<>(latences.keySet());
+        for (Operation o : operations) {
+            HistogrammeLatences h = latences.get(o);
+            sb.append(String.format(Locale.ROOT, "%-18s %10d %10d %10d %10d %10d %10d%n",
+                    o, h.nombre(), h.percentile(50) / 1000, h.percentile(90) / 1000,
+                    h.percentile(99) / 1000, h.percentile(99.9) / 1000, h.maximum() / 1000));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        GenerateurCharge generateur = new GenerateurCharge(Configuration.lire(args));
+        long t0 = System.nanoTime();
+        generateur.preparer();
+        System.out.printf(Locale.ROOT, "preparation : %.1fs%n", (System.nanoTime() - t0) / 1e9);
+        generateur.executer();
+        System.out.print(generateur.rapport());
+    }
+}
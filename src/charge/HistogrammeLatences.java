@@ -0,0 +1,111 @@
+package charge;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de latences à précision relative constante, utilisable depuis
+ * plusieurs fils sans verrou.
+ * <p>
+ * Les durées (en nanosecondes) sont rangées dans des seaux log-linéaires :
+ * chaque puissance de 2 est découpée en {@value #SOUS_SEAUX} seaux égaux, ce
+ * qui garantit une erreur relative inférieure à 1/{@value #SOUS_SEAUX} sur
+ * les percentiles, quelle que soit l'échelle.
+ * </p>
+ */
+public class HistogrammeLatences {
+
+    /**
+     * Nombre de seaux par puissance de 2.
+     */
+    static final int SOUS_SEAUX = 32;
+
+    private static final int BITS_SOUS_SEAUX = Integer.numberOfTrailingZeros(SOUS_SEAUX);
+
+    private final AtomicLongArray seaux = new AtomicLongArray(64 * SOUS_SEAUX);
+    private final AtomicLong nombre = new AtomicLong();
+    private final AtomicLong maximum = new AtomicLong();
+
+    /**
+     * Enregistre une durée.
+     *
+     * @param nanos durée en nanosecondes
+     */
+    public void enregistrer(long nanos) {
+        long v = Math.max(0, nanos);
+        seaux.incrementAndGet(indice(v));
+        nombre.incrementAndGet();
+        maximum.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Retourne le nombre de durées enregistrées.
+     *
+     * @return le nombre de mesures
+     */
+    public long nombre() {
+        return nombre.get();
+    }
+
+    /**
+     * Retourne la plus grande durée enregistrée.
+     *
+     * @return la durée maximale en nanosecondes
+     */
+    public long maximum() {
+        return maximum.get();
+    }
+
+    /**
+     * Retourne un percentile des durées enregistrées.
+     *
+     * @param p percentile entre 0 et 100
+     * @return la borne supérieure du seau contenant le percentile, en
+     *         nanosecondes (0 si aucune mesure)
+     */
+    public long percentile(double p) {
+        long total = nombre.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rang = Math.max(1, (long) Math.ceil(total * p / 100.0));
+        long cumul = 0;
+        for (int i = 0; i < seaux.length(); i++) {
+            cumul += seaux.get(i);
+            if (cumul >= rang) {
+                return Math.min(borneSuperieure(i), maximum.get());
+            }
+        }
+        return maximum.get();
+    }
+
+    /**
+     * Calcule le seau d'une durée.
+     *
+     * @param v durée positive
+     * @return l'indice du seau
+     */
+    static int indice(long v) {
+        if (v < SOUS_SEAUX) {
+            return (int) v;
+        }
+        int exposant = 63 - Long.numberOfLeadingZeros(v) - BITS_SOUS_SEAUX;
+        int sousSeau = (int) (v >>> exposant) - SOUS_SEAUX;
+        return (exposant + 1) * SOUS_SEAUX + sousSeau;
+    }
+
+    /**
+     * Calcule la plus grande durée rangée dans un seau.
+     *
+     * @param indice indice du seau
+     * @return la borne supérieure du seau
+     */
+    static long borneSuperieure(int indice) {
+        if (indice < SOUS_SEAUX) {
+            return indice;
+        }
+        int exposant = indice / SOUS_SEAUX - 1;
+        long base = (long) (indice % SOUS_SEAUX + SOUS_SEAUX) << exposant;
+        return base + (1L << exposant) - 1;
+    }
+}
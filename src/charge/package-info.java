@@ -0,0 +1,4 @@
+/**
+ * Génération de charge synthétique et mesure des latences des services.
+ */
+package charge;
@@ -0,0 +1,573 @@
+package diagnostic;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import pizzas.BusEvenements;
+import pizzas.Client;
+import pizzas.Commande;
+import pizzas.Evaluation;
+import pizzas.GestionPizzaiolo;
+import pizzas.InformationPersonnelle;
+import pizzas.Ingredient;
+import pizzas.InstantaneCatalogue;
+import pizzas.MotDePasse;
+import pizzas.Pizza;
+
+/**
+ * Mesure de l'empreinte mémoire d'un graphe d'objets du domaine, par
+ * catégorie (commandes, clients, évaluations, catalogue, index) et par type.
+ * <p>
+ * Le graphe est parcouru par réflexion à partir d'une racine, en général le
+ * {@link GestionPizzaiolo}. Chaque objet n'est compté qu'une fois, dans la
+ * catégorie de l'objet du domaine qui l'a atteint en premier : la
+ * {@code LocalDateTime} et l'{@code ArrayList} d'une commande comptent dans
+ * les commandes, la pizza qu'elle référence dans le catalogue. Les tailles
+ * suivent la disposition d'une JVM 64 bits à références compressées
+ * (en-tête de 12 octets, alignement sur 8 octets).
+ * </p>
+ * <p>
+ * Les classes du JDK ne pouvant être ouvertes par réflexion, les collections
+ * usuelles sont estimées d'après leur structure interne (tableau, nœuds)
+ * puis leurs éléments parcourus par leur API publique. Ces octets de
+ * structure sont isolés dans le rapport : c'est le coût des collections,
+ * indépendamment des données qu'elles contiennent.
+ * </p>
+ * <p>
+ * Pour les très gros graphes, un pas d'échantillonnage peut être fixé :
+ * seule une commande, un client ou une évaluation sur {@code pas} est alors
+ * parcouru, et son empreinte multipliée par {@code pas}. Le tirage dépend de
+ * l'identité de l'objet, si bien qu'un objet atteint par plusieurs chemins
+ * est retenu ou écarté de la même façon sur chacun d'eux.
+ * </p>
+ */
+public class EmpreinteMemoire {
+
+    private static final int ENTETE = 12;
+    private static final int ENTETE_TABLEAU = 16;
+    private static final int REFERENCE = 4;
+
+    /** Catégorie des objets qui ne relèvent d'aucune autre. */
+    public static final String GESTIONNAIRE = "gestionnaire";
+    /** Catégorie des commandes. */
+    public static final String COMMANDES = "commandes";
+    /** Catégorie des clients. */
+    public static final String CLIENTS = "clients";
+    /** Catégorie des évaluations. */
+    public static final String EVALUATIONS = "evaluations";
+    /** Catégorie des pizzas et ingrédients. */
+    public static final String CATALOGUE = "catalogue";
+    /** Catégorie des index reconstruits au chargement. */
+    public static final String INDEX = "index";
+
+    private static final Map<Class<?>, String> CATEGORIES = new HashMap<>();
+
+    /** Classes nombreuses, échantillonnées lorsqu'un pas est fixé. */
+    private static final Set<Class<?>> ECHANTILLONNEES = Set.of(Commande.class, Client.class, Evaluation.class);
+
+    static {
+        CATEGORIES.put(Commande.class, COMMANDES);
+        CATEGORIES.put(Client.class, CLIENTS);
+        CATEGORIES.put(InformationPersonnelle.class, CLIENTS);
+        CATEGORIES.put(MotDePasse.class, CLIENTS);
+        CATEGORIES.put(Evaluation.class, EVALUATIONS);
+        CATEGORIES.put(Pizza.class, CATALOGUE);
+        CATEGORIES.put(Ingredient.class, CATALOGUE);
+        CATEGORIES.put(BusEvenements.class, INDEX);
+        CATEGORIES.put(InstantaneCatalogue.class, INDEX);
+        // classes non publiques du paquetage pizzas
+        categorie("pizzas.CommandesTraitees", COMMANDES);
+        categorie("pizzas.EvaluationsPizza", EVALUATIONS);
+        categorie("pizzas.ReglesIngredients", CATALOGUE);
+        categorie("pizzas.SimilaritePizzas", INDEX);
+        categorie("pizzas.RecommandationCommandes", INDEX);
+        categorie("pizzas.ClassementNotes", INDEX);
+    }
+
+    private static void categorie(String classe, String categorie) {
+        try {
+            CATEGORIES.put(Class.forName(classe), categorie);
+        } catch (ClassNotFoundException e) {
+            // classe retirée : ses objets héritent de la catégorie parente
+        }
+    }
+
+    /**
+     * Octets et nombre d'objets d'un type dans une catégorie.
+     */
+    public static final class Poste {
+        private long objets;
+        private long octets;
+        private final boolean structure;
+
+        private Poste(boolean structure) {
+            this.structure = structure;
+        }
+
+        /**
+         * Retourne le nombre d'objets.
+         *
+         * @return le nombre d'objets
+         */
+        public long getObjets() {
+            return objets;
+        }
+
+        /**
+         * Retourne l'empreinte cumulée.
+         *
+         * @return les octets
+         */
+        public long getOctets() {
+            return octets;
+        }
+
+        /**
+         * Indique si le poste est une structure interne de collection.
+         *
+         * @return {@code true} pour une structure de collection
+         */
+        public boolean estStructure() {
+            return structure;
+        }
+    }
+
+    /**
+     * Résultat d'une mesure.
+     */
+    public static final class Rapport {
+        private final Map<String, Map<String, Poste>> postes = new TreeMap<>();
+        private final boolean echantillonne;
+
+        private Rapport(boolean echantillonne) {
+            this.echantillonne = echantillonne;
+        }
+
+        private void ajouter(String categorie, String type, boolean structure, long octets, long poids) {
+            Poste p = postes.computeIfAbsent(categorie, c -> new TreeMap<>())
+                    .computeIfAbsent(type, t -> new Poste(structure));
+            p.objets += poids;
+            p.octets += octets * poids;
+        }
+
+        /**
+         * Retourne l'empreinte totale.
+         *
+         * @return les octets
+         */
+        public long getTotal() {
+            long total = 0;
+            for (String c : postes.keySet()) {
+                total += getOctets(c);
+            }
+            return total;
+        }
+
+        /**
+         * Retourne l'empreinte d'une catégorie.
+         *
+         * @param categorie catégorie, par exemple {@link EmpreinteMemoire#COMMANDES}
+         * @return les octets, 0 si la catégorie est absente
+         */
+        public long getOctets(String categorie) {
+            long total = 0;
+            for (Poste p : postes.getOrDefault(categorie, Collections.emptyMap()).values()) {
+                total += p.octets;
+            }
+            return total;
+        }
+
+        /**
+         * Retourne les octets des structures de collections d'une catégorie.
+         *
+         * @param categorie catégorie
+         * @return les octets de structure
+         */
+        public long getOctetsStructures(String categorie) {
+            long total = 0;
+            for (Poste p : postes.getOrDefault(categorie, Collections.emptyMap()).values()) {
+                if (p.structure) {
+                    total += p.octets;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Retourne le détail d'une catégorie par type.
+         *
+         * @param categorie catégorie
+         * @return les postes associés au nom de leur type
+         */
+        public Map<String, Poste> getPostes(String categorie) {
+            return Collections.unmodifiableMap(postes.getOrDefault(categorie, Collections.emptyMap()));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            long total = getTotal();
+            sb.append(String.format(Locale.ROOT, "Empreinte totale : %s%s%n", lisible(total),
+                    echantillonne ? " (estimée par échantillonnage)" : ""));
+            for (Map.Entry<String, Map<String, Poste>> c : postes.entrySet()) {
+                long octets = getOctets(c.getKey());
+                sb.append(String.format(Locale.ROOT, "%n%-14s %12s %5.1f %%   dont structures %s%n",
+                        c.getKey(), lisible(octets), 100.0 * octets / Math.max(1, total),
+                        lisible(getOctetsStructures(c.getKey()))));
+                List<Map.Entry<String, Poste>> types = new ArrayList<>(c.getValue().entrySet());
+                types.sort((a, b) -> Long.compare(b.getValue().octets, a.getValue().octets));
+                for (Map.Entry<String, Poste> t : types) {
+                    Poste p = t.getValue();
+                    sb.append(String.format(Locale.ROOT, "    %-34s %12d objets %12s  %6.1f o/objet%s%n",
+                            t.getKey(), p.objets, lisible(p.octets), (double) p.octets / Math.max(1, p.objets),
+                            p.structure ? "  [structure]" : ""));
+                }
+            }
+            return sb.toString();
+        }
+
+        private static String lisible(long octets) {
+            if (octets >= 1L << 30) return String.format(Locale.ROOT, "%.2f Gio", octets / (double) (1L << 30));
+            if (octets >= 1L << 20) return String.format(Locale.ROOT, "%.2f Mio", octets / (double) (1L << 20));
+            if (octets >= 1L << 10) return String.format(Locale.ROOT, "%.2f Kio", octets / (double) (1L << 10));
+            return octets + " o";
+        }
+    }
+
+    /**
+     * Objet à visiter, avec sa catégorie héritée et son poids
+     * d'échantillonnage.
+     */
+    private static final class Visite {
+        final Object objet;
+        final String categorie;
+        final long poids;
+
+        Visite(Object objet, String categorie, long poids) {
+            this.objet = objet;
+            this.categorie = categorie;
+            this.poids = poids;
+        }
+    }
+
+    private final int pas;
+    private final Map<Class<?>, Field[]> champs = new HashMap<>();
+    private final Map<Class<?>, Long> taillesSimples = new HashMap<>();
+
+    /**
+     * Crée un outil de mesure exhaustive.
+     */
+    public EmpreinteMemoire() {
+        this(1);
+    }
+
+    /**
+     * Crée un outil de mesure par échantillonnage.
+     *
+     * @param pas un objet échantillonné parcouru sur {@code pas}
+     */
+    public EmpreinteMemoire(int pas) {
+        if (pas <= 0) {
+            throw new IllegalArgumentException("Pas d'échantillonnage invalide");
+        }
+        this.pas = pas;
+    }
+
+    /**
+     * Mesure l'empreinte du graphe atteint depuis une racine.
+     *
+     * @param racine racine du graphe
+     * @return le rapport par catégorie et par type
+     */
+    public Rapport mesurer(Object racine) {
+        Rapport rapport = new Rapport(pas > 1);
+        Set<Object> vus = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Visite> pile = new ArrayDeque<>();
+        pile.push(new Visite(racine, GESTIONNAIRE, 1));
+        while (!pile.isEmpty()) {
+            Visite v = pile.pop();
+            Object o = v.objet;
+            if (o == null || ignore(o) || !vus.add(o)) {
+                continue;
+            }
+            String categorie = CATEGORIES.get(o.getClass());
+            long poids = v.poids;
+            if (categorie == null) {
+                categorie = v.categorie;
+            } else if (pas > 1 && ECHANTILLONNEES.contains(o.getClass())) {
+                if (!retenu(o)) {
+                    continue;
+                }
+                poids = pas;
+            } else if (!categorie.equals(v.categorie)) {
+                // objet d'une autre catégorie, atteint depuis un objet échantillonné
+                poids = 1;
+            }
+            visiter(o, categorie, poids, rapport, pile);
+        }
+        return rapport;
+    }
+
+    /**
+     * Indique si un objet est partagé par toute la JVM et ne doit pas être
+     * compté (constantes d'énumération, classes, fils d'exécution).
+     */
+    private static boolean ignore(Object o) {
+        return o instanceof Enum || o instanceof Class || o instanceof Thread
+                || o instanceof ClassLoader || o instanceof Boolean;
+    }
+
+    private void visiter(Object o, String categorie, long poids, Rapport rapport, Deque<Visite> pile) {
+        Class<?> c = o.getClass();
+        if (c.isArray()) {
+            long octets = tailleTableau(c.getComponentType(), Array.getLength(o));
+            rapport.ajouter(categorie, c.getComponentType().getSimpleName() + "[]", false, octets, poids);
+            if (!c.getComponentType().isPrimitive()) {
+                empiler(pile, Arrays.asList((Object[]) o), categorie, poids);
+            }
+            return;
+        }
+        if (c.getModule().isNamed()) {
+            visiterJdk(o, categorie, poids, rapport, pile);
+            return;
+        }
+        rapport.ajouter(categorie, nomType(c), false, tailleSimple(c), poids);
+        for (Field f : champs(c)) {
+            try {
+                Object valeur = f.get(o);
+                if (valeur != null) {
+                    pile.push(new Visite(valeur, categorie, poids));
+                }
+            } catch (IllegalAccessException e) {
+                // champ illisible : compté dans la taille de l'objet seulement
+            }
+        }
+    }
+
+    /**
+     * Estime un objet du JDK d'après sa structure connue, puis empile ses
+     * éléments.
+     */
+    private void visiterJdk(Object o, String categorie, long poids, Rapport rapport, Deque<Visite> pile) {
+        Class<?> c = o.getClass();
+        String type = nomType(c);
+        if (o instanceof String) {
+            String s = (String) o;
+            boolean latin1 = s.chars().allMatch(ch -> ch < 256);
+            rapport.ajouter(categorie, "String", false,
+                    aligner(ENTETE + 12) + tailleTableau(byte.class, latin1 ? s.length() : 2 * s.length()), poids);
+        } else if (o instanceof Number || o instanceof Character) {
+            rapport.ajouter(categorie, type, false,
+                    o instanceof AtomicLong || o instanceof Long || o instanceof Double ? 24 : 16, poids);
+        } else if (o instanceof LocalDateTime) {
+            rapport.ajouter(categorie, "LocalDateTime", false, 24 + 24 + 24, poids);
+        } else if (o instanceof LocalDate || o instanceof LocalTime) {
+            rapport.ajouter(categorie, type, false, 24, poids);
+        } else if (o instanceof Collection) {
+            Collection<?> col = (Collection<?>) o;
+            rapport.ajouter(categorie, type, true, tailleCollection(col), poids);
+            empiler(pile, col, categorie, poids);
+        } else if (o instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) o;
+            rapport.ajouter(categorie, type, true, tailleTable(map, map.size()), poids);
+            List<Object> elements = new ArrayList<>(2 * map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                elements.add(e.getKey());
+                elements.add(e.getValue());
+            }
+            empiler(pile, elements, categorie, poids);
+        } else {
+            // objet du JDK inconnu : taille déduite de ses champs, sans parcours
+            rapport.ajouter(categorie, type, false, tailleSimple(c), poids);
+        }
+    }
+
+    /**
+     * Indique si un objet échantillonné est retenu, d'après son identité.
+     */
+    private boolean retenu(Object o) {
+        int h = System.identityHashCode(o) * 0x9E3779B9;
+        return Integer.remainderUnsigned(h ^ (h >>> 16), pas) == 0;
+    }
+
+    /**
+     * Empile les éléments d'une collection.
+     */
+    private static void empiler(Deque<Visite> pile, Iterable<?> elements, String categorie, long poids) {
+        for (Object e : elements) {
+            if (e != null) {
+                pile.push(new Visite(e, categorie, poids));
+            }
+        }
+    }
+
+    /**
+     * Estime la structure interne d'une collection du JDK, hors éléments.
+     */
+    private static long tailleCollection(Collection<?> col) {
+        int n = col.size();
+        if (col instanceof LinkedHashSet) {
+            return 16 + tailleHachage(n, 56, 40);
+        }
+        if (col instanceof TreeSet) {
+            return 16 + 48 + 40L * n;
+        }
+        if (col.getClass().getName().startsWith("java.util.concurrent.ConcurrentHashMap")) {
+            return 24 + tailleHachage(n, 64, 32);
+        }
+        if (col instanceof Set) {
+            return 16 + tailleHachage(n, 48, 32);
+        }
+        // listes, files et enveloppes : un tableau de références
+        return 24 + tailleTableau(Object.class, n);
+    }
+
+    /**
+     * Estime la structure interne d'une table associative du JDK, hors clés
+     * et valeurs.
+     */
+    private static long tailleTable(Map<?, ?> map, int n) {
+        if (map instanceof TreeMap) {
+            return 48 + 40L * n;
+        }
+        if (map instanceof ConcurrentHashMap) {
+            return tailleHachage(n, 64, 32);
+        }
+        if (map instanceof LinkedHashMap) {
+            return tailleHachage(n, 56, 40);
+        }
+        return tailleHachage(n, 48, 32);
+    }
+
+    /**
+     * Estime une table de hachage : l'objet, son tableau de seaux (facteur de
+     * charge 0,75) et un nœud par entrée.
+     */
+    private static long tailleHachage(int n, long objet, long noeud) {
+        int seaux = 16;
+        while (seaux * 3L / 4 < n) {
+            seaux <<= 1;
+        }
+        return objet + tailleTableau(Object.class, seaux) + noeud * n;
+    }
+
+    private static long tailleTableau(Class<?> composant, int longueur) {
+        long element = composant == long.class || composant == double.class ? 8
+                : composant == int.class || composant == float.class ? 4
+                : composant == short.class || composant == char.class ? 2
+                : composant == byte.class || composant == boolean.class ? 1
+                : REFERENCE;
+        return aligner(ENTETE_TABLEAU + element * longueur);
+    }
+
+    /**
+     * Retourne la taille d'un objet d'une classe, champs hérités compris.
+     */
+    private long tailleSimple(Class<?> c) {
+        Long taille = taillesSimples.get(c);
+        if (taille == null) {
+            long octets = ENTETE;
+            for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+                for (Field f : k.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers())) continue;
+                    Class<?> t = f.getType();
+                    octets += t == long.class || t == double.class ? 8
+                            : t == int.class || t == float.class ? 4
+                            : t == short.class || t == char.class ? 2
+                            : t == byte.class || t == boolean.class ? 1
+                            : REFERENCE;
+                }
+            }
+            taille = aligner(octets);
+            taillesSimples.put(c, taille);
+        }
+        return taille;
+    }
+
+    /**
+     * Retourne les champs d'instance lisibles d'une classe de l'application,
+     * champs hérités compris.
+     */
+    private Field[] champs(Class<?> c) {
+        Field[] resultat = champs.get(c);
+        if (resultat == null) {
+            List<Field> liste = new ArrayList<>();
+            for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+                if (k.getModule().isNamed()) break;
+                for (Field f : k.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) continue;
+                    f.setAccessible(true);
+                    liste.add(f);
+                }
+            }
+            resultat = liste.toArray(new Field[0]);
+            champs.put(c, resultat);
+        }
+        return resultat;
+    }
+
+    private static String nomType(Class<?> c) {
+        String nom = c.getName();
+        return nom.substring(nom.lastIndexOf('.') + 1);
+    }
+
+    private static long aligner(long octets) {
+        return (octets + 7) & ~7L;
+    }
+
+    /**
+     * Mesure l'empreinte d'un jeu de données, lu dans un fichier de
+     * sauvegarde ou généré.
+     * <p>
+     * Usage : {@code java diagnostic.EmpreinteMemoire fichier.dat} ou
+     * {@code java diagnostic.EmpreinteMemoire commandes=1000000 [pizzas=200]
+     * [clients=100000] [pas=100]}.
+     * </p>
+     *
+     * @param args fichier de sauvegarde ou paramètres du jeu généré
+     * @throws Exception en cas d'erreur de lecture
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> options = new HashMap<>();
+        options.put("commandes", 100_000);
+        options.put("pizzas", 200);
+        options.put("clients", 10_000);
+        options.put("pas", 1);
+        GestionPizzaiolo gp = null;
+        for (String arg : args) {
+            int egal = arg.indexOf('=');
+            if (egal < 0) {
+                gp = io.FichierPizzaiolo.charger(new java.io.File(arg));
+            } else {
+                options.put(arg.substring(0, egal), Integer.parseInt(arg.substring(egal + 1)));
+            }
+        }
+        if (gp == null) {
+            gp = JeuDonnees.generer(options.get("pizzas"), options.get("clients"), options.get("commandes"));
+        }
+        int pas = options.get("pas");
+        System.out.print(new EmpreinteMemoire(pas).mesurer(gp));
+    }
+}
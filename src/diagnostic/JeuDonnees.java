@@ -0,0 +1,82 @@
+package diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import pizzas.Client;
+import pizzas.Commande;
+import pizzas.CommandeException;
+import pizzas.GestionPizzaiolo;
+import pizzas.InformationPersonnelle;
+import pizzas.MotDePasse;
+import pizzas.Pizza;
+import pizzas.TypePizza;
+
+/**
+ * Génère un jeu de données reproductible par les API publiques du
+ * gestionnaire pizzaïolo, pour les mesures d'empreinte.
+ */
+public final class JeuDonnees {
+
+    private JeuDonnees() {
+    }
+
+    /**
+     * Génère un gestionnaire peuplé de pizzas, de clients et de commandes
+     * traitées.
+     *
+     * @param nombrePizzas nombre de pizzas du catalogue
+     * @param nombreClients nombre de clients
+     * @param nombreCommandes nombre de commandes traitées
+     * @return le gestionnaire peuplé
+     * @throws CommandeException si une commande ne peut être validée
+     */
+    public static GestionPizzaiolo generer(int nombrePizzas, int nombreClients, int nombreCommandes)
+            throws CommandeException {
+        SplittableRandom alea = new SplittableRandom(42);
+        GestionPizzaiolo gp = new GestionPizzaiolo();
+        int nombreIngredients = Math.max(10, nombrePizzas / 5);
+        for (int i = 0; i < nombreIngredients; i++) {
+            gp.creerIngredient("ingredient" + i, 0.5 + alea.nextInt(300) / 100.0);
+        }
+        TypePizza[] types = TypePizza.values();
+        Pizza[] pizzas = new Pizza[nombrePizzas];
+        for (int i = 0; i < nombrePizzas; i++) {
+            pizzas[i] = gp.creerPizza("pizza" + i, types[alea.nextInt(types.length)]);
+            int nombre = 2 + alea.nextInt(6);
+            for (int k = 0; k < nombre; k++) {
+                gp.ajouterIngredientPizza(pizzas[i], "ingredient" + alea.nextInt(nombreIngredients));
+            }
+        }
+
+        List<Client> clients = new ArrayList<>(nombreClients);
+        int iterations = MotDePasse.getIterationsParDefaut();
+        MotDePasse.setIterationsParDefaut(1);
+        try {
+            for (int i = 0; i < nombreClients; i++) {
+                Client c = new Client("client" + i + "@exemple.fr", MotDePasse.hacher("motdepasse" + i),
+                        new InformationPersonnelle("Nom" + i, "Prenom" + i, "Adresse " + i, 18 + i % 60));
+                clients.add(c);
+                gp.enregistrerClient(c);
+            }
+        } finally {
+            MotDePasse.setIterationsParDefaut(iterations);
+        }
+
+        for (int i = 0; i < nombreCommandes && nombreClients > 0; i++) {
+            Commande c = new Commande(clients.get(alea.nextInt(nombreClients)));
+            int nombre = 1 + alea.nextInt(4);
+            for (int k = 0; k < nombre; k++) {
+                c.ajouterPizza(pizzas[alea.nextInt(nombrePizzas)]);
+            }
+            c.valider();
+            gp.enregistrerCommande(c);
+            if (i % 10_000 == 9_999) {
+                gp.commandeNonTraitees();
+            }
+        }
+        gp.commandeNonTraitees();
+        return gp;
+    }
+}
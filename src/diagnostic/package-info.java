@@ -0,0 +1,4 @@
+/**
+ * Outils de diagnostic : mesure de l'empreinte mémoire du modèle du domaine.
+ */
+package diagnostic;
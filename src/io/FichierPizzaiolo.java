@@ -0,0 +1,79 @@
+package io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import pizzas.GestionPizzaiolo;
+import profilage.Chargement;
+import profilage.Sauvegarde;
+
+/**
+ * Sauvegarde et chargement des données du pizzaïolo dans un fichier, par
+ * sérialisation. Chaque opération est signalée par un événement
+ * {@link Sauvegarde} ou {@link Chargement} portant la taille du fichier.
+ */
+public final class FichierPizzaiolo {
+
+    private FichierPizzaiolo() {
+    }
+
+    /**
+     * Sauvegarde les données du pizzaïolo.
+     *
+     * @param gestionPizzaiolo données à sauvegarder
+     * @param fichier fichier de destination
+     * @throws IOException en cas de problème d'écriture
+     */
+    public static void sauvegarder(GestionPizzaiolo gestionPizzaiolo, File fichier) throws IOException {
+        Sauvegarde evenement = new Sauvegarde();
+        evenement.begin();
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fichier)))) {
+            out.writeObject(gestionPizzaiolo);
+        }
+        evenement.end();
+        if (evenement.shouldCommit()) {
+            evenement.fichier = fichier.getPath();
+            evenement.octets = fichier.length();
+            evenement.commit();
+        }
+    }
+
+    /**
+     * Charge les données du pizzaïolo.
+     *
+     * @param fichier fichier à lire
+     * @return les données chargées
+     * @throws IOException en cas de problème de lecture, si le fichier ne
+     *         contient pas de données du pizzaïolo ou s'il a été enregistré
+     *         par une version antérieure incompatible
+     */
+    public static GestionPizzaiolo charger(File fichier) throws IOException {
+        Chargement evenement = new Chargement();
+        evenement.begin();
+        GestionPizzaiolo gestionPizzaiolo;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(fichier)))) {
+            gestionPizzaiolo = (GestionPizzaiolo) in.readObject();
+        } catch (InvalidClassException e) {
+            throw new IOException("Fichier enregistré par une version antérieure de l'application,"
+                    + " non relisible (" + e.classname + ") : " + fichier, e);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Fichier de données invalide : " + fichier, e);
+        }
+        evenement.end();
+        if (evenement.shouldCommit()) {
+            evenement.fichier = fichier.getPath();
+            evenement.octets = fichier.length();
+            evenement.commit();
+        }
+        return gestionPizzaiolo;
+    }
+}
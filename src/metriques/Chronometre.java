@@ -0,0 +1,96 @@
+package metriques;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesure le nombre d'appels d'une opération, leur durée cumulée et la plus
+ * longue d'entre elles. Un enregistrement coûte deux lectures d'horloge et
+ * trois mises à jour réparties, sans verrou ni allocation.
+ * <p>
+ * Usage :
+ * <pre>
+ * long debut = chrono.demarrer();
+ * try {
+ *     ...
+ * } finally {
+ *     chrono.arreter(debut);
+ * }
+ * </pre>
+ * </p>
+ */
+public final class Chronometre {
+
+    private final LongAdder nombre = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maximumNanos = new LongAccumulator(Math::max, 0);
+
+    Chronometre() {
+    }
+
+    /**
+     * Retourne l'instant de début d'une mesure.
+     *
+     * @return l'instant courant, en nanosecondes
+     */
+    public long demarrer() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Termine une mesure commencée par {@link #demarrer()}.
+     *
+     * @param debut instant de début
+     */
+    public void arreter(long debut) {
+        enregistrer(System.nanoTime() - debut);
+    }
+
+    /**
+     * Enregistre une durée.
+     *
+     * @param nanos durée en nanosecondes
+     */
+    public void enregistrer(long nanos) {
+        nombre.increment();
+        totalNanos.add(nanos);
+        maximumNanos.accumulate(nanos);
+    }
+
+    /**
+     * Retourne le nombre de mesures.
+     *
+     * @return le nombre de mesures
+     */
+    public long nombre() {
+        return nombre.sum();
+    }
+
+    /**
+     * Retourne la durée cumulée des mesures.
+     *
+     * @return la durée totale en nanosecondes
+     */
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Retourne la durée moyenne d'une mesure.
+     *
+     * @return la moyenne en nanosecondes, 0 sans mesure
+     */
+    public long moyenneNanos() {
+        long n = nombre();
+        return n == 0 ? 0 : totalNanos() / n;
+    }
+
+    /**
+     * Retourne la plus longue durée mesurée.
+     *
+     * @return le maximum en nanosecondes
+     */
+    public long maximumNanos() {
+        return maximumNanos.get();
+    }
+}
@@ -0,0 +1,41 @@
+package metriques;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteur cumulatif. Les incréments sont répartis sur plusieurs cellules
+ * ({@link LongAdder}) : des fils qui comptent en même temps ne se disputent
+ * pas une même variable.
+ */
+public final class Compteur {
+
+    private final LongAdder valeur = new LongAdder();
+
+    Compteur() {
+    }
+
+    /**
+     * Ajoute 1 au compteur.
+     */
+    public void incrementer() {
+        valeur.increment();
+    }
+
+    /**
+     * Ajoute une quantité au compteur.
+     *
+     * @param n quantité à ajouter
+     */
+    public void ajouter(long n) {
+        valeur.add(n);
+    }
+
+    /**
+     * Retourne la valeur courante.
+     *
+     * @return la somme des incréments
+     */
+    public long valeur() {
+        return valeur.sum();
+    }
+}
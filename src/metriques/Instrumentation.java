@@ -0,0 +1,89 @@
+package metriques;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Enveloppe une implémentation d'interface pour chronométrer chacune de ses
+ * méthodes.
+ * <p>
+ * Exemple : {@code InterClient client = Instrumentation.instrumenter(
+ * InterClient.class, gestionClient, registre, "client");} donne les
+ * chronomètres {@code client.inscription}, {@code client.connexion}, ...
+ * et un compteur {@code client.<methode>.erreurs} par méthode. Les
+ * chronomètres sont résolus une fois pour toutes à la création de
+ * l'enveloppe : un appel ne coûte qu'une recherche dans une table figée et
+ * une mesure.
+ * </p>
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+    }
+
+    /**
+     * Enveloppe une implémentation d'interface.
+     *
+     * @param <T> type de l'interface
+     * @param type interface à instrumenter
+     * @param cible implémentation à laquelle les appels sont délégués
+     * @param registre registre recevant les mesures
+     * @param prefixe préfixe des noms de métriques
+     * @return l'implémentation instrumentée
+     */
+    public static <T> T instrumenter(Class<T> type, T cible, RegistreMetriques registre, String prefixe) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(type.getName() + " n'est pas une interface");
+        }
+        Map<Method, Chronometre> chronometres = new HashMap<>();
+        Map<Method, Compteur> erreurs = new HashMap<>();
+        for (Method m : type.getMethods()) {
+            String nom = prefixe + "." + nomMethode(type, m);
+            chronometres.put(m, registre.chronometre(nom));
+            erreurs.put(m, registre.compteur(nom + ".erreurs"));
+        }
+        InvocationHandler gestionnaire = (proxy, methode, args) -> {
+            Chronometre chrono = chronometres.get(methode);
+            if (chrono == null) {
+                // méthodes d'Object : equals, hashCode, toString
+                return methode.invoke(cible, args);
+            }
+            long debut = chrono.demarrer();
+            try {
+                return methode.invoke(cible, args);
+            } catch (InvocationTargetException e) {
+                erreurs.get(methode).incrementer();
+                throw e.getCause();
+            } finally {
+                chrono.arreter(debut);
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, gestionnaire));
+    }
+
+    /**
+     * Retourne le nom d'une méthode, complété par les types de ses paramètres
+     * si elle est surchargée.
+     */
+    private static String nomMethode(Class<?> type, Method m) {
+        int homonymes = 0;
+        for (Method autre : type.getMethods()) {
+            if (autre.getName().equals(m.getName())) {
+                homonymes++;
+            }
+        }
+        if (homonymes == 1) {
+            return m.getName();
+        }
+        StringBuilder sb = new StringBuilder(m.getName()).append('(');
+        Class<?>[] parametres = m.getParameterTypes();
+        for (int i = 0; i < parametres.length; i++) {
+            sb.append(i > 0 ? "," : "").append(parametres[i].getSimpleName());
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -0,0 +1,16 @@
+package metriques;
+
+/**
+ * Valeur instantanée lue à la demande (taille d'une file, nombre de
+ * commandes en attente, ...).
+ */
+@FunctionalInterface
+public interface Jauge {
+
+    /**
+     * Lit la valeur courante.
+     *
+     * @return la valeur
+     */
+    long valeur();
+}
@@ -0,0 +1,132 @@
+package metriques;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Registre des métriques d'une application, identifiées par un nom pointé
+ * ({@code pizzaiolo.creerPizza}, {@code http.GET /pizzas}, ...).
+ * <p>
+ * Les métriques sont créées au premier accès puis réutilisées : le code
+ * mesuré garde une référence vers son {@link Compteur} ou son
+ * {@link Chronometre} et ne consulte plus le registre. Les valeurs sont
+ * lisibles à tout moment par {@link #valeurs()} ou sous forme de texte par
+ * {@link #rapport()}.
+ * </p>
+ */
+public class RegistreMetriques {
+
+    private final Map<String, Compteur> compteurs = new ConcurrentHashMap<>();
+    private final Map<String, Chronometre> chronometres = new ConcurrentHashMap<>();
+    private final Map<String, Jauge> jauges = new ConcurrentHashMap<>();
+    private ScheduledExecutorService planificateur;
+
+    /**
+     * Retourne le compteur d'un nom, créé au besoin.
+     *
+     * @param nom nom de la métrique
+     * @return le compteur
+     */
+    public Compteur compteur(String nom) {
+        return compteurs.computeIfAbsent(nom, n -> new Compteur());
+    }
+
+    /**
+     * Retourne le chronomètre d'un nom, créé au besoin.
+     *
+     * @param nom nom de la métrique
+     * @return le chronomètre
+     */
+    public Chronometre chronometre(String nom) {
+        return chronometres.computeIfAbsent(nom, n -> new Chronometre());
+    }
+
+    /**
+     * Enregistre une jauge, en remplaçant celle de même nom.
+     *
+     * @param nom nom de la métrique
+     * @param jauge lecture de la valeur
+     */
+    public void jauge(String nom, Jauge jauge) {
+        jauges.put(nom, jauge);
+    }
+
+    /**
+     * Retourne un relevé de toutes les métriques, trié par nom. Un
+     * chronomètre {@code x} donne les valeurs {@code x.nombre},
+     * {@code x.moyenneNs} et {@code x.maxNs}.
+     *
+     * @return les valeurs associées à leur nom
+     */
+    public Map<String, Long> valeurs() {
+        Map<String, Long> valeurs = new TreeMap<>();
+        compteurs.forEach((nom, c) -> valeurs.put(nom, c.valeur()));
+        jauges.forEach((nom, j) -> valeurs.put(nom, j.valeur()));
+        chronometres.forEach((nom, c) -> {
+            valeurs.put(nom + ".nombre", c.nombre());
+            valeurs.put(nom + ".moyenneNs", c.moyenneNanos());
+            valeurs.put(nom + ".maxNs", c.maximumNanos());
+        });
+        return valeurs;
+    }
+
+    /**
+     * Retourne la valeur d'une métrique du relevé.
+     *
+     * @param nom nom de la valeur, tel que dans {@link #valeurs()}
+     * @return la valeur
+     * @throws IllegalArgumentException si la métrique n'existe pas
+     */
+    public long valeur(String nom) {
+        Long valeur = valeurs().get(nom);
+        if (valeur == null) {
+            throw new IllegalArgumentException("Métrique inconnue : " + nom);
+        }
+        return valeur;
+    }
+
+    /**
+     * Met en forme un relevé, une métrique par ligne. Les chronomètres sont
+     * affichés en microsecondes.
+     *
+     * @return le texte du relevé
+     */
+    public String rapport() {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(compteurs).forEach((nom, c) ->
+                sb.append(String.format(Locale.ROOT, "%-50s %12d%n", nom, c.valeur())));
+        new TreeMap<>(jauges).forEach((nom, j) ->
+                sb.append(String.format(Locale.ROOT, "%-50s %12d%n", nom, j.valeur())));
+        new TreeMap<>(chronometres).forEach((nom, c) ->
+                sb.append(String.format(Locale.ROOT, "%-50s %12d appels  moy %10.1f us  max %10.1f us%n",
+                        nom, c.nombre(), c.moyenneNanos() / 1e3, c.maximumNanos() / 1e3)));
+        return sb.toString();
+    }
+
+    /**
+     * Publie périodiquement le relevé texte, depuis un fil démon.
+     *
+     * @param periode période entre deux relevés
+     * @param unite unité de la période
+     * @param sortie destination des relevés
+     * @return la tâche de publication, à annuler pour l'arrêter
+     */
+    public synchronized ScheduledFuture<?> publierPeriodiquement(long periode, TimeUnit unite,
+                                                                 Consumer<String> sortie) {
+        if (planificateur == null) {
+            planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metriques");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return planificateur.scheduleAtFixedRate(() -> sortie.accept(rapport()), periode, periode, unite);
+    }
+}
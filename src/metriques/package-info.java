@@ -0,0 +1,5 @@
+/**
+ * Métriques internes : compteurs, jauges et chronomètres à faible coût,
+ * consultables en cours d'exécution et publiés périodiquement en texte.
+ */
+package metriques;
@@ -0,0 +1,331 @@
+package pizzas;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archive hors tas des commandes traitées anciennes.
+ * <p>
+ * Les commandes sont rangées dans deux zones de mémoire hors tas : une zone
+ * d'enregistrements de taille fixe ({@value #OCTETS_COMMANDE} octets :
+ * identifiant, client, date, prix total, bénéfice, première ligne et nombre
+ * de lignes) et une zone de lignes ({@value #OCTETS_LIGNE} octets : pizza et
+ * quantité). Ces zones sont des tampons directs ou, si un répertoire est
+ * donné, des fichiers projetés en mémoire. Le ramasse-miettes ne parcourt
+ * donc pas l'historique archivé, quelle que soit sa taille.
+ * </p>
+ * <p>
+ * Les fichiers sont un espace de débordement propre à chaque archive, aux
+ * noms uniques et supprimés à la fermeture : la persistance passe par la
+ * sérialisation de {@link CommandesTraitees}. Recharger une sauvegarde ne
+ * peut donc pas écraser les fichiers d'une archive encore ouverte.
+ * </p>
+ * <p>
+ * L'archive ne stocke que des identifiants : les pizzas et les clients sont
+ * résolus par {@link CommandesTraitees}, qui la contient. Elle n'est pas
+ * synchronisée.
+ * </p>
+ */
+final class ArchiveCommandes implements Closeable {
+
+    /**
+     * Taille d'un enregistrement de commande.
+     */
+    static final int OCTETS_COMMANDE = 40;
+
+    /**
+     * Taille d'une ligne.
+     */
+    static final int OCTETS_LIGNE = 8;
+
+    /**
+     * Répertoire des fichiers, ou {@code null} pour la mémoire directe.
+     */
+    private final Path repertoire;
+
+    /**
+     * Enregistrements des commandes.
+     */
+    private final Zone commandes;
+
+    /**
+     * Lignes des commandes.
+     */
+    private final Zone lignes;
+
+    /**
+     * Nombre de commandes archivées.
+     */
+    private int taille;
+
+    /**
+     * Nombre de lignes archivées.
+     */
+    private int nombreLignes;
+
+    /**
+     * Ouvre une archive vide.
+     *
+     * @param repertoire répertoire des fichiers de l'archive, ou {@code null}
+     *        pour une archive en mémoire directe
+     * @throws IOException si les fichiers ne peuvent pas être créés
+     */
+    ArchiveCommandes(Path repertoire) throws IOException {
+        this.repertoire = repertoire;
+        if (repertoire != null) {
+            Files.createDirectories(repertoire);
+        }
+        this.commandes = new Zone(repertoire, "commandes-", 64 * OCTETS_COMMANDE);
+        this.lignes = new Zone(repertoire, "lignes-", 128 * OCTETS_LIGNE);
+    }
+
+    /**
+     * Retourne le répertoire des fichiers.
+     *
+     * @return le répertoire, ou {@code null} pour la mémoire directe
+     */
+    Path getRepertoire() {
+        return repertoire;
+    }
+
+    /**
+     * Retourne le nombre de commandes archivées.
+     *
+     * @return le nombre de commandes
+     */
+    int taille() {
+        return taille;
+    }
+
+    /**
+     * Retourne le nombre d'octets hors tas utilisés.
+     *
+     * @return octets occupés par les enregistrements et les lignes
+     */
+    long octets() {
+        return (long) taille * OCTETS_COMMANDE + (long) nombreLignes * OCTETS_LIGNE;
+    }
+
+    /**
+     * Archive une commande.
+     *
+     * @param id identifiant de la commande
+     * @param client identifiant du client
+     * @param date date de création en millisecondes
+     * @param total prix total
+     * @param benefice bénéfice
+     * @param pizzas identifiants des pizzas des lignes
+     * @param quantites quantités des lignes
+     * @param debut indice de la première ligne dans les tableaux
+     * @param fin indice suivant la dernière ligne
+     */
+    void ajouter(int id, int client, long date, double total, double benefice,
+            int[] pizzas, int[] quantites, int debut, int fin) {
+        ByteBuffer l = lignes.assurer((long) (nombreLignes + fin - debut) * OCTETS_LIGNE);
+        for (int j = debut; j < fin; j++) {
+            int o = (nombreLignes + j - debut) * OCTETS_LIGNE;
+            l.putInt(o, pizzas[j]);
+            l.putInt(o + 4, quantites[j]);
+        }
+        ByteBuffer c = commandes.assurer((long) (taille + 1) * OCTETS_COMMANDE);
+        int o = taille * OCTETS_COMMANDE;
+        c.putInt(o, id);
+        c.putInt(o + 4, client);
+        c.putLong(o + 8, date);
+        c.putDouble(o + 16, total);
+        c.putDouble(o + 24, benefice);
+        c.putInt(o + 32, nombreLignes);
+        c.putInt(o + 36, fin - debut);
+        nombreLignes += fin - debut;
+        taille++;
+    }
+
+    /* =========================
+       LECTURE D'UN ENREGISTREMENT
+       ========================= */
+
+    // Champs d'une commande par indice de commande, et d'une ligne par
+    // indice de ligne.
+
+    int id(int i) {
+        return commandes.tampon.getInt(i * OCTETS_COMMANDE);
+    }
+
+    int client(int i) {
+        return commandes.tampon.getInt(i * OCTETS_COMMANDE + 4);
+    }
+
+    long date(int i) {
+        return commandes.tampon.getLong(i * OCTETS_COMMANDE + 8);
+    }
+
+    double total(int i) {
+        return commandes.tampon.getDouble(i * OCTETS_COMMANDE + 16);
+    }
+
+    double benefice(int i) {
+        return commandes.tampon.getDouble(i * OCTETS_COMMANDE + 24);
+    }
+
+    int premiereLigne(int i) {
+        return commandes.tampon.getInt(i * OCTETS_COMMANDE + 32);
+    }
+
+    int nombreLignes(int i) {
+        return commandes.tampon.getInt(i * OCTETS_COMMANDE + 36);
+    }
+
+    int pizza(int ligne) {
+        return lignes.tampon.getInt(ligne * OCTETS_LIGNE);
+    }
+
+    int quantite(int ligne) {
+        return lignes.tampon.getInt(ligne * OCTETS_LIGNE + 4);
+    }
+
+    /* =========================
+       AGRÉGATIONS
+       ========================= */
+
+    /**
+     * Calcule le bénéfice cumulé des commandes archivées.
+     *
+     * @return bénéfice total
+     */
+    double beneficeTotal() {
+        ByteBuffer c = commandes.tampon;
+        double total = 0;
+        for (int o = 24, fin = taille * OCTETS_COMMANDE; o < fin; o += OCTETS_COMMANDE) {
+            total += c.getDouble(o);
+        }
+        return total;
+    }
+
+    /**
+     * Ajoute le bénéfice des commandes archivées de chaque client.
+     *
+     * @param parClient tableau indexé par identifiant de client
+     */
+    void ajouterBeneficesParClient(double[] parClient) {
+        ByteBuffer c = commandes.tampon;
+        for (int o = 0, fin = taille * OCTETS_COMMANDE; o < fin; o += OCTETS_COMMANDE) {
+            parClient[c.getInt(o + 4)] += c.getDouble(o + 24);
+        }
+    }
+
+    /**
+     * Ajoute le nombre de pizzas des commandes archivées de chaque client.
+     *
+     * @param parClient tableau indexé par identifiant de client
+     */
+    void ajouterPizzasParClient(int[] parClient) {
+        ByteBuffer c = commandes.tampon;
+        ByteBuffer l = lignes.tampon;
+        for (int o = 0, fin = taille * OCTETS_COMMANDE; o < fin; o += OCTETS_COMMANDE) {
+            int nombre = 0;
+            int debut = c.getInt(o + 32);
+            for (int j = debut, f = debut + c.getInt(o + 36); j < f; j++) {
+                nombre += l.getInt(j * OCTETS_LIGNE + 4);
+            }
+            parClient[c.getInt(o + 4)] += nombre;
+        }
+    }
+
+    /**
+     * Ajoute à une table les quantités archivées de chaque pizza.
+     *
+     * @param compteurs table identifiant de pizza → quantité
+     */
+    void compterPizzas(TableEntiers compteurs) {
+        ByteBuffer l = lignes.tampon;
+        for (int o = 0, fin = nombreLignes * OCTETS_LIGNE; o < fin; o += OCTETS_LIGNE) {
+            compteurs.incrementer(l.getInt(o), l.getInt(o + 4));
+        }
+    }
+
+    /**
+     * Ferme les fichiers de l'archive.
+     *
+     * @throws IOException en cas d'erreur de fermeture
+     */
+    @Override
+    public void close() throws IOException {
+        commandes.close();
+        lignes.close();
+    }
+
+    /**
+     * Zone de mémoire hors tas extensible : tampon direct, ou fichier
+     * projeté en mémoire et reprojeté à chaque agrandissement.
+     */
+    private static final class Zone implements Closeable {
+
+        /**
+         * Canal du fichier, ou {@code null} en mémoire directe.
+         */
+        private final FileChannel canal;
+
+        /**
+         * Tampon courant, en ordre d'octets natif.
+         */
+        private volatile ByteBuffer tampon;
+
+        Zone(Path repertoire, String prefixe, int capacite) throws IOException {
+            if (repertoire == null) {
+                canal = null;
+            } else {
+                canal = FileChannel.open(Files.createTempFile(repertoire, prefixe, ".bin"),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            tampon = allouer(capacite);
+        }
+
+        /**
+         * Garantit une capacité, en agrandissant la zone de moitié au moins.
+         *
+         * @param octets capacité nécessaire
+         * @return le tampon courant
+         */
+        ByteBuffer assurer(long octets) {
+            ByteBuffer t = tampon;
+            if (octets <= t.capacity()) {
+                return t;
+            }
+            long capacite = Math.max(octets, t.capacity() + (t.capacity() >> 1));
+            if (capacite > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Archive pleine");
+            }
+            try {
+                ByteBuffer nouveau = allouer((int) capacite);
+                if (canal == null) {
+                    nouveau.put(0, t, 0, t.capacity());
+                }
+                tampon = nouveau;
+                return nouveau;
+            } catch (IOException e) {
+                throw new IllegalStateException("Agrandissement de l'archive impossible", e);
+            }
+        }
+
+        private ByteBuffer allouer(int capacite) throws IOException {
+            ByteBuffer t = canal == null
+                    ? ByteBuffer.allocateDirect(capacite)
+                    : canal.map(FileChannel.MapMode.READ_WRITE, 0, capacite);
+            return t.order(ByteOrder.nativeOrder());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (canal != null) {
+                canal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package pizzas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fil écrivain unique consommant une file de modifications.
+ * <p>
+ * Les modifications soumises sont appliquées une à une, dans l'ordre de
+ * soumission, par un seul fil. Le fil retire de la file autant de
+ * modifications que possible (au plus {@value #TAILLE_LOT}) et les applique
+ * en un lot : la section critique n'est prise qu'une fois par lot, puis une
+ * action de fin de lot est exécutée (publication d'un instantané). Les
+ * résultats ne sont rendus qu'après cette action, si bien qu'un appelant voit
+ * sa modification dans l'instantané publié.
+ * </p>
+ * <p>
+ * Un lot en échec (section critique ou action de fin de lot) n'arrête pas le
+ * fil : les modifications non appliquées du lot échouent avec la même
+ * erreur et la boucle continue. Si le fil s'arrête malgré tout, les
+ * modifications restées en file échouent au lieu d'attendre indéfiniment.
+ * </p>
+ */
+final class BoucleEcriture {
+
+    /**
+     * Nombre maximum de modifications appliquées par lot.
+     */
+    static final int TAILLE_LOT = 256;
+
+    /**
+     * Modification en attente et son résultat.
+     */
+    private static final class Ordre<T> {
+        private final Supplier<T> modification;
+        private final CompletableFuture<T> resultat = new CompletableFuture<>();
+        private T valeur;
+        private Throwable erreur;
+        private boolean executee;
+
+        Ordre(Supplier<T> modification) {
+            this.modification = modification;
+        }
+
+        void executer() {
+            executee = true;
+            try {
+                valeur = modification.get();
+            } catch (Throwable t) {
+                erreur = t;
+            }
+        }
+
+        void echouerSiNonExecutee(Throwable t) {
+            if (!executee) {
+                erreur = t;
+            }
+        }
+
+        void terminer() {
+            if (erreur != null) {
+                resultat.completeExceptionally(erreur);
+            } else {
+                resultat.complete(valeur);
+            }
+        }
+    }
+
+    private final BlockingQueue<Ordre<?>> file = new LinkedBlockingQueue<>();
+    private final Consumer<Runnable> sectionCritique;
+    private final Runnable finDeLot;
+    private final Thread fil;
+    private volatile boolean actif = true;
+
+    /**
+     * Ouvert quand le fil s'est arrêté, toutes les modifications acceptées
+     * ayant été appliquées ou mises en échec.
+     */
+    private final CountDownLatch arretee = new CountDownLatch(1);
+
+    /**
+     * Crée et démarre le fil écrivain.
+     *
+     * @param nom nom du fil
+     * @param sectionCritique exécute un lot sous la protection voulue
+     * @param finDeLot action exécutée après chaque lot
+     */
+    BoucleEcriture(String nom, Consumer<Runnable> sectionCritique, Runnable finDeLot) {
+        this.sectionCritique = sectionCritique;
+        this.finDeLot = finDeLot;
+        this.fil = new Thread(this::boucler, nom);
+        fil.setDaemon(true);
+        fil.start();
+    }
+
+    /**
+     * Soumet une modification au fil écrivain.
+     *
+     * @param <T> type du résultat
+     * @param modification modification à appliquer
+     * @return le résultat, disponible une fois la modification appliquée
+     * @throws IllegalStateException si la boucle est arrêtée
+     */
+    synchronized <T> CompletableFuture<T> soumettre(Supplier<T> modification) {
+        if (!actif) {
+            throw new IllegalStateException("Boucle d'écriture arrêtée");
+        }
+        Ordre<T> ordre = new Ordre<>(modification);
+        file.add(ordre);
+        return ordre.resultat;
+    }
+
+    /**
+     * Retourne le nombre de modifications en attente d'application.
+     *
+     * @return la longueur de la file
+     */
+    int enAttente() {
+        return file.size();
+    }
+
+    /**
+     * Indique si le fil courant est le fil écrivain.
+     *
+     * @return {@code true} sur le fil écrivain
+     */
+    boolean estFilEcrivain() {
+        return Thread.currentThread() == fil;
+    }
+
+    /**
+     * Attend l'arrêt du fil écrivain, sans être interruptible. Au retour,
+     * toute modification acceptée par {@link #soumettre(Supplier)} a été
+     * appliquée (ou mise en échec) et aucune autre ne le sera plus.
+     */
+    void attendreArret() {
+        boolean interrompu = false;
+        while (true) {
+            try {
+                arretee.await();
+                break;
+            } catch (InterruptedException e) {
+                interrompu = true;
+            }
+        }
+        if (interrompu) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Arrête la boucle après avoir appliqué les modifications déjà soumises.
+     *
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    void arreter() throws InterruptedException {
+        synchronized (this) {
+            if (!actif) {
+                return;
+            }
+            actif = false;
+            // réveille le fil s'il attend une modification
+            file.add(new Ordre<>(() -> null));
+        }
+        fil.join();
+    }
+
+    /**
+     * Corps du fil écrivain.
+     */
+    private void boucler() {
+        List<Ordre<?>> lot = new ArrayList<>(TAILLE_LOT);
+        try {
+            while (actif || !file.isEmpty()) {
+                try {
+                    lot.add(file.take());
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                file.drainTo(lot, TAILLE_LOT - 1);
+                appliquer(lot);
+                lot.clear();
+            }
+        } finally {
+            synchronized (this) {
+                actif = false;
+            }
+            // arrêt anormal : aucune modification ne doit rester sans réponse
+            IllegalStateException arret = new IllegalStateException("Boucle d'écriture arrêtée");
+            file.drainTo(lot);
+            for (Ordre<?> ordre : lot) {
+                ordre.resultat.completeExceptionally(arret);
+            }
+            arretee.countDown();
+        }
+    }
+
+    /**
+     * Applique un lot puis rend ses résultats, même si la section critique
+     * ou l'action de fin de lot échoue.
+     *
+     * @param lot modifications à appliquer
+     */
+    private void appliquer(List<Ordre<?>> lot) {
+        try {
+            sectionCritique.accept(() -> {
+                for (Ordre<?> ordre : lot) {
+                    ordre.executer();
+                }
+            });
+        } catch (RuntimeException e) {
+            for (Ordre<?> ordre : lot) {
+                ordre.echouerSiNonExecutee(e);
+            }
+        }
+        try {
+            finDeLot.run();
+        } catch (RuntimeException e) {
+            // l'instantané précédent reste publié ; les modifications sont appliquées
+        }
+        for (Ordre<?> ordre : lot) {
+            ordre.terminer();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package pizzas;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bus d'événements du domaine sur un tampon circulaire préalloué.
+ * <p>
+ * Les cases du tampon sont des tableaux parallèles alloués une fois pour
+ * toutes : publier un événement ne fait que réserver un numéro de séquence
+ * et recopier quelques valeurs, sans allocation ni verrou. Chaque lecteur
+ * ({@link Curseur}) suit sa propre séquence, indépendamment des autres.
+ * </p>
+ * <p>
+ * Les producteurs n'attendent jamais les lecteurs : un lecteur distancé de
+ * plus d'un tour de tampon perd les événements écrasés, qu'il compte (voir
+ * {@link Curseur#getPerdus()}) avant de reprendre au plus ancien événement
+ * encore disponible. Un lecteur lent (écriture disque par exemple) ne
+ * ralentit donc pas la prise de commandes.
+ * </p>
+ * <p>
+ * Chaque case porte un numéro de version : le producteur y range un marqueur
+ * d'écriture en cours, puis la séquence publiée ; le lecteur recopie la case
+ * puis vérifie que la version n'a pas changé entre-temps.
+ * </p>
+ */
+public class BusEvenements {
+
+    /**
+     * Capacité par défaut du tampon.
+     */
+    public static final int CAPACITE_DEFAUT = 1 << 14;
+
+    private static final TypeEvenement[] TYPES = TypeEvenement.values();
+
+    /**
+     * Base du marqueur d'écriture en cours : la version d'une case en cours
+     * d'écriture pour la séquence s vaut {@code EN_ECRITURE + s}.
+     */
+    private static final long EN_ECRITURE = Long.MIN_VALUE;
+
+    private final int masque;
+    private final AtomicLongArray versions;
+    private final int[] types;
+    private final Object[] sujets;
+    private final long[] entiers;
+    private final double[] valeurs;
+    private final long[] horodatages;
+
+    /**
+     * Prochaine séquence à attribuer.
+     */
+    private final AtomicLong prochaine = new AtomicLong();
+
+    /**
+     * Construit un bus de capacité {@link #CAPACITE_DEFAUT}.
+     */
+    public BusEvenements() {
+        this(CAPACITE_DEFAUT);
+    }
+
+    /**
+     * Construit un bus.
+     *
+     * @param capacite nombre de cases, arrondi à la puissance de 2 supérieure
+     */
+    public BusEvenements(int capacite) {
+        int n = Integer.highestOneBit(Math.max(2, capacite - 1)) << 1;
+        masque = n - 1;
+        versions = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) {
+            // comme si la séquence i - n avait été publiée
+            versions.set(i, i - (long) n);
+        }
+        types = new int[n];
+        sujets = new Object[n];
+        entiers = new long[n];
+        valeurs = new double[n];
+        horodatages = new long[n];
+    }
+
+    /**
+     * Publie un événement.
+     *
+     * @param type type de l'événement
+     * @param sujet objet concerné
+     * @param entier valeur entière associée
+     * @param valeur valeur réelle associée
+     * @return la séquence attribuée à l'événement
+     */
+    public long publier(TypeEvenement type, Object sujet, long entier, double valeur) {
+        long sequence = prochaine.getAndIncrement();
+        int i = (int) sequence & masque;
+        versions.set(i, EN_ECRITURE + sequence);
+        // une écriture volatile n'empêche pas les écritures suivantes de
+        // passer devant : sans barrière, un lecteur pourrait voir les
+        // nouvelles valeurs avec l'ancienne version et les accepter
+        VarHandle.storeStoreFence();
+        types[i] = type.ordinal();
+        sujets[i] = sujet;
+        entiers[i] = entier;
+        valeurs[i] = valeur;
+        horodatages[i] = System.currentTimeMillis();
+        versions.lazySet(i, sequence);
+        return sequence;
+    }
+
+    /**
+     * Retourne le nombre total d'événements publiés.
+     *
+     * @return la prochaine séquence à attribuer
+     */
+    public long getSequence() {
+        return prochaine.get();
+    }
+
+    /**
+     * Retourne la capacité du tampon.
+     *
+     * @return le nombre de cases
+     */
+    public int getCapacite() {
+        return masque + 1;
+    }
+
+    /**
+     * Crée un lecteur positionné après le dernier événement publié.
+     *
+     * @return un nouveau curseur
+     */
+    public Curseur curseur() {
+        return new Curseur(prochaine.get());
+    }
+
+    /**
+     * Abonne un consommateur, servi sur son propre fil.
+     *
+     * @param nom nom du fil
+     * @param consommateur consommateur des événements
+     * @return l'abonnement, à fermer pour arrêter le fil
+     */
+    public Abonnement abonner(String nom, Consommateur consommateur) {
+        return new Abonnement(nom, curseur(), consommateur);
+    }
+
+    /**
+     * Traitement d'un événement par un lecteur.
+     */
+    @FunctionalInterface
+    public interface Consommateur {
+
+        /**
+         * Traite un événement. L'objet transmis est réutilisé ensuite.
+         *
+         * @param evenement événement lu
+         */
+        void traiter(Evenement evenement);
+    }
+
+    /**
+     * Lecteur du bus, avec sa propre séquence. Un curseur ne doit être
+     * utilisé que par un fil à la fois.
+     */
+    public final class Curseur {
+
+        private long suivante;
+        private long perdus;
+        private final Evenement courant = new Evenement();
+
+        private Curseur(long depart) {
+            this.suivante = depart;
+        }
+
+        /**
+         * Transmet au consommateur les événements disponibles.
+         *
+         * @param consommateur consommateur des événements
+         * @param maximum nombre maximum d'événements lus
+         * @return le nombre d'événements transmis
+         */
+        public int lire(Consommateur consommateur, int maximum) {
+            int lus = 0;
+            while (lus < maximum) {
+                int i = (int) suivante & masque;
+                long version = versions.get(i);
+                if (version == suivante) {
+                    courant.remplir(suivante, TYPES[types[i]], sujets[i],
+                            entiers[i], valeurs[i], horodatages[i]);
+                    VarHandle.acquireFence();
+                    if (versions.get(i) == suivante) {
+                        suivante++;
+                        lus++;
+                        consommateur.traiter(courant);
+                        continue;
+                    }
+                } else if (version < -(long) (masque + 1)) {
+                    if (version - EN_ECRITURE <= suivante) {
+                        // en cours d'écriture par le producteur
+                        return lus;
+                    }
+                    rattraper();
+                } else if (version < suivante) {
+                    // pas encore publié
+                    return lus;
+                } else {
+                    rattraper();
+                }
+            }
+            return lus;
+        }
+
+        /**
+         * Saute les événements écrasés après avoir été distancé.
+         */
+        private void rattraper() {
+            long plusAncienne = prochaine.get() - (masque + 1);
+            if (plusAncienne > suivante) {
+                perdus += plusAncienne - suivante;
+                suivante = plusAncienne;
+            } else {
+                perdus++;
+                suivante++;
+            }
+        }
+
+        /**
+         * Retourne la séquence du prochain événement à lire.
+         *
+         * @return la séquence
+         */
+        public long getSequence() {
+            return suivante;
+        }
+
+        /**
+         * Retourne le nombre d'événements perdus faute d'avoir été lus à
+         * temps.
+         *
+         * @return le nombre d'événements perdus
+         */
+        public long getPerdus() {
+            return perdus;
+        }
+    }
+
+    /**
+     * Consommateur servi par un fil dédié, qui interroge le bus et s'endort
+     * brièvement lorsqu'il n'y a rien à lire.
+     */
+    public final class Abonnement {
+
+        /**
+         * Attente maximale entre deux interrogations (1 ms).
+         */
+        private static final long ATTENTE_MAX = 1_000_000L;
+
+        private final Curseur curseur;
+        private final Thread fil;
+        private volatile boolean actif = true;
+
+        private Abonnement(String nom, Curseur curseur, Consommateur consommateur) {
+            this.curseur = curseur;
+            this.fil = new Thread(() -> {
+                long attente = 1_000L;
+                while (actif) {
+                    if (curseur.lire(consommateur, 1024) > 0) {
+                        attente = 1_000L;
+                    } else {
+                        LockSupport.parkNanos(attente);
+                        attente = Math.min(attente * 2, ATTENTE_MAX);
+                    }
+                }
+            }, nom);
+            fil.setDaemon(true);
+            fil.start();
+        }
+
+        /**
+         * Retourne la séquence du prochain événement à lire.
+         *
+         * @return la séquence
+         */
+        public long getSequence() {
+            return curseur.getSequence();
+        }
+
+        /**
+         * Retourne le nombre d'événements perdus.
+         *
+         * @return le nombre d'événements perdus
+         */
+        public long getPerdus() {
+            return curseur.getPerdus();
+        }
+
+        /**
+         * Arrête le fil du consommateur.
+         *
+         * @throws InterruptedException si l'attente est interrompue
+         */
+        public void fermer() throws InterruptedException {
+            actif = false;
+            LockSupport.unpark(fil);
+            fil.join();
+        }
+    }
+}
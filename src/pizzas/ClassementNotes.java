@@ -0,0 +1,146 @@
+package pizzas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Classement des pizzas par note, maintenu au fil des évaluations.
+ * <p>
+ * Le classement n'utilise pas la moyenne brute, qui placerait une pizza
+ * notée une seule fois 5/5 devant une pizza notée 500 fois 4,8/5. Il utilise
+ * une moyenne bayésienne : chaque pizza part de {@link #POIDS_A_PRIORI}
+ * évaluations fictives à {@link #NOTE_A_PRIORI}, puis
+ * <pre>score = (POIDS_A_PRIORI × NOTE_A_PRIORI + somme des notes)
+ *         / (POIDS_A_PRIORI + nombre d'évaluations)</pre>
+ * L'a priori étant fixe, une évaluation ne modifie que le score de sa pizza
+ * et le classement est mis à jour en O(log n).
+ * </p>
+ */
+public class ClassementNotes {
+
+    /**
+     * Note attribuée aux évaluations fictives.
+     */
+    public static final double NOTE_A_PRIORI = 3.0;
+
+    /**
+     * Nombre d'évaluations fictives.
+     */
+    public static final double POIDS_A_PRIORI = 10.0;
+
+    /**
+     * Position d'une pizza dans le classement.
+     */
+    private static final class Entree {
+        private final Pizza pizza;
+        private final double score;
+        private final int nombre;
+
+        Entree(Pizza pizza, int nombre, long somme) {
+            this.pizza = pizza;
+            this.nombre = nombre;
+            this.score = score(nombre, somme);
+        }
+    }
+
+    private static final Comparator<Entree> ORDRE =
+            Comparator.comparingDouble((Entree e) -> -e.score)
+                    .thenComparingInt(e -> e.pizza.getId());
+
+    private final TreeSet<Entree> classement = new TreeSet<>(ORDRE);
+    private final Map<Pizza, Entree> entrees = new HashMap<>();
+
+    /**
+     * Liste triée publiée, recalculée à la première lecture après un
+     * changement.
+     */
+    private List<Pizza> listeTriee;
+
+    /**
+     * Calcule le score bayésien.
+     *
+     * @param nombre nombre d'évaluations
+     * @param somme somme des notes
+     * @return le score entre 0 et 5
+     */
+    public static double score(int nombre, long somme) {
+        return (POIDS_A_PRIORI * NOTE_A_PRIORI + somme) / (POIDS_A_PRIORI + nombre);
+    }
+
+    /**
+     * Ajoute une pizza au classement avec ses agrégats courants.
+     *
+     * @param pizza pizza à classer
+     */
+    public void ajouter(Pizza pizza) {
+        mettreAJour(pizza, pizza.getNombreEvaluations(), pizza.getSommeNotes());
+    }
+
+    /**
+     * Met à jour la position d'une pizza. Une mise à jour portant sur moins
+     * d'évaluations que la position connue est ignorée, les évaluations ne
+     * pouvant qu'augmenter.
+     *
+     * @param pizza pizza concernée
+     * @param nombre nombre d'évaluations de la pizza
+     * @param somme somme des notes de la pizza
+     */
+    public synchronized void mettreAJour(Pizza pizza, int nombre, long somme) {
+        Entree ancienne = entrees.get(pizza);
+        if (ancienne != null) {
+            if (ancienne.nombre > nombre) {
+                return;
+            }
+            classement.remove(ancienne);
+        }
+        Entree entree = new Entree(pizza, nombre, somme);
+        entrees.put(pizza, entree);
+        classement.add(entree);
+        listeTriee = null;
+    }
+
+    /**
+     * Retire une pizza du classement.
+     *
+     * @param pizza pizza à retirer
+     */
+    public synchronized void retirer(Pizza pizza) {
+        Entree entree = entrees.remove(pizza);
+        if (entree != null) {
+            classement.remove(entree);
+            listeTriee = null;
+        }
+    }
+
+    /**
+     * Retourne le score d'une pizza.
+     *
+     * @param pizza pizza concernée
+     * @return le score, ou -1 si la pizza n'est pas classée
+     */
+    public synchronized double getScore(Pizza pizza) {
+        Entree entree = entrees.get(pizza);
+        return entree == null ? -1 : entree.score;
+    }
+
+    /**
+     * Retourne les pizzas de la mieux notée à la moins bien notée.
+     *
+     * @return liste non modifiable des pizzas
+     */
+    public synchronized List<Pizza> getClassement() {
+        if (listeTriee == null) {
+            List<Pizza> liste = new ArrayList<>(classement.size());
+            for (Entree e : classement) {
+                liste.add(e.pizza);
+            }
+            listeTriee = Collections.unmodifiableList(liste);
+        }
+        return listeTriee;
+    }
+}
@@ -1,29 +1,77 @@
 package pizzas;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Représente un client de l'application.
  */
 public class Client  implements Serializable {
 
+    /**
+     * Version de la forme sérialisée. Les sauvegardes antérieures, où le mot
+     * de passe était conservé en clair, sont refusées à la lecture
+     * ({@link java.io.InvalidClassException}) : leur mot de passe ne doit pas
+     * être relu.
+     */
+    private static final long serialVersionUID = 2L;
+
+    /**
+     * Compteur utilisé pour générer des identifiants denses.
+     */
+    private static final AtomicInteger COMPTEUR = new AtomicInteger();
+
+    private final int id;
     private final String email;
-    private String mdp;
+    private MotDePasse mdp;
     private InformationPersonnelle infos;
-    private final List<Commande> commandes = new ArrayList<>();
 
-    public Client(String email, String mdp, InformationPersonnelle infos) {
+    /**
+     * Commandes du client, dans l'ordre de création. La liste est lue par
+     * d'autres fils (pizzaïolo, serveur) pendant que le client en ajoute.
+     */
+    private final CopyOnWriteArrayList<Commande> commandes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Pizzas figurant dans au moins une commande traitée du client.
+     */
+    private final ConcurrentHashMap.KeySetView<Pizza, Boolean> pizzasAchetees = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Construit un client à partir de l'empreinte de son mot de passe. Le
+     * calcul de l'empreinte ({@link MotDePasse#hacher(String)}) est coûteux
+     * et reste à la charge de l'appelant : {@link GestionClient} le confie
+     * aux fils de {@link VerificationIdentifiants}.
+     *
+     * @param email email du client
+     * @param mdp empreinte du mot de passe
+     * @param infos informations personnelles
+     */
+    public Client(String email, MotDePasse mdp, InformationPersonnelle infos) {
         if (email == null || email.isBlank() || mdp == null) {
             throw new IllegalArgumentException("Email ou mot de passe invalide");
         }
+        this.id = COMPTEUR.getAndIncrement();
         this.email = email;
         this.mdp = mdp;
         this.infos = infos;
     }
 
+    /**
+     * Retourne l'identifiant numérique du client.
+     *
+     * @return l'identifiant
+     */
+    public int getId() {
+        return id;
+    }
+
     public Commande creerCommande() {
         Commande c = new Commande(this);
         commandes.add(c);
@@ -48,12 +96,7 @@ public class Client  implements Serializable {
     }
 
     public void evaluerPizza(Pizza p, int note, String commentaire) {
-        boolean aCommande = commandes.stream()
-            .filter(c -> c.getEtat() == EtatCommande.TRAITEE)
-            .flatMap(c -> c.getPizzas().stream())
-            .anyMatch(pizza -> pizza.equals(p));
-
-        if (!aCommande) {
+        if (!aAchete(p)) {
             throw new IllegalStateException("Pizza non commandée");
         }
 
@@ -61,6 +104,27 @@ public class Client  implements Serializable {
         p.ajouterEvaluation(e);
     }
 
+    /**
+     * Indique si le client a déjà reçu une pizza (commande traitée).
+     *
+     * @param p pizza concernée
+     * @return {@code true} si la pizza fait partie d'une commande traitée
+     */
+    public boolean aAchete(Pizza p) {
+        return p != null && pizzasAchetees.contains(p);
+    }
+
+    /**
+     * Enregistre les pizzas d'une commande qui vient d'être traitée.
+     *
+     * @param c commande traitée
+     */
+    void enregistrerAchats(Commande c) {
+        for (LigneCommande ligne : c.getLignes()) {
+            pizzasAchetees.add(ligne.getPizza());
+        }
+    }
+
     public String getEmail() {
         return email;
     }
@@ -68,14 +132,41 @@ public class Client  implements Serializable {
     public InformationPersonnelle getInfos() {
         return infos;
     }
-    public String getMdp() {
-        return mdp;
+
+    /**
+     * Vérifie le mot de passe du client. Ce calcul est coûteux et ne doit pas
+     * être fait sur le fil de l'interface graphique.
+     *
+     * @param mdp mot de passe proposé
+     * @return {@code true} si le mot de passe est correct
+     */
+    public boolean verifierMotDePasse(String mdp) {
+        return this.mdp.verifier(mdp);
     }
 
+    /**
+     * Retourne toutes les commandes du client, traitées comprises.
+     *
+     * @return liste non modifiable des commandes
+     */
     public List<Commande> getCommandes() {
         return Collections.unmodifiableList(commandes);
     }
 
+    /**
+     * Réserve l'identifiant relu, pour que les nouveaux clients ne le
+     * réutilisent pas.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        COMPTEUR.accumulateAndGet(id + 1, Math::max);
+    }
+
     @Override
     public String toString() {
         return "Client[email=" + email + ", infos=" + infos + "]";
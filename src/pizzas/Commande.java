@@ -1,10 +1,18 @@
 package pizzas;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import profilage.CommandeCreee;
+import profilage.CommandeTraitee;
+import profilage.CommandeValidee;
+import profilage.EvenementCommande;
 
 /**
  * Représente une commande de pizzas effectuée par un client.
@@ -13,7 +21,7 @@ import java.util.List;
  * <ul>
  *   <li>un identifiant unique</li>
  *   <li>un client associé</li>
- *   <li>une liste de pizzas</li>
+ *   <li>des lignes (pizza, quantité), une seule par pizza</li>
  *   <li>une date de création</li>
  *   <li>un état (créée, validée, traitée)</li>
  * </ul>
@@ -22,10 +30,13 @@ import java.util.List;
  */
 public class Commande implements Serializable {
 
+    private static final long serialVersionUID = 1L;
+
     /**
-     * Compteur statique utilisé pour générer des identifiants uniques.
+     * Compteur statique utilisé pour générer des identifiants uniques,
+     * partagé par les fils des clients et du serveur.
      */
-    private static int compteur = 1;
+    private static final AtomicInteger compteur = new AtomicInteger(1);
 
     /**
      * Identifiant unique de la commande.
@@ -38,9 +49,14 @@ public class Commande implements Serializable {
     private final Client client;
 
     /**
-     * Liste des pizzas de la commande.
+     * Lignes de la commande, une par pizza distincte.
+     */
+    private final ArrayList<LigneCommande> lignes = new ArrayList<>(2);
+
+    /**
+     * Nombre total de pizzas, toutes lignes confondues.
      */
-    private final List<Pizza> pizzas = new ArrayList<>();
+    private int nombrePizzas;
 
     /**
      * Date et heure de création de la commande.
@@ -52,6 +68,22 @@ public class Commande implements Serializable {
      */
     private EtatCommande etat;
 
+    /**
+     * Prix total figé au traitement.
+     */
+    private double prixTraite;
+
+    /**
+     * Bénéfice figé au traitement.
+     */
+    private double beneficeTraite;
+
+    /**
+     * Ingrédients réservés à la validation, consommés au traitement, ou
+     * {@code null} si aucun ingrédient suivi n'a été réservé.
+     */
+    private StockIngredients.Reservation reservation;
+
     /**
      * Retourne la date de création de la commande.
      *
@@ -71,10 +103,50 @@ public class Commande implements Serializable {
         if (client == null) {
             throw new IllegalArgumentException("Client nul");
         }
-        this.id = compteur++;
+        this.id = compteur.getAndIncrement();
         this.client = client;
         this.dateCreation = LocalDateTime.now();
         this.etat = EtatCommande.CREE;
+
+        CommandeCreee evenement = new CommandeCreee();
+        if (evenement.shouldCommit()) {
+            decrire(evenement, 0).commit();
+        }
+    }
+
+    /**
+     * Reconstitue une commande traitée à partir de l'historique, sans
+     * consommer d'identifiant ni émettre d'événement.
+     *
+     * @param id identifiant d'origine
+     * @param client client ayant passé la commande
+     * @param dateCreation date de création
+     * @param lignes lignes de la commande
+     * @param prixTotal prix total figé au traitement
+     * @param benefice bénéfice figé au traitement
+     */
+    Commande(int id, Client client, LocalDateTime dateCreation, List<LigneCommande> lignes,
+            double prixTotal, double benefice) {
+        this.id = id;
+        this.client = client;
+        this.dateCreation = dateCreation;
+        this.etat = EtatCommande.TRAITEE;
+        this.lignes.addAll(lignes);
+        for (int i = 0; i < lignes.size(); i++) {
+            nombrePizzas += lignes.get(i).getQuantite();
+        }
+        this.prixTraite = prixTotal;
+        this.beneficeTraite = benefice;
+    }
+
+    /**
+     * Réserve un identifiant relu, pour que les nouvelles commandes ne le
+     * réutilisent pas.
+     *
+     * @param id identifiant déjà attribué
+     */
+    static void reserver(int id) {
+        compteur.accumulateAndGet(id + 1, Math::max);
     }
 
     /**
@@ -105,12 +177,79 @@ public class Commande implements Serializable {
     }
 
     /**
-     * Retourne une vue non modifiable de la liste des pizzas.
+     * Retourne une vue non modifiable des lignes de la commande.
+     *
+     * @return les lignes
+     */
+    public List<LigneCommande> getLignes() {
+        return Collections.unmodifiableList(lignes);
+    }
+
+    /**
+     * Retourne le nombre total de pizzas de la commande.
+     *
+     * @return la somme des quantités des lignes
+     */
+    public int getNombrePizzas() {
+        return nombrePizzas;
+    }
+
+    /**
+     * Retourne la quantité commandée d'une pizza.
+     *
+     * @param p pizza recherchée
+     * @return la quantité, 0 si la pizza n'est pas commandée
+     */
+    public int getQuantite(Pizza p) {
+        LigneCommande ligne = ligne(p);
+        return ligne == null ? 0 : ligne.getQuantite();
+    }
+
+    /**
+     * Retourne une vue non modifiable des pizzas, chaque pizza y figurant
+     * autant de fois que sa quantité. Préférer {@link #getLignes()}, qui ne
+     * répète pas les pizzas commandées en nombre.
      *
      * @return la liste des pizzas
      */
     public List<Pizza> getPizzas() {
-        return Collections.unmodifiableList(pizzas);
+        return new AbstractList<Pizza>() {
+            @Override
+            public Pizza get(int index) {
+                if (index >= 0) {
+                    for (int i = 0; i < lignes.size(); i++) {
+                        LigneCommande ligne = lignes.get(i);
+                        if (index < ligne.getQuantite()) {
+                            return ligne.getPizza();
+                        }
+                        index -= ligne.getQuantite();
+                    }
+                }
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            @Override
+            public int size() {
+                return nombrePizzas;
+            }
+        };
+    }
+
+    /**
+     * Retourne la ligne d'une pizza. Les commandes comptent peu de lignes :
+     * un parcours est plus rapide et moins coûteux en mémoire qu'un index.
+     *
+     * @param p pizza recherchée
+     * @return la ligne, ou {@code null}
+     */
+    private LigneCommande ligne(Pizza p) {
+        for (int i = 0; i < lignes.size(); i++) {
+            LigneCommande ligne = lignes.get(i);
+            if (ligne.getPizza() == p) {
+                return ligne;
+            }
+        }
+        return null;
     }
 
     /**
@@ -130,17 +269,40 @@ public class Commande implements Serializable {
      * @throws IllegalArgumentException si la pizza est nulle
      */
     public void ajouterPizza(Pizza p) throws CommandeException {
+        ajouterPizza(p, 1);
+    }
+
+    /**
+     * Ajoute plusieurs exemplaires d'une pizza à la commande. Si la pizza est
+     * déjà commandée, la quantité de sa ligne est augmentée.
+     *
+     * @param p la pizza à ajouter
+     * @param quantite nombre d'exemplaires
+     * @throws CommandeException si la commande n'est pas modifiable
+     * @throws IllegalArgumentException si la pizza est nulle ou la quantité
+     *         n'est pas strictement positive
+     */
+    public void ajouterPizza(Pizza p, int quantite) throws CommandeException {
         if (!estModifiable()) {
             throw new CommandeException("Commande non modifiable");
         }
         if (p == null) {
             throw new IllegalArgumentException("Pizza nulle");
         }
-        pizzas.add(p);
+        if (quantite <= 0) {
+            throw new IllegalArgumentException("Quantité invalide");
+        }
+        LigneCommande ligne = ligne(p);
+        if (ligne == null) {
+            lignes.add(new LigneCommande(p, quantite));
+        } else {
+            ligne.setQuantite(Math.addExact(ligne.getQuantite(), quantite));
+        }
+        nombrePizzas = Math.addExact(nombrePizzas, quantite);
     }
 
     /**
-     * Retire une pizza de la commande.
+     * Retire un exemplaire d'une pizza de la commande.
      *
      * @param p la pizza à retirer
      * @throws CommandeException si la commande n'est pas modifiable
@@ -149,27 +311,48 @@ public class Commande implements Serializable {
         if (!estModifiable()) {
             throw new CommandeException("Commande non modifiable");
         }
-        pizzas.remove(p);
+        LigneCommande ligne = ligne(p);
+        if (ligne == null) {
+            return;
+        }
+        if (ligne.getQuantite() == 1) {
+            lignes.remove(ligne);
+        } else {
+            ligne.setQuantite(ligne.getQuantite() - 1);
+        }
+        nombrePizzas--;
     }
 
     /**
-     * Valide la commande.
+     * Valide la commande et réserve ses ingrédients dans le stock du
+     * gestionnaire de ses pizzas.
      *
-     * @throws CommandeException si la commande est déjà validée
-     *                          ou si elle ne contient aucune pizza
+     * @throws CommandeException si la commande est déjà validée, si elle ne
+     *                          contient aucune pizza ou si un ingrédient
+     *                          manque
      */
     public void valider() throws CommandeException {
         if (!estModifiable()) {
             throw new CommandeException("Commande déjà validée");
         }
-        if (pizzas.isEmpty()) {
+        if (lignes.isEmpty()) {
             throw new CommandeException("Commande vide");
         }
+        StockIngredients s = lignes.get(0).getPizza().getStock();
+        if (s != null) {
+            reservation = s.reserver(lignes);
+        }
         etat = EtatCommande.VALIDEE;
+
+        CommandeValidee evenement = new CommandeValidee();
+        if (evenement.shouldCommit()) {
+            decrire(evenement, getPrixTotal()).commit();
+        }
     }
 
     /**
-     * Marque la commande comme traitée.
+     * Marque la commande comme traitée et consomme exactement les
+     * ingrédients réservés à la validation.
      *
      * @throws CommandeException si la commande n'a pas été validée
      */
@@ -177,28 +360,70 @@ public class Commande implements Serializable {
         if (etat != EtatCommande.VALIDEE) {
             throw new CommandeException("Commande non validée");
         }
+        CommandeTraitee evenement = new CommandeTraitee();
+        evenement.begin();
+        if (reservation != null) {
+            reservation.consommer();
+            reservation = null;
+        }
+        prixTraite = getPrixTotal();
+        beneficeTraite = getBenefice();
         etat = EtatCommande.TRAITEE;
+        client.enregistrerAchats(this);
+        evenement.end();
+        if (evenement.shouldCommit()) {
+            evenement.delaiDepuisCreation = Duration.between(dateCreation, LocalDateTime.now()).toMillis();
+            decrire(evenement, getPrixTotal()).commit();
+        }
     }
 
     /**
-     * Calcule le prix total de la commande.
+     * Renseigne les champs communs d'un événement de profilage.
+     *
+     * @param <E> type de l'événement
+     * @param evenement événement à renseigner
+     * @param valeur prix total de la commande (nul à la création)
+     * @return l'événement
+     */
+    private <E extends EvenementCommande> E decrire(E evenement, double valeur) {
+        evenement.idCommande = id;
+        evenement.idClient = client.getId();
+        evenement.nombrePizzas = nombrePizzas;
+        evenement.valeur = valeur;
+        return evenement;
+    }
+
+    /**
+     * Calcule le prix total de la commande. Une fois la commande traitée,
+     * le prix est celui du jour du traitement.
      *
      * @return le prix total des pizzas
      */
     public double getPrixTotal() {
-        return pizzas.stream()
-                .mapToDouble(Pizza::getPrixVente)
-                .sum();
+        if (etat == EtatCommande.TRAITEE) {
+            return prixTraite;
+        }
+        double total = 0;
+        for (int i = 0; i < lignes.size(); i++) {
+            total += lignes.get(i).getPrixTotal();
+        }
+        return total;
     }
 
     /**
-     * Calcule le bénéfice total de la commande.
+     * Calcule le bénéfice total de la commande. Une fois la commande
+     * traitée, le bénéfice est celui du jour du traitement.
      *
      * @return le bénéfice total
      */
     public double getBenefice() {
-        return pizzas.stream()
-                .mapToDouble(p -> p.getPrixVente() - p.getPrixMinimal())
-                .sum();
+        if (etat == EtatCommande.TRAITEE) {
+            return beneficeTraite;
+        }
+        double total = 0;
+        for (int i = 0; i < lignes.size(); i++) {
+            total += lignes.get(i).getBenefice();
+        }
+        return total;
     }
 }
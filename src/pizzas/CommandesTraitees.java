@@ -0,0 +1,565 @@
+package pizzas;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Historique des commandes traitées, stocké par colonnes.
+ * <p>
+ * Chaque commande occupe une case de tableaux primitifs parallèles
+ * (identifiant, identifiant du client, date en millisecondes, prix total et
+ * bénéfice figés au traitement) ; ses lignes occupent une plage des tableaux
+ * de pizzas et de quantités, délimitée par {@code debutsLignes}. Les
+ * statistiques parcourent ces tableaux sans déréférencer d'objet, et une
+ * commande coûte quelques dizaines d'octets au lieu d'une
+ * {@link Commande} avec sa liste, ses lignes et sa date.
+ * </p>
+ * <p>
+ * Les pizzas et les clients sont retrouvés par leur identifiant dense dans
+ * deux tables. Les consultations de l'historique rendent les objets
+ * {@link Commande} d'origine, conservés par leur client ; une commande n'est
+ * reconstituée que si son client ne la connaît plus (client relu à part).
+ * La classe n'est pas synchronisée : elle est protégée par le verrou de
+ * {@link GestionPizzaiolo}.
+ * </p>
+ * <p>
+ * Si une {@link ArchiveCommandes archive} est activée, les commandes
+ * anciennes peuvent y être déplacées hors tas par {@link #archiver(long)}.
+ * Les statistiques et la reconstitution couvrent les deux niveaux.
+ * </p>
+ */
+final class CommandesTraitees implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nombre de commandes.
+     */
+    private transient int taille;
+
+    /**
+     * Identifiants des commandes.
+     */
+    private transient int[] ids = new int[16];
+
+    /**
+     * Identifiants des clients.
+     */
+    private transient int[] clients = new int[16];
+
+    /**
+     * Dates de création, en millisecondes depuis l'époque (UTC).
+     */
+    private transient long[] dates = new long[16];
+
+    /**
+     * Prix totaux au moment du traitement.
+     */
+    private transient double[] totaux = new double[16];
+
+    /**
+     * Bénéfices au moment du traitement.
+     */
+    private transient double[] benefices = new double[16];
+
+    /**
+     * Indice de la première ligne de chaque commande ; la case
+     * {@code taille} vaut le nombre de lignes.
+     */
+    private transient int[] debutsLignes = new int[17];
+
+    /**
+     * Identifiants des pizzas des lignes.
+     */
+    private transient int[] pizzasLignes = new int[32];
+
+    /**
+     * Quantités des lignes.
+     */
+    private transient int[] quantitesLignes = new int[32];
+
+    /**
+     * Pizzas indexées par identifiant.
+     */
+    private transient Pizza[] pizzas = new Pizza[16];
+
+    /**
+     * Clients indexés par identifiant.
+     */
+    private transient Client[] clientsParId = new Client[16];
+
+    /**
+     * Archive hors tas des commandes anciennes, ou {@code null}.
+     */
+    private transient ArchiveCommandes archive;
+
+    /**
+     * Retourne le nombre de commandes, archivées comprises.
+     *
+     * @return le nombre de commandes traitées
+     */
+    int taille() {
+        return taille + archivees();
+    }
+
+    /**
+     * Retourne le nombre de commandes archivées hors tas.
+     *
+     * @return le nombre de commandes archivées
+     */
+    int archivees() {
+        return archive == null ? 0 : archive.taille();
+    }
+
+    /**
+     * Retourne le nombre d'octets hors tas occupés par l'archive.
+     *
+     * @return octets archivés
+     */
+    long octetsArchives() {
+        return archive == null ? 0 : archive.octets();
+    }
+
+    /**
+     * Ajoute une commande qui vient d'être traitée.
+     *
+     * @param c commande traitée
+     */
+    void ajouter(Commande c) {
+        List<LigneCommande> lignes = c.getLignes();
+        if (taille == ids.length) {
+            int capacite = Math.max(16, taille + (taille >> 1));
+            ids = Arrays.copyOf(ids, capacite);
+            clients = Arrays.copyOf(clients, capacite);
+            dates = Arrays.copyOf(dates, capacite);
+            totaux = Arrays.copyOf(totaux, capacite);
+            benefices = Arrays.copyOf(benefices, capacite);
+            debutsLignes = Arrays.copyOf(debutsLignes, capacite + 1);
+        }
+        int debut = debutsLignes[taille];
+        int fin = debut + lignes.size();
+        if (fin > pizzasLignes.length) {
+            int capacite = Math.max(fin, debut + (debut >> 1));
+            pizzasLignes = Arrays.copyOf(pizzasLignes, capacite);
+            quantitesLignes = Arrays.copyOf(quantitesLignes, capacite);
+        }
+        for (int j = 0; j < lignes.size(); j++) {
+            LigneCommande ligne = lignes.get(j);
+            pizzasLignes[debut + j] = referencer(ligne.getPizza());
+            quantitesLignes[debut + j] = ligne.getQuantite();
+        }
+        ids[taille] = c.getId();
+        clients[taille] = referencer(c.getClient());
+        dates[taille] = c.getDateCreation().toInstant(ZoneOffset.UTC).toEpochMilli();
+        totaux[taille] = c.getPrixTotal();
+        benefices[taille] = c.getBenefice();
+        debutsLignes[++taille] = fin;
+    }
+
+    /**
+     * Inscrit une pizza dans la table des pizzas.
+     *
+     * @param p pizza
+     * @return son identifiant
+     */
+    private int referencer(Pizza p) {
+        int id = p.getId();
+        if (id >= pizzas.length) {
+            pizzas = Arrays.copyOf(pizzas, Math.max(id + 1, pizzas.length * 2));
+        }
+        pizzas[id] = p;
+        return id;
+    }
+
+    /**
+     * Inscrit un client dans la table des clients.
+     *
+     * @param c client
+     * @return son identifiant
+     */
+    private int referencer(Client c) {
+        int id = c.getId();
+        if (id >= clientsParId.length) {
+            clientsParId = Arrays.copyOf(clientsParId, Math.max(id + 1, clientsParId.length * 2));
+        }
+        clientsParId[id] = c;
+        return id;
+    }
+
+    /* =========================
+       ARCHIVAGE
+       ========================= */
+
+    /**
+     * Active l'archive hors tas, ou la déplace vers un autre support. Les
+     * commandes déjà archivées sont recopiées.
+     *
+     * @param repertoire répertoire des fichiers de l'archive, ou {@code null}
+     *        pour la mémoire directe
+     * @throws IOException si les fichiers ne peuvent pas être créés
+     */
+    void activerArchive(Path repertoire) throws IOException {
+        ArchiveCommandes nouvelle = new ArchiveCommandes(repertoire);
+        ArchiveCommandes ancienne = archive;
+        if (ancienne != null) {
+            for (int i = 0; i < ancienne.taille(); i++) {
+                int debut = ancienne.premiereLigne(i);
+                int fin = debut + ancienne.nombreLignes(i);
+                int[] p = new int[fin - debut];
+                int[] q = new int[fin - debut];
+                for (int j = debut; j < fin; j++) {
+                    p[j - debut] = ancienne.pizza(j);
+                    q[j - debut] = ancienne.quantite(j);
+                }
+                nouvelle.ajouter(ancienne.id(i), ancienne.client(i), ancienne.date(i),
+                        ancienne.total(i), ancienne.benefice(i), p, q, 0, p.length);
+            }
+            ancienne.close();
+        }
+        archive = nouvelle;
+    }
+
+    /**
+     * Déplace dans l'archive les commandes créées avant une date, puis
+     * compacte les colonnes en mémoire.
+     *
+     * @param limite date limite en millisecondes depuis l'époque (UTC)
+     * @return le nombre de commandes archivées
+     */
+    int archiver(long limite) {
+        if (archive == null) {
+            return 0;
+        }
+        int conservees = 0;
+        int lignes = 0;
+        for (int i = 0; i < taille; i++) {
+            int debut = debutsLignes[i];
+            int fin = debutsLignes[i + 1];
+            if (dates[i] < limite) {
+                archive.ajouter(ids[i], clients[i], dates[i], totaux[i], benefices[i],
+                        pizzasLignes, quantitesLignes, debut, fin);
+                continue;
+            }
+            ids[conservees] = ids[i];
+            clients[conservees] = clients[i];
+            dates[conservees] = dates[i];
+            totaux[conservees] = totaux[i];
+            benefices[conservees] = benefices[i];
+            debutsLignes[conservees] = lignes;
+            System.arraycopy(pizzasLignes, debut, pizzasLignes, lignes, fin - debut);
+            System.arraycopy(quantitesLignes, debut, quantitesLignes, lignes, fin - debut);
+            lignes += fin - debut;
+            conservees++;
+        }
+        int archivees = taille - conservees;
+        taille = conservees;
+        debutsLignes[taille] = lignes;
+        return archivees;
+    }
+
+    /* =========================
+       AGRÉGATIONS
+       ========================= */
+
+    /**
+     * Calcule le bénéfice cumulé de toutes les commandes.
+     *
+     * @return bénéfice total
+     */
+    double beneficeTotal() {
+        double total = 0;
+        for (int i = 0; i < taille; i++) {
+            total += benefices[i];
+        }
+        return archive == null ? total : total + archive.beneficeTotal();
+    }
+
+    /**
+     * Calcule le bénéfice cumulé par client.
+     *
+     * @return tableau indexé par identifiant de client
+     */
+    double[] beneficesParClient() {
+        double[] resultat = new double[clientsParId.length];
+        for (int i = 0; i < taille; i++) {
+            resultat[clients[i]] += benefices[i];
+        }
+        if (archive != null) {
+            archive.ajouterBeneficesParClient(resultat);
+        }
+        return resultat;
+    }
+
+    /**
+     * Calcule le nombre de pizzas commandées par client.
+     *
+     * @return tableau indexé par identifiant de client
+     */
+    int[] pizzasParClient() {
+        int[] resultat = new int[clientsParId.length];
+        for (int i = 0; i < taille; i++) {
+            int nombre = 0;
+            for (int j = debutsLignes[i]; j < debutsLignes[i + 1]; j++) {
+                nombre += quantitesLignes[j];
+            }
+            resultat[clients[i]] += nombre;
+        }
+        if (archive != null) {
+            archive.ajouterPizzasParClient(resultat);
+        }
+        return resultat;
+    }
+
+    /**
+     * Ajoute à une table les quantités commandées de chaque pizza.
+     *
+     * @param compteurs table identifiant de pizza → quantité
+     */
+    void compterPizzas(TableEntiers compteurs) {
+        int fin = debutsLignes[taille];
+        for (int j = 0; j < fin; j++) {
+            compteurs.incrementer(pizzasLignes[j], quantitesLignes[j]);
+        }
+        if (archive != null) {
+            archive.compterPizzas(compteurs);
+        }
+    }
+
+    /**
+     * Désigne les clients de l'historique dont les informations personnelles
+     * sont égales à celles données.
+     *
+     * @param infos informations personnelles recherchées
+     * @return tableau indexé par identifiant de client
+     */
+    boolean[] clientsPortant(InformationPersonnelle infos) {
+        boolean[] retenus = new boolean[clientsParId.length];
+        for (int id = 0; id < clientsParId.length; id++) {
+            retenus[id] = clientsParId[id] != null && infos.equals(clientsParId[id].getInfos());
+        }
+        return retenus;
+    }
+
+    /**
+     * Retourne le client d'un identifiant figurant dans l'historique.
+     *
+     * @param id identifiant du client
+     * @return le client, ou {@code null}
+     */
+    Client client(int id) {
+        return id < clientsParId.length ? clientsParId[id] : null;
+    }
+
+    /* =========================
+       RECONSTITUTION
+       ========================= */
+
+    /**
+     * Retourne les commandes des clients retenus, par date de création. Ce
+     * sont les commandes d'origine de chaque client, si bien que deux appels
+     * rendent les mêmes objets ; seules les commandes inconnues de leur
+     * client sont reconstituées.
+     *
+     * @param clientRetenu filtre sur l'identifiant du client
+     * @return liste des commandes
+     */
+    List<Commande> commandes(IntPredicate clientRetenu) {
+        ArchiveCommandes a = archive;
+        int archivees = a == null ? 0 : a.taille();
+        int nombre = 0;
+        Integer[] ordre = new Integer[archivees + taille];
+        long[] datesOrdre = new long[archivees + taille];
+        for (int i = 0; i < archivees; i++) {
+            if (clientRetenu.test(a.client(i))) {
+                datesOrdre[nombre] = a.date(i);
+                ordre[nombre++] = -1 - i;
+            }
+        }
+        for (int i = 0; i < taille; i++) {
+            if (clientRetenu.test(clients[i])) {
+                datesOrdre[nombre] = dates[i];
+                ordre[nombre++] = i;
+            }
+        }
+        Integer[] rangs = new Integer[nombre];
+        for (int k = 0; k < nombre; k++) {
+            rangs[k] = k;
+        }
+        Arrays.sort(rangs, (x, y) -> Long.compare(datesOrdre[x], datesOrdre[y]));
+        Map<Integer, Commande> originales = originales(clientRetenu);
+        List<Commande> resultat = new ArrayList<>(nombre);
+        for (int k = 0; k < nombre; k++) {
+            int i = ordre[rangs[k]];
+            Commande c = originales.get(i < 0 ? a.id(-1 - i) : ids[i]);
+            if (c == null) {
+                c = i < 0 ? commandeArchivee(a, -1 - i) : commande(i);
+            }
+            resultat.add(c);
+        }
+        return resultat;
+    }
+
+    /**
+     * Indexe par identifiant les commandes traitées que les clients retenus
+     * conservent.
+     *
+     * @param clientRetenu filtre sur l'identifiant du client
+     * @return table identifiant de commande → commande
+     */
+    private Map<Integer, Commande> originales(IntPredicate clientRetenu) {
+        Map<Integer, Commande> originales = new HashMap<>();
+        for (int id = 0; id < clientsParId.length; id++) {
+            if (clientsParId[id] != null && clientRetenu.test(id)) {
+                for (Commande c : clientsParId[id].getCommandes()) {
+                    if (c.getEtat() == EtatCommande.TRAITEE) {
+                        originales.put(c.getId(), c);
+                    }
+                }
+            }
+        }
+        return originales;
+    }
+
+    /**
+     * Reconstitue une commande archivée.
+     *
+     * @param a archive
+     * @param i indice de la commande dans l'archive
+     * @return commande à l'état {@link EtatCommande#TRAITEE}
+     */
+    private Commande commandeArchivee(ArchiveCommandes a, int i) {
+        int debut = a.premiereLigne(i);
+        int fin = debut + a.nombreLignes(i);
+        List<LigneCommande> lignes = new ArrayList<>(fin - debut);
+        for (int j = debut; j < fin; j++) {
+            lignes.add(new LigneCommande(pizzas[a.pizza(j)], a.quantite(j)));
+        }
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(a.date(i)), ZoneOffset.UTC);
+        return new Commande(a.id(i), clientsParId[a.client(i)], date, lignes, a.total(i), a.benefice(i));
+    }
+
+    /**
+     * Reconstitue une commande.
+     *
+     * @param i indice de la commande
+     * @return commande à l'état {@link EtatCommande#TRAITEE}
+     */
+    private Commande commande(int i) {
+        int debut = debutsLignes[i];
+        int fin = debutsLignes[i + 1];
+        List<LigneCommande> lignes = new ArrayList<>(fin - debut);
+        for (int j = debut; j < fin; j++) {
+            lignes.add(new LigneCommande(pizzas[pizzasLignes[j]], quantitesLignes[j]));
+        }
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(dates[i]), ZoneOffset.UTC);
+        return new Commande(ids[i], clientsParId[clients[i]], date, lignes, totaux[i], benefices[i]);
+    }
+
+    /* =========================
+       SÉRIALISATION
+       ========================= */
+
+    /**
+     * Écrit les colonnes tronquées à leur taille utile, suivies des pizzas
+     * et des clients référencés, puis le contenu de l'archive.
+     *
+     * @param out flux d'écriture
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int lignes = debutsLignes[taille];
+        out.writeInt(taille);
+        out.writeObject(Arrays.copyOf(ids, taille));
+        out.writeObject(Arrays.copyOf(clients, taille));
+        out.writeObject(Arrays.copyOf(dates, taille));
+        out.writeObject(Arrays.copyOf(totaux, taille));
+        out.writeObject(Arrays.copyOf(benefices, taille));
+        out.writeObject(Arrays.copyOf(debutsLignes, taille + 1));
+        out.writeObject(Arrays.copyOf(pizzasLignes, lignes));
+        out.writeObject(Arrays.copyOf(quantitesLignes, lignes));
+        out.writeObject(pizzas);
+        out.writeObject(clientsParId);
+        ArchiveCommandes a = archive;
+        out.writeBoolean(a != null);
+        if (a != null) {
+            out.writeObject(a.getRepertoire() == null ? null : a.getRepertoire().toString());
+            out.writeInt(a.taille());
+            for (int i = 0; i < a.taille(); i++) {
+                out.writeInt(a.id(i));
+                out.writeInt(a.client(i));
+                out.writeLong(a.date(i));
+                out.writeDouble(a.total(i));
+                out.writeDouble(a.benefice(i));
+                int debut = a.premiereLigne(i);
+                int fin = debut + a.nombreLignes(i);
+                out.writeInt(fin - debut);
+                for (int j = debut; j < fin; j++) {
+                    out.writeInt(a.pizza(j));
+                    out.writeInt(a.quantite(j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Relit les colonnes et l'archive, sur le même support que lors de la
+     * sauvegarde, et réserve les identifiants des commandes. Les
+     * identifiants des pizzas et des clients étant conservés à la relecture,
+     * les tables restent valides.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        taille = in.readInt();
+        ids = (int[]) in.readObject();
+        clients = (int[]) in.readObject();
+        dates = (long[]) in.readObject();
+        totaux = (double[]) in.readObject();
+        benefices = (double[]) in.readObject();
+        debutsLignes = (int[]) in.readObject();
+        pizzasLignes = (int[]) in.readObject();
+        quantitesLignes = (int[]) in.readObject();
+        pizzas = (Pizza[]) in.readObject();
+        clientsParId = (Client[]) in.readObject();
+        for (int i = 0; i < taille; i++) {
+            Commande.reserver(ids[i]);
+        }
+        if (in.readBoolean()) {
+            String repertoire = (String) in.readObject();
+            archive = new ArchiveCommandes(repertoire == null ? null : Path.of(repertoire));
+            int nombre = in.readInt();
+            for (int i = 0; i < nombre; i++) {
+                int id = in.readInt();
+                int client = in.readInt();
+                long date = in.readLong();
+                double total = in.readDouble();
+                double benefice = in.readDouble();
+                int[] p = new int[in.readInt()];
+                int[] q = new int[p.length];
+                for (int j = 0; j < p.length; j++) {
+                    p[j] = in.readInt();
+                    q[j] = in.readInt();
+                }
+                archive.ajouter(id, client, date, total, benefice, p, q, 0, p.length);
+                Commande.reserver(id);
+            }
+        }
+    }
+}
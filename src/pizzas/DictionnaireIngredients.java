@@ -0,0 +1,236 @@
+package pizzas;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Dictionnaire des ingrédients d'un catalogue.
+ * <p>
+ * Chaque ingrédient enregistré reçoit un identifiant entier dense (0, 1,
+ * 2...) propre au dictionnaire. Le dictionnaire conserve, indexés par cet
+ * identifiant :
+ * <ul>
+ *   <li>l'ingrédient lui-même</li>
+ *   <li>son prix (table de {@code double})</li>
+ *   <li>son nom en minuscules</li>
+ * </ul>
+ * Les pizzas ne stockent ainsi que des tableaux d'identifiants, et le calcul
+ * des prix ou le filtrage se font sur des tableaux primitifs sans allocation.
+ * </p>
+ * <p>
+ * Chaque {@link GestionPizzaiolo} a son dictionnaire, qui disparaît avec
+ * lui : recharger une sauvegarde crée un nouveau dictionnaire au lieu
+ * d'agrandir celui du gestionnaire remplacé. Les ingrédients créés ou
+ * relus hors de tout gestionnaire partagent un dictionnaire commun
+ * ({@link #commun()}), référencé faiblement : il reste en vie tant qu'un de
+ * ses ingrédients ou une pizza qui les utilise est joignable, puis est
+ * libéré et remplacé par un nouveau.
+ * </p>
+ */
+public final class DictionnaireIngredients {
+
+    /**
+     * Dictionnaire des ingrédients créés ou relus hors d'un gestionnaire,
+     * tenu faiblement : ce sont ses ingrédients et leurs pizzas qui le
+     * gardent en vie.
+     */
+    private static WeakReference<DictionnaireIngredients> commun = new WeakReference<>(null);
+
+    /**
+     * Dictionnaire du gestionnaire en cours de désérialisation sur ce fil.
+     */
+    private static final ThreadLocal<DictionnaireIngredients> CHARGEMENT = new ThreadLocal<>();
+
+    /**
+     * Capacité initiale des tables.
+     */
+    private static final int CAPACITE_INITIALE = 64;
+
+    /**
+     * Ingrédients indexés par identifiant.
+     */
+    private volatile Ingredient[] ingredients = new Ingredient[CAPACITE_INITIALE];
+
+    /**
+     * Prix indexés par identifiant.
+     */
+    private volatile double[] prix = new double[CAPACITE_INITIALE];
+
+    /**
+     * Noms en minuscules indexés par identifiant.
+     */
+    private volatile String[] nomsMinuscules = new String[CAPACITE_INITIALE];
+
+    /**
+     * Nombre d'identifiants attribués.
+     */
+    private volatile int taille;
+
+    /**
+     * Crée un dictionnaire vide.
+     */
+    DictionnaireIngredients() {
+    }
+
+    /**
+     * Retourne le dictionnaire commun aux ingrédients créés hors d'un
+     * gestionnaire, en le recréant si l'ancien a été libéré.
+     *
+     * @return le dictionnaire commun
+     */
+    static synchronized DictionnaireIngredients commun() {
+        DictionnaireIngredients d = commun.get();
+        if (d == null) {
+            d = new DictionnaireIngredients();
+            commun = new WeakReference<>(d);
+        }
+        return d;
+    }
+
+    /**
+     * Retourne le dictionnaire dans lequel enregistrer un ingrédient relu :
+     * celui du gestionnaire en cours de chargement, sinon le dictionnaire
+     * commun.
+     *
+     * @return le dictionnaire courant
+     */
+    static DictionnaireIngredients courant() {
+        DictionnaireIngredients d = CHARGEMENT.get();
+        return d == null ? commun() : d;
+    }
+
+    /**
+     * Exécute une lecture en enregistrant les ingrédients relus dans ce
+     * dictionnaire.
+     *
+     * @param lecture lecture à exécuter
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    void charger(Lecture lecture) throws IOException, ClassNotFoundException {
+        DictionnaireIngredients precedent = CHARGEMENT.get();
+        CHARGEMENT.set(this);
+        try {
+            lecture.lire();
+        } finally {
+            if (precedent == null) {
+                CHARGEMENT.remove();
+            } else {
+                CHARGEMENT.set(precedent);
+            }
+        }
+    }
+
+    /**
+     * Enregistre un ingrédient et lui attribue un nouvel identifiant.
+     *
+     * @param ingredient ingrédient à enregistrer
+     * @return l'identifiant attribué
+     */
+    synchronized int enregistrer(Ingredient ingredient) {
+        int id = taille;
+        if (id == ingredients.length) {
+            int capacite = id * 2;
+            ingredients = Arrays.copyOf(ingredients, capacite);
+            prix = Arrays.copyOf(prix, capacite);
+            nomsMinuscules = Arrays.copyOf(nomsMinuscules, capacite);
+        }
+        ingredients[id] = ingredient;
+        prix[id] = ingredient.getPrix();
+        nomsMinuscules[id] = ingredient.getNom().toLowerCase();
+        taille = id + 1;
+        return id;
+    }
+
+    /**
+     * Met à jour le prix associé à un identifiant.
+     *
+     * @param id identifiant de l'ingrédient
+     * @param nouveauPrix nouveau prix
+     */
+    synchronized void setPrix(int id, double nouveauPrix) {
+        prix[id] = nouveauPrix;
+    }
+
+    /**
+     * Met à jour le nom associé à un identifiant.
+     *
+     * @param id identifiant de l'ingrédient
+     * @param nom nouveau nom
+     */
+    synchronized void setNom(int id, String nom) {
+        nomsMinuscules[id] = nom.toLowerCase();
+    }
+
+    /**
+     * Retourne l'ingrédient associé à un identifiant.
+     *
+     * @param id identifiant
+     * @return l'ingrédient
+     */
+    public Ingredient get(int id) {
+        return ingredients[id];
+    }
+
+    /**
+     * Retourne le prix associé à un identifiant.
+     *
+     * @param id identifiant
+     * @return le prix de l'ingrédient
+     */
+    public double prix(int id) {
+        return prix[id];
+    }
+
+    /**
+     * Retourne le nom en minuscules associé à un identifiant.
+     *
+     * @param id identifiant
+     * @return le nom en minuscules
+     */
+    public String nomMinuscule(int id) {
+        return nomsMinuscules[id];
+    }
+
+    /**
+     * Calcule la somme des prix d'un ensemble d'identifiants.
+     *
+     * @param ids tableau d'identifiants
+     * @param nombre nombre d'identifiants significatifs dans le tableau
+     * @return la somme des prix
+     */
+    public double sommePrix(int[] ids, int nombre) {
+        double[] table = prix;
+        double somme = 0;
+        for (int i = 0; i < nombre; i++) {
+            somme += table[ids[i]];
+        }
+        return somme;
+    }
+
+    /**
+     * Retourne le nombre d'identifiants attribués.
+     *
+     * @return le nombre d'ingrédients enregistrés
+     */
+    public int taille() {
+        return taille;
+    }
+
+    /**
+     * Lecture d'objets pendant laquelle les ingrédients relus sont
+     * enregistrés dans un dictionnaire donné.
+     */
+    @FunctionalInterface
+    interface Lecture {
+
+        /**
+         * Exécute la lecture.
+         *
+         * @throws IOException en cas d'erreur de lecture
+         * @throws ClassNotFoundException si une classe est introuvable
+         */
+        void lire() throws IOException, ClassNotFoundException;
+    }
+}
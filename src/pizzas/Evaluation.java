@@ -1,17 +1,34 @@
 package pizzas;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Représente l'évaluation d'une pizza par un client.
+ * <p>
+ * Une fois ajoutée à une pizza, l'évaluation est conservée dans un segment
+ * compact ({@link EvaluationsPizza}) ; les objets {@code Evaluation} relus
+ * sont des vues légères dont le commentaire est décodé à la demande.
+ * </p>
  */
 public class Evaluation {
 
     private final Client client;
     private final Pizza pizza;
     private final int note;
-    private final String commentaire;
-    private final LocalDateTime date;
+    private final long date;
+
+    /**
+     * Commentaire, ou {@code null} s'il n'a pas encore été décodé.
+     */
+    private String commentaire;
+
+    /**
+     * Segment d'où provient la vue, {@code null} pour une nouvelle évaluation.
+     */
+    private final EvaluationsPizza source;
+    private final int index;
 
     /**
      * Crée une évaluation.
@@ -32,13 +49,40 @@ public class Evaluation {
         this.pizza = pizza;
         this.note = note;
         this.commentaire = commentaire;
-        this.date = LocalDateTime.now();
+        this.date = Instant.now().getEpochSecond();
+        this.source = null;
+        this.index = -1;
+    }
+
+    /**
+     * Crée une vue sur une évaluation stockée.
+     *
+     * @param pizza pizza évaluée
+     * @param source segment des évaluations de la pizza
+     * @param index position de l'évaluation dans le segment
+     */
+    Evaluation(Pizza pizza, EvaluationsPizza source, int index) {
+        this.pizza = pizza;
+        this.source = source;
+        this.index = index;
+        this.client = source.client(index);
+        this.note = source.note(index);
+        this.date = source.date(index);
     }
 
     public Client getClient() {
         return client;
     }
 
+    /**
+     * Retourne l'identifiant du client auteur de l'évaluation.
+     *
+     * @return l'identifiant du client
+     */
+    public int getIdClient() {
+        return client.getId();
+    }
+
     public Pizza getPizza() {
         return pizza;
     }
@@ -48,10 +92,44 @@ public class Evaluation {
     }
 
     public String getCommentaire() {
+        if (commentaire == null && source != null) {
+            synchronized (pizza) {
+                commentaire = source.commentaire(index);
+            }
+        }
         return commentaire;
     }
 
     public LocalDateTime getDate() {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(date), ZoneId.systemDefault());
+    }
+
+    /**
+     * Deux évaluations sont égales si elles portent sur la même pizza et ont
+     * le même auteur, un client ne pouvant évaluer une pizza qu'une fois.
+     *
+     * @param o objet à comparer
+     * @return {@code true} si les évaluations sont égales
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Evaluation)) return false;
+        Evaluation e = (Evaluation) o;
+        return client.getId() == e.client.getId() && pizza == e.pizza;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * pizza.getId() + client.getId();
+    }
+
+    /**
+     * Retourne la date de l'évaluation.
+     *
+     * @return la date en secondes depuis l'époque Unix
+     */
+    long getDateSecondes() {
         return date;
     }
 }
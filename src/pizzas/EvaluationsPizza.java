@@ -0,0 +1,213 @@
+package pizzas;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Segment compact des évaluations d'une pizza, en ajout seul.
+ * <p>
+ * Chaque évaluation occupe une case de tableaux primitifs :
+ * <ul>
+ *   <li>client auteur de l'évaluation</li>
+ *   <li>note sur un octet</li>
+ *   <li>date en secondes depuis l'époque Unix</li>
+ *   <li>position et longueur du commentaire dans une réserve d'octets UTF-8
+ *       commune au segment</li>
+ * </ul>
+ * Les objets {@link Evaluation} ne sont créés qu'à la lecture, et leur
+ * commentaire n'est décodé que s'il est demandé. Cette classe n'est pas
+ * synchronisée ; la pizza propriétaire protège les accès.
+ * </p>
+ */
+class EvaluationsPizza implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Longueur marquant l'absence de commentaire.
+     */
+    private static final int SANS_COMMENTAIRE = -1;
+
+    private transient Client[] clients = new Client[4];
+    private transient byte[] notes = new byte[4];
+    private transient int[] dates = new int[4];
+    private transient int[] debutsCommentaires = new int[4];
+    private transient int[] longueursCommentaires = new int[4];
+    private transient byte[] reserve = new byte[64];
+    private transient int tailleReserve;
+    private transient int taille;
+
+    /**
+     * Clients ayant évalué la pizza (valeur 1), pour refuser les doublons.
+     */
+    private transient TableEntiers evaluateurs = new TableEntiers();
+
+    /**
+     * Ajoute une évaluation à la fin du segment.
+     *
+     * @param client auteur de l'évaluation
+     * @param note note entre 0 et 5
+     * @param date date en secondes depuis l'époque Unix
+     * @param commentaire commentaire, éventuellement {@code null}
+     * @return {@code false} si ce client a déjà évalué la pizza
+     */
+    boolean ajouter(Client client, int note, long date, String commentaire) {
+        int idClient = client.getId();
+        if (evaluateurs.get(idClient) != 0) {
+            return false;
+        }
+        evaluateurs.incrementer(idClient, 1);
+        if (taille == clients.length) {
+            int capacite = taille * 2;
+            clients = Arrays.copyOf(clients, capacite);
+            notes = Arrays.copyOf(notes, capacite);
+            dates = Arrays.copyOf(dates, capacite);
+            debutsCommentaires = Arrays.copyOf(debutsCommentaires, capacite);
+            longueursCommentaires = Arrays.copyOf(longueursCommentaires, capacite);
+        }
+        clients[taille] = client;
+        notes[taille] = (byte) note;
+        dates[taille] = (int) date;
+        if (commentaire == null) {
+            longueursCommentaires[taille] = SANS_COMMENTAIRE;
+        } else {
+            byte[] octets = commentaire.getBytes(StandardCharsets.UTF_8);
+            if (tailleReserve + octets.length > reserve.length) {
+                reserve = Arrays.copyOf(reserve,
+                        Math.max(tailleReserve + octets.length, reserve.length * 2));
+            }
+            System.arraycopy(octets, 0, reserve, tailleReserve, octets.length);
+            debutsCommentaires[taille] = tailleReserve;
+            longueursCommentaires[taille] = octets.length;
+            tailleReserve += octets.length;
+        }
+        taille++;
+        return true;
+    }
+
+    /**
+     * Indique si un client a déjà évalué la pizza.
+     *
+     * @param idClient identifiant du client
+     * @return {@code true} si une évaluation de ce client existe
+     */
+    boolean contientClient(int idClient) {
+        return evaluateurs.get(idClient) != 0;
+    }
+
+    /**
+     * Retourne le nombre d'évaluations.
+     *
+     * @return le nombre d'évaluations
+     */
+    int taille() {
+        return taille;
+    }
+
+    Client client(int index) {
+        return clients[index];
+    }
+
+    int note(int index) {
+        return notes[index];
+    }
+
+    /**
+     * Retourne la date d'une évaluation, les secondes étant stockées sans
+     * signe sur 32 bits.
+     *
+     * @param index position de l'évaluation
+     * @return la date en secondes depuis l'époque Unix
+     */
+    long date(int index) {
+        return Integer.toUnsignedLong(dates[index]);
+    }
+
+    /**
+     * Décode le commentaire d'une évaluation.
+     *
+     * @param index position de l'évaluation
+     * @return le commentaire, ou {@code null} s'il n'y en a pas
+     */
+    String commentaire(int index) {
+        int longueur = longueursCommentaires[index];
+        if (longueur == SANS_COMMENTAIRE) {
+            return null;
+        }
+        return new String(reserve, debutsCommentaires[index], longueur, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Crée les vues d'une page d'évaluations.
+     *
+     * @param pizza pizza propriétaire du segment
+     * @param debut position de la première évaluation
+     * @param nombre nombre maximum d'évaluations
+     * @return les évaluations, de la plus ancienne à la plus récente
+     */
+    List<Evaluation> page(Pizza pizza, int debut, int nombre) {
+        int fin = (int) Math.min(taille, Math.max(0, (long) debut) + Math.max(0, nombre));
+        List<Evaluation> resultat = new ArrayList<>(Math.max(0, fin - debut));
+        for (int i = Math.max(0, debut); i < fin; i++) {
+            resultat.add(new Evaluation(pizza, this, i));
+        }
+        return resultat;
+    }
+
+    /**
+     * Écrit uniquement les cases utilisées des tableaux.
+     *
+     * @param out flux d'écriture
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(taille);
+        for (int i = 0; i < taille; i++) {
+            out.writeObject(clients[i]);
+            out.writeByte(notes[i]);
+            out.writeInt(dates[i]);
+            out.writeInt(debutsCommentaires[i]);
+            out.writeInt(longueursCommentaires[i]);
+        }
+        out.writeInt(tailleReserve);
+        out.write(reserve, 0, tailleReserve);
+    }
+
+    /**
+     * Relit le segment et reconstruit l'ensemble des évaluateurs.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        taille = in.readInt();
+        int capacite = Math.max(4, taille);
+        clients = new Client[capacite];
+        notes = new byte[capacite];
+        dates = new int[capacite];
+        debutsCommentaires = new int[capacite];
+        longueursCommentaires = new int[capacite];
+        evaluateurs = new TableEntiers(capacite);
+        for (int i = 0; i < taille; i++) {
+            clients[i] = (Client) in.readObject();
+            notes[i] = in.readByte();
+            dates[i] = in.readInt();
+            debutsCommentaires[i] = in.readInt();
+            longueursCommentaires[i] = in.readInt();
+            evaluateurs.incrementer(clients[i].getId(), 1);
+        }
+        tailleReserve = in.readInt();
+        reserve = new byte[Math.max(64, tailleReserve)];
+        in.readFully(reserve, 0, tailleReserve);
+    }
+}
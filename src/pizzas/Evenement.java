@@ -0,0 +1,78 @@
+package pizzas;
+
+/**
+ * Événement du domaine lu sur le {@link BusEvenements}.
+ * <p>
+ * L'objet est réutilisé d'un événement à l'autre par un même lecteur : un
+ * consommateur qui veut conserver un événement doit en recopier les valeurs.
+ * </p>
+ */
+public final class Evenement {
+
+    private long sequence;
+    private TypeEvenement type;
+    private Object sujet;
+    private long entier;
+    private double valeur;
+    private long horodatage;
+
+    Evenement() {
+    }
+
+    /**
+     * Recopie les valeurs d'une case du tampon.
+     */
+    void remplir(long sequence, TypeEvenement type, Object sujet,
+            long entier, double valeur, long horodatage) {
+        this.sequence = sequence;
+        this.type = type;
+        this.sujet = sujet;
+        this.entier = entier;
+        this.valeur = valeur;
+        this.horodatage = horodatage;
+    }
+
+    /**
+     * Retourne le numéro de séquence de l'événement sur le bus.
+     *
+     * @return le numéro de séquence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public TypeEvenement getType() {
+        return type;
+    }
+
+    /**
+     * Retourne l'objet concerné (voir {@link TypeEvenement}).
+     *
+     * @return le sujet de l'événement
+     */
+    public Object getSujet() {
+        return sujet;
+    }
+
+    public long getEntier() {
+        return entier;
+    }
+
+    public double getValeur() {
+        return valeur;
+    }
+
+    /**
+     * Retourne la date de publication.
+     *
+     * @return la date en millisecondes depuis l'époque Unix
+     */
+    public long getHorodatage() {
+        return horodatage;
+    }
+
+    @Override
+    public String toString() {
+        return "Evenement[" + sequence + ", " + type + ", " + sujet + "]";
+    }
+}
@@ -0,0 +1,93 @@
+package pizzas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom sur des chaînes, utilisable par plusieurs fils
+ * d'exécution.
+ * <p>
+ * Une réponse négative de {@link #peutContenir(String)} est certaine : la
+ * chaîne n'a jamais été ajoutée. Une réponse positive peut être un faux
+ * positif et doit être confirmée ailleurs.
+ * </p>
+ */
+public class FiltreBloom {
+
+    private final AtomicLongArray bits;
+    private final long nbBits;
+    private final int nbHachages;
+
+    /**
+     * Construit un filtre dimensionné pour un nombre d'éléments et un taux de
+     * faux positifs visé.
+     *
+     * @param capacite nombre d'éléments attendus
+     * @param tauxFauxPositifs taux de faux positifs visé (entre 0 et 1)
+     */
+    public FiltreBloom(int capacite, double tauxFauxPositifs) {
+        if (capacite <= 0 || tauxFauxPositifs <= 0 || tauxFauxPositifs >= 1) {
+            throw new IllegalArgumentException("Paramètres du filtre invalides");
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-capacite * Math.log(tauxFauxPositifs) / (ln2 * ln2));
+        int mots = (int) ((m + 63) / 64);
+        this.bits = new AtomicLongArray(mots);
+        this.nbBits = mots * 64L;
+        this.nbHachages = Math.max(1, (int) Math.round((double) m / capacite * ln2));
+    }
+
+    /**
+     * Ajoute une chaîne au filtre.
+     *
+     * @param valeur chaîne à ajouter
+     */
+    public void ajouter(String valeur) {
+        long h = hacher(valeur);
+        long h1 = h >>> 32;
+        long h2 = h & 0xFFFFFFFFL;
+        for (int k = 0; k < nbHachages; k++) {
+            long bit = Math.floorMod(h1 + k * h2, nbBits);
+            int mot = (int) (bit >>> 6);
+            long masque = 1L << bit;
+            long ancien = bits.get(mot);
+            while ((ancien & masque) == 0
+                    && !bits.compareAndSet(mot, ancien, ancien | masque)) {
+                ancien = bits.get(mot);
+            }
+        }
+    }
+
+    /**
+     * Indique si une chaîne a pu être ajoutée au filtre.
+     *
+     * @param valeur chaîne à tester
+     * @return {@code false} si la chaîne n'a certainement jamais été ajoutée
+     */
+    public boolean peutContenir(String valeur) {
+        long h = hacher(valeur);
+        long h1 = h >>> 32;
+        long h2 = h & 0xFFFFFFFFL;
+        for (int k = 0; k < nbHachages; k++) {
+            long bit = Math.floorMod(h1 + k * h2, nbBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calcule un hachage 64 bits d'une chaîne.
+     *
+     * @param valeur chaîne à hacher
+     * @return le hachage
+     */
+    private static long hacher(String valeur) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < valeur.length(); i++) {
+            h = (h ^ valeur.charAt(i)) * 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+}
@@ -1,14 +1,18 @@
 package pizzas;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import profilage.RequeteFiltres;
+
 /**
  * Implémentation des services client.
  * <p>
  * Cette classe permet :
  * <ul>
- *   <li>l'inscription et la connexion des clients</li>
+ *   <li>l'inscription et la connexion des clients, chaque client connecté
+ *       disposant de sa propre session</li>
  *   <li>la gestion des commandes</li>
  *   <li>la consultation et le filtrage des pizzas</li>
  *   <li>la gestion des évaluations</li>
@@ -18,41 +22,41 @@ import java.util.stream.Collectors;
 public class GestionClient implements InterClient {
 
     /**
-     * Client actuellement connecté.
+     * Sessions des clients connectés.
      */
-    private Client clientConnecte;
+    private final GestionSessions sessions = new GestionSessions();
 
     /**
-     * Liste des clients inscrits.
+     * Vérification des mots de passe et limitation des tentatives.
      */
-    private final List<Client> clientsInscrits;
+    private final VerificationIdentifiants verification = new VerificationIdentifiants();
 
     /**
-     * Ensemble des pizzas disponibles.
+     * Jeton de la session utilisée par le fil d'exécution courant.
      */
-    private final Set<Pizza> pizzas;
+    private final ThreadLocal<String> sessionCourante = new ThreadLocal<>();
 
     /**
-     * Référence vers la gestion du pizzaiolo.
+     * Registre des clients inscrits, indexé par email.
      */
-    private GestionPizzaiolo gestionPizzaiolo;
-
-    /* Filtres */
+    private final RegistreClients clientsInscrits;
 
     /**
-     * Filtre sur le type de pizza.
+     * Ensemble des pizzas disponibles.
      */
-    private TypePizza filtreType;
+    private final Set<Pizza> pizzas;
 
     /**
-     * Filtre sur les ingrédients.
+     * Référence vers la gestion du pizzaiolo.
      */
-    private final Set<String> filtreIngredients;
+    private GestionPizzaiolo gestionPizzaiolo;
 
     /**
-     * Filtre sur le prix maximum.
+     * Filtres utilisés en l'absence de session, propres à chaque fil pour
+     * ne pas être partagés entre visiteurs.
      */
-    private Double filtrePrixMax;
+    private final ThreadLocal<Session.Filtres> filtresAnonymes =
+            ThreadLocal.withInitial(Session.Filtres::new);
 
     /**
      * Construit un gestionnaire client.
@@ -60,9 +64,8 @@ public class GestionClient implements InterClient {
      * @param pizzas ensemble des pizzas disponibles
      */
     public GestionClient(Set<Pizza> pizzas) {
-        this.clientsInscrits = new ArrayList<>();
+        this.clientsInscrits = new RegistreClients();
         this.pizzas = pizzas;
-        this.filtreIngredients = new HashSet<>();
     }
 
     /**
@@ -79,7 +82,8 @@ public class GestionClient implements InterClient {
     // =========================
 
     /**
-     * Inscrit un nouveau client.
+     * Inscrit un nouveau client. L'empreinte du mot de passe est calculée sur
+     * les fils de vérification ; le fil appelant attend le résultat.
      *
      * @param email adresse email
      * @param mdp mot de passe
@@ -91,10 +95,50 @@ public class GestionClient implements InterClient {
      *   <li>-2 : mot de passe trop court</li>
      *   <li>-3 : email invalide</li>
      *   <li>-4 : email déjà utilisé</li>
+     *   <li>-5 : service de vérification saturé</li>
      * </ul>
      */
     @Override
     public int inscription(String email, String mdp, InformationPersonnelle info) {
+        int code = controlerInscription(email, mdp, info);
+        if (code != 0) {
+            return code;
+        }
+        MotDePasse empreinte = verification.hacherEtAttendre(mdp);
+        return empreinte == null ? -5 : inscrire(email, empreinte, info);
+    }
+
+    /**
+     * Version asynchrone de
+     * {@link #inscription(String, String, InformationPersonnelle)} : le fil
+     * appelant n'est pas bloqué par le calcul de l'empreinte.
+     *
+     * @param email adresse email
+     * @param mdp mot de passe
+     * @param info informations personnelles
+     * @return le code de retour futur, avec les mêmes valeurs que
+     *         {@link #inscription(String, String, InformationPersonnelle)}
+     */
+    public CompletableFuture<Integer> inscriptionAsync(String email, String mdp,
+            InformationPersonnelle info) {
+        int code = controlerInscription(email, mdp, info);
+        if (code != 0) {
+            return CompletableFuture.completedFuture(code);
+        }
+        return verification.hacher(mdp)
+                .thenApply(empreinte -> inscrire(email, empreinte, info))
+                .exceptionally(e -> -5);
+    }
+
+    /**
+     * Contrôle les champs d'une inscription, avant tout calcul coûteux.
+     *
+     * @param email adresse email
+     * @param mdp mot de passe
+     * @param info informations personnelles
+     * @return 0 si l'inscription peut être tentée, le code d'erreur sinon
+     */
+    private int controlerInscription(String email, String mdp, InformationPersonnelle info) {
 
         //  champs obligatoires
         if (info == null
@@ -117,21 +161,43 @@ public class GestionClient implements InterClient {
         }
 
         //  email déjà utilisé
-        for (Client c : clientsInscrits) {
-            if (c.getEmail().equalsIgnoreCase(email)) {
-                return -4; // email déjà utilisé
-            }
+        if (clientsInscrits.estInscrit(email)) {
+            return -4; // email déjà utilisé
         }
 
-        //  création du client
-        Client c = new Client(email, mdp, info);
-        clientsInscrits.add(c);
+        return 0;
+    }
 
+    /**
+     * Crée et enregistre le client une fois l'empreinte calculée.
+     *
+     * @param email adresse email
+     * @param empreinte empreinte du mot de passe
+     * @param info informations personnelles
+     * @return 0 en cas de succès, -4 si l'email a été pris entre-temps
+     */
+    private int inscrire(String email, MotDePasse empreinte, InformationPersonnelle info) {
+        Client c = new Client(email, empreinte, info);
+        if (!clientsInscrits.inscrire(c)) {
+            return -4; // inscrit entre-temps par un autre fil
+        }
         return 0;
     }
 
     /**
-     * Connecte un client.
+     * Importe en masse des comptes clients existants (reprise de données).
+     * Les comptes dont l'email est déjà utilisé sont ignorés.
+     *
+     * @param clients clients à importer
+     * @return le nombre de comptes importés
+     */
+    public int importerClients(Collection<Client> clients) {
+        return clientsInscrits.importer(clients);
+    }
+
+    /**
+     * Connecte un client : une session est ouverte et associée au fil
+     * d'exécution courant.
      *
      * @param email email du client
      * @param mdp mot de passe
@@ -139,30 +205,151 @@ public class GestionClient implements InterClient {
      */
     @Override
     public boolean connexion(String email, String mdp) {
-        if (email == null || mdp == null) return false;
+        String jeton = ouvrirSession(email, mdp);
+        if (jeton == null) return false;
+
+        sessionCourante.set(jeton);
+        return true;
+    }
+
+    /**
+     * Authentifie un client et ouvre une session, sans l'associer au fil
+     * d'exécution courant.
+     *
+     * @param email email du client
+     * @param mdp mot de passe
+     * @return le jeton de la session ou {@code null} si l'authentification
+     *         échoue
+     */
+    public String ouvrirSession(String email, String mdp) {
+        if (email == null || mdp == null) return null;
 
-        for (Client c : clientsInscrits) {
+        Client c = clientsInscrits.trouver(email);
+        if (c == null) {
+            return null; // compte inconnu : aucune tentative n'est suivie
+        }
+        String cle = RegistreClients.normaliser(email);
+        if (!verification.autoriserTentative(cle)) {
+            return null; // trop de tentatives
+        }
+        if (!verification.verifierEtAttendre(c, mdp)) {
+            return null;
+        }
+        verification.reinitialiser(cle);
+        return sessions.ouvrir(c).getJeton();
+    }
 
-            if (c.getEmail().equalsIgnoreCase(email)
-                    && c.getMdp().equals(mdp)) {
-                clientConnecte = c;
-                return true;
+    /**
+     * Version asynchrone de {@link #ouvrirSession(String, String)} : la
+     * vérification du mot de passe se fait sur le groupe de fils dédié et le
+     * fil appelant n'est pas bloqué.
+     *
+     * @param email email du client
+     * @param mdp mot de passe
+     * @return le jeton futur de la session, {@code null} si
+     *         l'authentification échoue
+     */
+    public CompletableFuture<String> ouvrirSessionAsync(String email, String mdp) {
+        if (email == null || mdp == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String cle = RegistreClients.normaliser(email);
+        Client c = clientsInscrits.trouver(email);
+        if (c == null || !verification.autoriserTentative(cle)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return verification.verifier(c, mdp).thenApply(ok -> {
+            if (!ok) {
+                return null;
             }
+            verification.reinitialiser(cle);
+            return sessions.ouvrir(c).getJeton();
+        });
+    }
+
+    /**
+     * Associe une session existante au fil d'exécution courant. Les
+     * opérations suivantes de ce fil s'appliquent au client de la session.
+     *
+     * @param jeton jeton de la session
+     * @return {@code true} si la session est active, {@code false} si elle
+     *         est inconnue ou expirée
+     */
+    public boolean utiliserSession(String jeton) {
+        if (sessions.resoudre(jeton) == null) {
+            sessionCourante.remove();
+            return false;
         }
-        return false;
+        sessionCourante.set(jeton);
+        return true;
+    }
+
+    /**
+     * Retourne le jeton de la session associée au fil d'exécution courant.
+     *
+     * @return le jeton ou {@code null} si aucune session n'est associée
+     */
+    public String getJetonSession() {
+        return sessionCourante.get();
+    }
+
+    /**
+     * Retourne le gestionnaire des sessions (durée d'inactivité, purge).
+     *
+     * @return le gestionnaire des sessions
+     */
+    public GestionSessions getSessions() {
+        return sessions;
     }
 
     /**
-     * Déconnecte le client actuellement connecté.
+     * Retourne le service de vérification des identifiants.
+     *
+     * @return le service de vérification
+     */
+    public VerificationIdentifiants getVerification() {
+        return verification;
+    }
+
+    /**
+     * Déconnecte le client de la session courante.
      *
      * @throws NonConnecteException si aucun client n'est connecté
      */
     @Override
     public void deconnexion() throws NonConnecteException {
-        if (clientConnecte == null) {
+        String jeton = sessionCourante.get();
+        sessionCourante.remove();
+        if (!sessions.fermer(jeton)) {
+            throw new NonConnecteException();
+        }
+    }
+
+    /**
+     * Retourne le client de la session courante.
+     *
+     * @return le client connecté
+     * @throws NonConnecteException si aucune session active n'est associée
+     *         au fil d'exécution courant
+     */
+    private Client clientConnecte() throws NonConnecteException {
+        Session session = sessions.resoudre(sessionCourante.get());
+        if (session == null) {
             throw new NonConnecteException();
         }
-        clientConnecte = null;
+        return session.getClient();
+    }
+
+    /**
+     * Retourne les filtres de la session courante, ou les filtres anonymes
+     * du fil courant en l'absence de session. Ces derniers sont conservés
+     * d'un appel à l'autre, pour filtrer le catalogue sans être connecté.
+     *
+     * @return les filtres à utiliser
+     */
+    private Session.Filtres filtres() {
+        Session session = sessions.resoudre(sessionCourante.get());
+        return session == null ? filtresAnonymes.get() : session.getFiltres();
     }
 
 
@@ -176,10 +363,26 @@ public class GestionClient implements InterClient {
      */
     @Override
     public Commande debuterCommande() throws NonConnecteException {
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
+        return clientConnecte().creerCommande();
+    }
+
+    /**
+     * Retrouve une commande du client connecté par son identifiant.
+     *
+     * @param id identifiant de la commande
+     * @return la commande
+     * @throws NonConnecteException si aucun client n'est connecté
+     * @throws CommandeException si le client n'a pas de commande de cet
+     *         identifiant
+     */
+    public Commande trouverCommande(int id)
+            throws NonConnecteException, CommandeException {
+        for (Commande c : clientConnecte().getCommandes()) {
+            if (c.getId() == id) {
+                return c;
+            }
         }
-        return clientConnecte.creerCommande();
+        throw new CommandeException("Commande inconnue");
     }
 
     /**
@@ -195,9 +398,7 @@ public class GestionClient implements InterClient {
     public void ajouterPizza(Pizza pizza, int nombre, Commande cmd)
             throws NonConnecteException, CommandeException {
 
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
-        }
+        Client clientConnecte = clientConnecte();
         if (pizza == null || cmd == null || nombre <= 0) {
             throw new CommandeException("Paramètres invalides");
         }
@@ -205,9 +406,7 @@ public class GestionClient implements InterClient {
             throw new CommandeException("Commande inconnue");
         }
 
-        for (int i = 0; i < nombre; i++) {
-            cmd.ajouterPizza(pizza);
-        }
+        cmd.ajouterPizza(pizza, nombre);
     }
 
     /**
@@ -221,9 +420,7 @@ public class GestionClient implements InterClient {
     public void validerCommande(Commande cmd)
             throws NonConnecteException, CommandeException {
 
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
-        }
+        Client clientConnecte = clientConnecte();
         if (cmd == null || !clientConnecte.getCommandes().contains(cmd)) {
             throw new CommandeException("Commande inconnue");
         }
@@ -241,9 +438,7 @@ public class GestionClient implements InterClient {
     public void annulerCommande(Commande cmd)
             throws NonConnecteException, CommandeException {
 
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
-        }
+        Client clientConnecte = clientConnecte();
         if (cmd == null || !clientConnecte.getCommandes().contains(cmd)) {
             throw new CommandeException("Commande inconnue");
         }
@@ -258,9 +453,7 @@ public class GestionClient implements InterClient {
      */
     @Override
     public List<Commande> getCommandesEncours() throws NonConnecteException {
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
-        }
+        Client clientConnecte = clientConnecte();
         return clientConnecte.getCommandes().stream()
                 .filter(c -> c.getEtat() == EtatCommande.CREE)
                 .sorted((c1, c2) -> c1.getDateCreation().compareTo(c2.getDateCreation()))
@@ -275,9 +468,7 @@ public class GestionClient implements InterClient {
      */
     @Override
     public List<Commande> getCommandePassees() throws NonConnecteException {
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
-        }
+        Client clientConnecte = clientConnecte();
         return clientConnecte.getCommandes().stream()
                 .filter(c -> c.getEtat() != EtatCommande.CREE)
                 .sorted(Comparator.comparing(Commande::getDateCreation))
@@ -298,6 +489,19 @@ public class GestionClient implements InterClient {
         return Collections.unmodifiableSet(pizzas);
     }
 
+    /**
+     * Retourne les pizzas de la mieux notée à la moins bien notée.
+     *
+     * @return liste des pizzas triées (non triée si aucun gestionnaire
+     *         pizzaiolo n'est associé)
+     */
+    public List<Pizza> getPizzasParNote() {
+        if (gestionPizzaiolo == null) {
+            return new ArrayList<>(pizzas);
+        }
+        return gestionPizzaiolo.pizzasParNote();
+    }
+
     /**
      * Ajoute un filtre sur le type de pizza.
      *
@@ -305,7 +509,7 @@ public class GestionClient implements InterClient {
      */
     @Override
     public void ajouterFiltre(TypePizza type) {
-        this.filtreType = type;
+        filtres().type = type;
     }
 
     /**
@@ -315,9 +519,10 @@ public class GestionClient implements InterClient {
      */
     @Override
     public void ajouterFiltre(String... ingredients) {
+        Session.Filtres filtres = filtres();
         for (String i : ingredients) {
             if (i != null && !i.isBlank()) {
-                filtreIngredients.add(i.toLowerCase());
+                filtres.ingredients.add(i.toLowerCase());
             }
         }
     }
@@ -330,26 +535,71 @@ public class GestionClient implements InterClient {
     @Override
     public void ajouterFiltre(double prixMaximum) {
         if (prixMaximum > 0) {
-            this.filtrePrixMax = prixMaximum;
+            filtres().prixMax = prixMaximum;
         }
     }
 
     /**
-     * Sélectionne les pizzas correspondant aux filtres actifs.
+     * Sélectionne les pizzas correspondant aux filtres actifs, hors pizzas
+     * indisponibles faute de stock.
      *
      * @return ensemble des pizzas filtrées
      */
     @Override
     public Set<Pizza> selectionPizzaFiltres() {
-        return pizzas.stream()
-                .filter(p -> filtreType == null || p.getType() == filtreType)
-                .filter(p -> filtrePrixMax == null || p.getPrixVente() <= filtrePrixMax)
-                .filter(p -> filtreIngredients.isEmpty() ||
-                        p.getIngredients().stream()
-                                .map(i -> i.getNom().toLowerCase())
-                                .collect(Collectors.toSet())
-                                .containsAll(filtreIngredients))
-                .collect(Collectors.toSet());
+        Session.Filtres filtres = filtres();
+        return selectionPizzas(filtres.type, filtres.ingredients, filtres.prixMax);
+    }
+
+    /**
+     * Sélectionne les pizzas correspondant à des filtres donnés, sans
+     * utiliser ni modifier les filtres de la session. Les pizzas
+     * indisponibles faute de stock ({@link Pizza#estDisponible()}) sont
+     * écartées.
+     *
+     * @param type type de pizza, ou {@code null} pour tous les types
+     * @param ingredients noms (en minuscules) des ingrédients requis
+     * @param prixMax prix maximum, ou {@code null} pour aucun maximum
+     * @return ensemble des pizzas filtrées
+     */
+    public Set<Pizza> selectionPizzas(TypePizza type, Set<String> ingredients, Double prixMax) {
+        RequeteFiltres evenement = new RequeteFiltres();
+        evenement.begin();
+        Set<Pizza> resultat = new HashSet<>();
+        for (Pizza p : pizzas) {
+            if (!p.estDisponible()) continue;
+            if (type != null && p.getType() != type) continue;
+            if (prixMax != null && p.getPrixVente() > prixMax) continue;
+            if (contientTousIngredients(p, ingredients)) {
+                resultat.add(p);
+            }
+        }
+        evenement.end();
+        if (evenement.shouldCommit()) {
+            evenement.type = type == null ? "" : type.name();
+            evenement.ingredients = String.join(",", ingredients);
+            evenement.nombreIngredients = ingredients.size();
+            evenement.prixMax = prixMax == null ? -1 : prixMax;
+            evenement.resultats = resultat.size();
+            evenement.commit();
+        }
+        return resultat;
+    }
+
+    /**
+     * Indique si une pizza contient tous les ingrédients du filtre.
+     *
+     * @param p pizza à tester
+     * @param noms noms des ingrédients filtrés, en minuscules
+     * @return {@code true} si tous les ingrédients filtrés sont présents
+     */
+    private static boolean contientTousIngredients(Pizza p, Set<String> noms) {
+        for (String nom : noms) {
+            if (!p.contientIngredient(nom)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -357,9 +607,24 @@ public class GestionClient implements InterClient {
      */
     @Override
     public void supprimerFiltres() {
-        filtreType = null;
-        filtreIngredients.clear();
-        filtrePrixMax = null;
+        filtres().vider();
+    }
+
+    /**
+     * Suggère au client connecté des pizzas à partir de l'historique des
+     * commandes traitées.
+     *
+     * @param nombre nombre maximum de suggestions
+     * @return les pizzas suggérées (liste vide si aucun gestionnaire
+     *         pizzaiolo n'est associé)
+     * @throws NonConnecteException si aucun client n'est connecté
+     */
+    public List<Pizza> suggestionsClientConnecte(int nombre) throws NonConnecteException {
+        Client clientConnecte = clientConnecte();
+        if (gestionPizzaiolo == null) {
+            return new ArrayList<>();
+        }
+        return gestionPizzaiolo.suggestionsPourClient(clientConnecte, nombre);
     }
 
    
@@ -370,12 +635,31 @@ public class GestionClient implements InterClient {
      * Retourne les évaluations d'une pizza.
      *
      * @param pizza pizza concernée
-     * @return ensemble des évaluations ou {@code null} si la pizza est nulle
+     * @return vue non modifiable des évaluations ou {@code null} si la pizza
+     *         est nulle
      */
     @Override
     public Set<Evaluation> getEvaluationsPizza(Pizza pizza) {
         if (pizza == null) return null;
-        return new HashSet<>(pizza.getEvaluations());
+        List<Evaluation> evaluations = pizza.getEvaluations();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Evaluation> iterator() {
+                return evaluations.iterator();
+            }
+
+            @Override
+            public int size() {
+                return evaluations.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Evaluation
+                        && ((Evaluation) o).getPizza() == pizza
+                        && pizza.estEvalueePar(((Evaluation) o).getClient());
+            }
+        };
     }
 
     /**
@@ -387,12 +671,7 @@ public class GestionClient implements InterClient {
     @Override
     public double getNoteMoyenne(Pizza pizza) {
         if (pizza == null) return -2;
-        if (pizza.getEvaluations().isEmpty()) return -1;
-
-        return pizza.getEvaluations().stream()
-                .mapToInt(Evaluation::getNote)
-                .average()
-                .orElse(-1);
+        return pizza.getNoteMoyenne();
     }
 
     /**
@@ -409,33 +688,22 @@ public class GestionClient implements InterClient {
     public boolean ajouterEvaluation(Pizza pizza, int note, String commentaire)
             throws NonConnecteException, CommandeException {
 
-        if (clientConnecte == null) {
-            throw new NonConnecteException();
-        }
+        Client clientConnecte = clientConnecte();
         if (pizza == null || note < 0 || note > 5) {
             return false;
         }
 
-        boolean aCommande = clientConnecte.getCommandes().stream()
-                .filter(c -> c.getEtat() == EtatCommande.TRAITEE)
-                .flatMap(c -> c.getPizzas().stream())
-                .anyMatch(p -> p.equals(pizza));
-
-        if (!aCommande) {
+        if (!clientConnecte.aAchete(pizza)) {
             throw new CommandeException("Pizza jamais commandée");
         }
 
-        boolean dejaEvaluee = pizza.getEvaluations().stream()
-                .anyMatch(e -> e.getClient().equals(clientConnecte));
-
-        if (dejaEvaluee) {
+        if (pizza.estEvalueePar(clientConnecte)) {
             return false;
         }
 
-        pizza.ajouterEvaluation(
+        return pizza.ajouterEvaluation(
                 new Evaluation(clientConnecte, pizza, note, commentaire)
         );
-        return true;
     }
 }
 
@@ -1,7 +1,6 @@
 package pizzas;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
@@ -10,8 +9,27 @@ import java.util.HashSet;
 import java.util.Collections;
 import java.util.stream.Collectors;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import metriques.Chronometre;
+import metriques.RegistreMetriques;
+import profilage.CalculStatistique;
 
 /**
  * Implémentation des services du pizzaïolo.
@@ -24,6 +42,48 @@ import java.io.Serializable;
  *   <li>le calcul des statistiques et bénéfices</li>
  * </ul>
  * </p>
+ * <p>
+ * Les fenêtres client et pizzaïolo partagent la même instance : toutes les
+ * méthodes publiques peuvent être appelées depuis plusieurs fils. Les
+ * modifications prennent le verrou en écriture d'un {@link StampedLock} pour
+ * une section courte ; les consultations et statistiques, qui parcourent des
+ * collections modifiables, prennent le verrou en lecture. Seuls les
+ * compteurs des métriques, simples lectures de champs primitifs, sont lus
+ * en lecture optimiste, sans verrou. Les pizzas et les ingrédients
+ * sont de plus rangés dans des collections concurrentes, si bien que les
+ * vues retournées par {@link #getPizzas()} et {@link #getIngredients()}
+ * peuvent être parcourues sans verrou.
+ * </p>
+ * <p>
+ * En mode {@link ModeExecution#ECRIVAIN_UNIQUE}, les modifications ne sont
+ * plus appliquées par le fil appelant mais confiées à un fil écrivain qui les
+ * applique par lots, dans l'ordre de soumission, en ne prenant le verrou
+ * qu'une fois par lot. Un {@link InstantaneCatalogue} immuable est publié
+ * après chaque lot.
+ * </p>
+ * <p>
+ * Les commandes traitées sont conservées par colonnes. Après
+ * {@link #configurerArchivage(Duration, Path)}, celles qui dépassent un âge
+ * donné sont déplacées hors tas à chaque traitement ; les statistiques et
+ * les consultations de l'historique les voient toujours.
+ * </p>
+ * <p>
+ * L'historique et les statistiques par client sont indexés par l'identifiant
+ * numérique immuable du client ({@link Client#getId()}), exposé par
+ * {@link #commandesTraiteesClient(int)}, {@link #beneficeClient(int)} et
+ * {@link #nombrePizzasCommandeesClient(int)}, qui distinguent deux clients
+ * aux informations égales. Les tables par {@link InformationPersonnelle} de
+ * {@link InterPizzaiolo} en sont dérivées et gardent leur contrat : leurs
+ * clés sont comparées par {@code equals}, et les clients aux informations
+ * égales y partagent une entrée.
+ * </p>
+ * <p>
+ * Le stock des ingrédients n'est suivi que pour les ingrédients dont la
+ * quantité a été fixée par {@link #definirStock(String, long)}. La
+ * validation d'une commande réserve ses ingrédients, son traitement les
+ * consomme ; ces opérations se font sur des compteurs atomiques, hors du
+ * verrou du gestionnaire.
+ * </p>
  */
 public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
 
@@ -32,39 +92,125 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Stock d'un ingrédient dont la quantité n'est pas suivie.
+     */
+    public static final long STOCK_ILLIMITE = StockIngredients.ILLIMITE;
+
     /* =========================
        DONNÉES
        ========================= */
 
+    /**
+     * Dictionnaire des ingrédients du gestionnaire, recréé au chargement.
+     */
+    private transient DictionnaireIngredients dictionnaire = new DictionnaireIngredients();
+
     /**
      * Ingrédients disponibles (clé = nom en minuscule).
      */
-    private final Map<String, Ingredient> ingredients = new HashMap<>();
+    private final ConcurrentHashMap<String, Ingredient> ingredients = new ConcurrentHashMap<>();
 
     /**
-     * Ingrédients interdits par type de pizza.
+     * Règles des ingrédients interdits par type de pizza.
      */
-    private final Map<TypePizza, Set<String>> ingredientsInterdits = new HashMap<>();
+    private final ReglesIngredients regles = new ReglesIngredients();
 
     /**
      * Ensemble des pizzas créées.
      */
-    private final Set<Pizza> pizzas = new HashSet<>();
+    private final ConcurrentHashMap.KeySetView<Pizza, Boolean> pizzas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Pizzas indexées par identifiant, reconstruit au chargement.
+     */
+    private transient Map<Integer, Pizza> pizzasParId = new ConcurrentHashMap<>();
+
+    /**
+     * Stock des ingrédients, réservé par la validation des commandes.
+     */
+    private final StockIngredients stock = new StockIngredients(dictionnaire);
 
     /**
      * Liste des commandes non encore traitées.
      */
-    private final List<Commande> commandesNonTraitees = new ArrayList<>();
+    private final ArrayList<Commande> commandesNonTraitees = new ArrayList<>();
+
+    /**
+     * Historique des commandes déjà traitées, stocké par colonnes.
+     */
+    private final CommandesTraitees commandesTraitees = new CommandesTraitees();
 
     /**
-     * Liste des commandes déjà traitées.
+     * Âge à partir duquel une commande traitée est archivée hors tas, ou
+     * {@code null} sans archivage.
      */
-    private final List<Commande> commandesTraitees = new ArrayList<>();
+    private Duration ageArchivage;
 
     /**
      * Ensemble des clients enregistrés.
      */
-    private final Set<Client> clients = new HashSet<>();
+    private final HashSet<Client> clients = new HashSet<>();
+
+    /**
+     * Index des pizzas similaires, reconstruit au chargement.
+     */
+    private transient SimilaritePizzas similarite = new SimilaritePizzas();
+
+    /**
+     * Recommandations issues des commandes traitées, reconstruites au
+     * chargement.
+     */
+    private transient RecommandationCommandes recommandation = new RecommandationCommandes();
+
+    /**
+     * Classement des pizzas par note, reconstruit au chargement.
+     */
+    private transient ClassementNotes classementNotes = new ClassementNotes();
+
+    /**
+     * Bus des événements du domaine, publiés à chaque modification.
+     */
+    private transient BusEvenements bus = new BusEvenements();
+
+    /**
+     * Verrou protégeant les données du gestionnaire.
+     */
+    private transient StampedLock verrou = new StampedLock();
+
+    /**
+     * Fil détenant le verrou en écriture, ou {@code null}. Une modification
+     * soumise peut ainsi appeler les méthodes publiques du gestionnaire sans
+     * redemander un verrou qui n'est pas réentrant.
+     */
+    private transient volatile Thread proprietaire;
+
+    /**
+     * Fil écrivain du mode {@link ModeExecution#ECRIVAIN_UNIQUE}, ou
+     * {@code null} en mode {@link ModeExecution#VERROUS}.
+     */
+    private transient volatile BoucleEcriture boucle;
+
+    /**
+     * Dernier instantané publié par le fil écrivain.
+     */
+    private transient volatile InstantaneCatalogue instantane;
+
+    /**
+     * Numéro du prochain instantané.
+     */
+    private transient AtomicLong versionInstantane = new AtomicLong();
+
+    /**
+     * Durées des sauvegardes, ou {@code null} sans registre de métriques.
+     */
+    private transient volatile Chronometre chronoSauvegarde;
+
+    /**
+     * Durées de construction des instantanés, ou {@code null} sans registre
+     * de métriques.
+     */
+    private transient volatile Chronometre chronoInstantane;
 
     /**
      * Référence transiente vers un gestionnaire pizzaiolo.
@@ -85,13 +231,371 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
        ========================= */
 
     /**
-     * Construit un gestionnaire pizzaiolo et initialise
-     * les listes d'ingrédients interdits pour chaque type de pizza.
+     * Construit un gestionnaire pizzaiolo. Les ingrédients interdits par
+     * défaut de chaque type de pizza sont repris par le moteur de règles.
      */
     public GestionPizzaiolo() {
-        for (TypePizza t : TypePizza.values()) {
-            ingredientsInterdits.put(t, new HashSet<>());
+        stock.setBus(bus);
+    }
+
+    /**
+     * Relit le gestionnaire en enregistrant ses ingrédients dans un nouveau
+     * dictionnaire, puis recompile les règles d'ingrédients, les
+     * identifiants ayant été réattribués.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        dictionnaire = new DictionnaireIngredients();
+        dictionnaire.charger(in::defaultReadObject);
+        verrou = new StampedLock();
+        versionInstantane = new AtomicLong();
+        regles.compiler(ingredients.values());
+        similarite = new SimilaritePizzas(pizzas);
+        recommandation = RecommandationCommandes.reconstruire(commandesTraitees.commandes(id -> true));
+        classementNotes = new ClassementNotes();
+        bus = new BusEvenements();
+        stock.setBus(bus);
+        pizzasParId = new ConcurrentHashMap<>();
+        for (Pizza p : pizzas) {
+            pizzasParId.put(p.getId(), p);
+            p.setClassement(classementNotes);
+            p.setBus(bus);
+            p.setStock(stock);
+            classementNotes.ajouter(p);
+        }
+        stock.indexer(pizzas);
+    }
+
+    /**
+     * Sérialise le gestionnaire sous verrou en lecture, pour ne pas écrire
+     * un état en cours de modification.
+     *
+     * @param out flux d'écriture
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Chronometre chrono = chronoSauvegarde;
+        long debut = System.nanoTime();
+        try {
+            lire(() -> {
+                try {
+                    out.defaultWriteObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (chrono != null) {
+                chrono.arreter(debut);
+            }
+        }
+    }
+
+    /**
+     * Publie dans un registre les métriques internes du gestionnaire :
+     * <ul>
+     *   <li>{@code pizzaiolo.commandes.enAttente} et
+     *       {@code pizzaiolo.commandes.traitees}</li>
+     *   <li>{@code pizzaiolo.ecriture.enAttente} : modifications en file en
+     *       mode {@link ModeExecution#ECRIVAIN_UNIQUE}</li>
+     *   <li>{@code pizzaiolo.commandes.archivees} et
+     *       {@code pizzaiolo.archive.octets} : commandes archivées hors tas
+     *       et octets qu'elles occupent</li>
+     *   <li>{@code pizzaiolo.bus.sequence} : événements publiés</li>
+     *   <li>{@code pizzaiolo.sauvegarde} et {@code pizzaiolo.instantane} :
+     *       durées des sauvegardes et des instantanés</li>
+     * </ul>
+     * Les appels aux méthodes de {@link InterPizzaiolo} se mesurent en
+     * enveloppant le gestionnaire par
+     * {@link metriques.Instrumentation#instrumenter}.
+     *
+     * @param registre registre recevant les métriques
+     */
+    public void enregistrerMetriques(RegistreMetriques registre) {
+        registre.jauge("pizzaiolo.commandes.enAttente", () -> lireCompteur(commandesNonTraitees::size));
+        registre.jauge("pizzaiolo.commandes.traitees", () -> lireCompteur(commandesTraitees::taille));
+        registre.jauge("pizzaiolo.ecriture.enAttente", () -> {
+            BoucleEcriture b = boucle;
+            return b == null ? 0 : b.enAttente();
+        });
+        registre.jauge("pizzaiolo.commandes.archivees", () -> lireCompteur(commandesTraitees::archivees));
+        registre.jauge("pizzaiolo.archive.octets", () -> lireCompteur(commandesTraitees::octetsArchives));
+        registre.jauge("pizzaiolo.bus.sequence", () -> bus.getSequence());
+        chronoSauvegarde = registre.chronometre("pizzaiolo.sauvegarde");
+        chronoInstantane = registre.chronometre("pizzaiolo.instantane");
+    }
+
+    /**
+     * Exécute une consultation sous verrou en lecture, ou directement si le
+     * fil courant détient déjà le verrou en écriture. La consultation ne doit
+     * rien modifier ni appeler de méthode publique du gestionnaire (le
+     * verrou en lecture n'est pas réentrant).
+     *
+     * @param <T> type du résultat
+     * @param lecture consultation à exécuter
+     * @return le résultat de la consultation
+     */
+    private <T> T lire(Supplier<T> lecture) {
+        if (detientEcriture()) {
+            return lecture.get();
+        }
+        long stamp = verrou.readLock();
+        try {
+            return lecture.get();
+        } finally {
+            verrou.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Lit un compteur en lecture optimiste, puis sous verrou en lecture si
+     * une écriture l'a invalidée. La lecture doit se limiter à des champs
+     * primitifs : sans verrou, un parcours de collection pourrait voir un
+     * état incohérent ou échouer.
+     *
+     * @param lecture lecture du compteur
+     * @return la valeur du compteur
+     */
+    private long lireCompteur(LongSupplier lecture) {
+        if (detientEcriture()) {
+            return lecture.getAsLong();
+        }
+        long stamp = verrou.tryOptimisticRead();
+        long valeur = lecture.getAsLong();
+        if (stamp != 0 && verrou.validate(stamp)) {
+            return valeur;
+        }
+        stamp = verrou.readLock();
+        try {
+            return lecture.getAsLong();
+        } finally {
+            verrou.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Exécute un calcul de statistique sous verrou en lecture, en le
+     * signalant par un événement {@link CalculStatistique} s'il dépasse le
+     * seuil d'enregistrement.
+     *
+     * @param <T> type du résultat
+     * @param calcul nom du calcul
+     * @param lecture calcul à exécuter
+     * @return le résultat du calcul
+     */
+    private <T> T statistique(String calcul, Supplier<T> lecture) {
+        CalculStatistique evenement = new CalculStatistique();
+        evenement.begin();
+        T resultat = lire(lecture);
+        evenement.end();
+        if (evenement.shouldCommit()) {
+            evenement.calcul = calcul;
+            evenement.commandes = commandesTraitees.taille();
+            evenement.commit();
+        }
+        return resultat;
+    }
+
+    /**
+     * Exécute une modification sous verrou en écriture, ou directement si le
+     * fil courant le détient déjà (modification soumise, lot du fil
+     * écrivain).
+     *
+     * @param <T> type du résultat
+     * @param ecriture modification à exécuter
+     * @return le résultat de la modification
+     */
+    private <T> T ecrire(Supplier<T> ecriture) {
+        if (detientEcriture()) {
+            return ecriture.get();
+        }
+        CompletableFuture<T> resultat = confier(ecriture);
+        if (resultat != null) {
+            try {
+                return resultat.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return sousVerrouEcriture(ecriture);
+    }
+
+    /**
+     * Prend le verrou en écriture, en notant le fil qui le détient, et
+     * exécute une modification.
+     *
+     * @param <T> type du résultat
+     * @param ecriture modification à exécuter
+     * @return le résultat de la modification
+     */
+    private <T> T sousVerrouEcriture(Supplier<T> ecriture) {
+        long stamp = verrou.writeLock();
+        proprietaire = Thread.currentThread();
+        try {
+            return ecriture.get();
+        } finally {
+            proprietaire = null;
+            verrou.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Indique si le fil courant détient le verrou en écriture.
+     *
+     * @return {@code true} dans une modification en cours
+     */
+    private boolean detientEcriture() {
+        return proprietaire == Thread.currentThread();
+    }
+
+    /**
+     * Confie une modification au fil écrivain. Si la boucle est arrêtée
+     * entre sa lecture et la soumission, attend l'arrêt du fil écrivain
+     * ({@link BoucleEcriture#attendreArret()}) puis rend la main pour que la
+     * modification soit appliquée sous verrou : elle passe ainsi après toutes
+     * celles que la boucle avait acceptées.
+     *
+     * @param <T> type du résultat
+     * @param modification modification à appliquer
+     * @return le résultat futur, ou {@code null} en mode
+     *         {@link ModeExecution#VERROUS} ou depuis le fil écrivain
+     */
+    private <T> CompletableFuture<T> confier(Supplier<T> modification) {
+        BoucleEcriture b = boucle;
+        if (b == null || b.estFilEcrivain()) {
+            return null;
+        }
+        try {
+            return b.soumettre(modification);
+        } catch (IllegalStateException e) {
+            b.attendreArret();
+            return null;
+        }
+    }
+
+    /**
+     * Retourne le bus des événements du domaine : changements de prix,
+     * créations de pizzas, commandes validées et traitées, évaluations.
+     *
+     * @return le bus d'événements
+     */
+    public BusEvenements getBus() {
+        return bus;
+    }
+
+    /**
+     * Change le mode d'exécution des modifications. Le passage en mode
+     * {@link ModeExecution#VERROUS} attend que le fil écrivain ait appliqué
+     * les modifications déjà soumises ; une modification refusée par la
+     * boucle arrêtée attend elle aussi cet arrêt avant de prendre le verrou,
+     * si bien que l'ordre de soumission est conservé. Les changements de
+     * mode sont sérialisés entre eux.
+     *
+     * @param mode nouveau mode
+     * @throws InterruptedException si l'attente de l'arrêt du fil écrivain est
+     *         interrompue
+     */
+    public synchronized void setModeExecution(ModeExecution mode)
+            throws InterruptedException {
+        if (mode == getModeExecution()) {
+            return;
+        }
+        if (mode == ModeExecution.ECRIVAIN_UNIQUE) {
+            publierInstantane();
+            boucle = new BoucleEcriture("pizzaiolo-ecrivain", lot -> sousVerrouEcriture(() -> {
+                lot.run();
+                return null;
+            }), this::publierInstantane);
+        } else {
+            BoucleEcriture b = boucle;
+            b.arreter();
+            boucle = null;
+        }
+    }
+
+    /**
+     * Retourne le mode d'exécution courant.
+     *
+     * @return le mode d'exécution
+     */
+    public ModeExecution getModeExecution() {
+        return boucle == null ? ModeExecution.VERROUS : ModeExecution.ECRIVAIN_UNIQUE;
+    }
+
+    /**
+     * Soumet une suite de modifications à appliquer d'un seul tenant, par
+     * exemple {@code gp.soumettre(() -> gp.creerPizza("Reine", TypePizza.VIANDE))}.
+     * La modification s'exécute sous verrou en écriture et peut appeler
+     * toutes les méthodes publiques du gestionnaire, modifications comme
+     * consultations. En mode {@link ModeExecution#ECRIVAIN_UNIQUE}, la modification est mise
+     * en file et le résultat arrive une fois appliquée par le fil écrivain ;
+     * sinon elle est appliquée immédiatement sous verrou en écriture.
+     *
+     * @param <T> type du résultat
+     * @param modification modification à appliquer
+     * @return le résultat de la modification
+     */
+    public <T> CompletableFuture<T> soumettre(Supplier<T> modification) {
+        CompletableFuture<T> resultat = confier(modification);
+        if (resultat != null) {
+            return resultat;
+        }
+        try {
+            return CompletableFuture.completedFuture(ecrire(modification));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Retourne un instantané immuable du catalogue. En mode
+     * {@link ModeExecution#ECRIVAIN_UNIQUE}, c'est le dernier instantané
+     * publié, sans aucun verrou ; sinon il est construit à la demande.
+     *
+     * @return l'instantané du catalogue
+     */
+    public InstantaneCatalogue getInstantane() {
+        if (boucle != null) {
+            return instantane;
+        }
+        return lire(this::construireInstantane);
+    }
+
+    /**
+     * Construit et publie un instantané du catalogue. Appelée par le fil
+     * écrivain entre deux lots : le verrou en lecture n'est jamais disputé.
+     */
+    private void publierInstantane() {
+        Chronometre chrono = chronoInstantane;
+        long debut = System.nanoTime();
+        instantane = lire(this::construireInstantane);
+        if (chrono != null) {
+            chrono.arreter(debut);
+        }
+    }
+
+    /**
+     * Construit un instantané de l'état courant, sous verrou en lecture.
+     *
+     * @return l'instantané
+     */
+    private InstantaneCatalogue construireInstantane() {
+        Map<String, Double> prix = new HashMap<>();
+        for (Map.Entry<String, Ingredient> e : ingredients.entrySet()) {
+            prix.put(e.getKey(), e.getValue().getPrix());
         }
+        return new InstantaneCatalogue(versionInstantane.getAndIncrement(), new ArrayList<>(pizzas), prix,
+                commandesNonTraitees.size(), commandesTraitees.taille());
     }
 
     /* =========================
@@ -117,12 +621,128 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
         if (prix <= 0) return -3;
 
         String key = nom.toLowerCase();
-        if (ingredients.containsKey(key)) return -2;
+        return ecrire(() -> {
+            if (ingredients.containsKey(key)) return -2;
 
-        ingredients.put(key, new Ingredient(nom, prix));
+            Ingredient ing = new Ingredient(nom, prix, dictionnaire);
+            ingredients.put(key, ing);
+            regles.ingredientAjoute(ing);
+            return 0;
+        });
+    }
+
+    /* =========================
+       STOCK
+       ========================= */
+
+    /**
+     * Fixe la quantité en stock d'un ingrédient, réservations des commandes
+     * validées comprises. Dès lors, l'ingrédient est réservé à chaque
+     * validation de commande.
+     *
+     * @param nomIngredient nom de l'ingrédient
+     * @param quantite quantité en stock, ou {@link #STOCK_ILLIMITE} pour ne
+     *        plus suivre l'ingrédient
+     * @return code de retour :
+     * <ul>
+     *   <li>0 : succès</li>
+     *   <li>-1 : nom invalide</li>
+     *   <li>-2 : quantité négative</li>
+     *   <li>-3 : ingrédient inexistant</li>
+     * </ul>
+     */
+    public int definirStock(String nomIngredient, long quantite) {
+        if (nomIngredient == null || nomIngredient.isBlank()) return -1;
+        if (quantite < 0) return -2;
+        Ingredient ing = ingredients.get(nomIngredient.toLowerCase());
+        if (ing == null) return -3;
+
+        stock.definir(ing, quantite);
+        return 0;
+    }
+
+    /**
+     * Ajoute une livraison au stock d'un ingrédient suivi.
+     *
+     * @param nomIngredient nom de l'ingrédient
+     * @param quantite quantité livrée
+     * @return code de retour :
+     * <ul>
+     *   <li>0 : succès</li>
+     *   <li>-1 : nom invalide</li>
+     *   <li>-2 : quantité invalide</li>
+     *   <li>-3 : ingrédient inexistant</li>
+     *   <li>-4 : stock de l'ingrédient non suivi</li>
+     * </ul>
+     */
+    public int reapprovisionner(String nomIngredient, long quantite) {
+        if (nomIngredient == null || nomIngredient.isBlank()) return -1;
+        if (quantite <= 0) return -2;
+        Ingredient ing = ingredients.get(nomIngredient.toLowerCase());
+        if (ing == null) return -3;
+
+        return stock.reapprovisionner(ing, quantite) ? 0 : -4;
+    }
+
+    /**
+     * Fixe le seuil sous lequel le stock disponible d'un ingrédient est
+     * signalé par un événement {@link TypeEvenement#STOCK_BAS}.
+     *
+     * @param nomIngredient nom de l'ingrédient
+     * @param seuil seuil d'alerte, 0 pour aucune alerte
+     * @return code de retour :
+     * <ul>
+     *   <li>0 : succès</li>
+     *   <li>-1 : nom invalide</li>
+     *   <li>-2 : seuil négatif</li>
+     *   <li>-3 : ingrédient inexistant</li>
+     * </ul>
+     */
+    public int definirSeuilAlerte(String nomIngredient, long seuil) {
+        if (nomIngredient == null || nomIngredient.isBlank()) return -1;
+        if (seuil < 0) return -2;
+        Ingredient ing = ingredients.get(nomIngredient.toLowerCase());
+        if (ing == null) return -3;
+
+        stock.definirSeuil(ing, seuil);
         return 0;
     }
 
+    /**
+     * Retourne le stock disponible d'un ingrédient, hors réservations.
+     *
+     * @param nomIngredient nom de l'ingrédient
+     * @return la quantité disponible, {@link #STOCK_ILLIMITE} si le stock
+     *         n'est pas suivi, ou -1 si l'ingrédient n'existe pas
+     */
+    public long getStockDisponible(String nomIngredient) {
+        Ingredient ing = nomIngredient == null ? null : ingredients.get(nomIngredient.toLowerCase());
+        return ing == null ? -1 : stock.disponible(ing.getId());
+    }
+
+    /**
+     * Retourne la quantité d'un ingrédient réservée par les commandes
+     * validées et non encore traitées.
+     *
+     * @param nomIngredient nom de l'ingrédient
+     * @return la quantité réservée, ou -1 si l'ingrédient n'existe pas
+     */
+    public long getStockReserve(String nomIngredient) {
+        Ingredient ing = nomIngredient == null ? null : ingredients.get(nomIngredient.toLowerCase());
+        return ing == null ? -1 : stock.reserve(ing.getId());
+    }
+
+    /**
+     * Indique si le stock disponible permet de préparer une commande, sans
+     * rien réserver.
+     *
+     * @param commande commande à préparer
+     * @return {@code true} si chaque ingrédient est en quantité suffisante
+     */
+    public boolean peutPreparer(Commande commande) {
+        return commande != null && stock.suffit(commande.getLignes());
+    }
+
     /**
      * Retourne la collection des ingrédients disponibles.
      *
@@ -140,20 +760,80 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
     @Override
     public List<Commande> commandeNonTraitees() {
 
-        List<Commande> result = new ArrayList<>(commandesNonTraitees);
+        return ecrire(() -> {
+            List<Commande> result = new ArrayList<>(commandesNonTraitees);
 
-        commandesTraitees.addAll(result);
-        commandesNonTraitees.clear();
+            commandesNonTraitees.clear();
 
-        result.forEach(c -> {
-            try {
-                c.traiter();
-            } catch (Exception e) {
-                // ignore
-            }
+            result.forEach(c -> {
+                try {
+                    c.traiter();
+                } catch (Exception e) {
+                    // ignore
+                }
+                commandesTraitees.ajouter(c);
+                recommandation.enregistrer(c);
+                bus.publier(TypeEvenement.COMMANDE_TRAITEE, c, c.getId(), c.getPrixTotal());
+            });
+            archiverAnciennes();
+
+            return result;
         });
+    }
+
+    /**
+     * Active l'archivage hors tas des commandes traitées. Les commandes
+     * créées depuis plus de {@code age} quittent le tas à chaque traitement,
+     * ou lors d'un appel à {@link #archiverCommandes()}. Un nouvel appel
+     * change l'âge et déplace l'archive vers le nouveau support.
+     *
+     * @param age âge d'archivage
+     * @param repertoire répertoire des fichiers projetés en mémoire qui
+     *        portent l'archive, ou {@code null} pour de la mémoire directe
+     * @throws IOException si les fichiers ne peuvent pas être créés
+     * @throws IllegalArgumentException si l'âge est nul ou négatif
+     */
+    public void configurerArchivage(Duration age, Path repertoire) throws IOException {
+        if (age == null || age.isNegative()) {
+            throw new IllegalArgumentException("Âge d'archivage invalide");
+        }
+        try {
+            ecrire(() -> {
+                try {
+                    commandesTraitees.activerArchive(repertoire);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ageArchivage = age;
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        return result;
+    /**
+     * Archive immédiatement les commandes traitées ayant dépassé l'âge
+     * d'archivage.
+     *
+     * @return le nombre de commandes archivées, 0 sans archivage configuré
+     */
+    public int archiverCommandes() {
+        return ecrire(this::archiverAnciennes);
+    }
+
+    /**
+     * Déplace hors tas les commandes ayant dépassé l'âge d'archivage. Doit
+     * être appelée sous verrou en écriture.
+     *
+     * @return le nombre de commandes archivées
+     */
+    private int archiverAnciennes() {
+        if (ageArchivage == null) {
+            return 0;
+        }
+        LocalDateTime limite = LocalDateTime.now().minus(ageArchivage);
+        return commandesTraitees.archiver(limite.toInstant(ZoneOffset.UTC).toEpochMilli());
     }
 
     /**
@@ -174,11 +854,14 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
         if (nom == null || nom.isBlank()) return -1;
         if (prix <= 0) return -2;
 
-        Ingredient ing = ingredients.get(nom.toLowerCase());
-        if (ing == null) return -3;
+        return ecrire(() -> {
+            Ingredient ing = ingredients.get(nom.toLowerCase());
+            if (ing == null) return -3;
 
-        ing.setPrix(prix);
-        return 0;
+            ing.setPrix(prix);
+            bus.publier(TypeEvenement.PRIX_INGREDIENT_CHANGE, ing, ing.getId(), prix);
+            return 0;
+        });
     }
 
     /**
@@ -195,14 +878,14 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
             return false;
         }
 
-        Ingredient ing = ingredients.get(nomIngredient.toLowerCase());
-        if (ing == null) {
-            return false;
-        }
+        return ecrire(() -> {
+            Ingredient ing = ingredients.get(nomIngredient.toLowerCase());
+            if (ing == null) {
+                return false;
+            }
 
-        return ingredientsInterdits
-                .get(type)
-                .add(nomIngredient.toLowerCase());
+            return regles.interdire(ing, type);
+        });
     }
 
     /* =========================
@@ -220,13 +903,22 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
     public Pizza creerPizza(String nom, TypePizza type) {
         if (nom == null || nom.isBlank() || type == null) return null;
 
-        for (Pizza p : pizzas) {
-            if (p.getNom().equalsIgnoreCase(nom)) return null;
-        }
+        return ecrire(() -> {
+            for (Pizza p : pizzas) {
+                if (p.getNom().equalsIgnoreCase(nom)) return null;
+            }
 
-        Pizza pizza = new Pizza(nom, type);
-        pizzas.add(pizza);
-        return pizza;
+            Pizza pizza = new Pizza(nom, type);
+            pizzas.add(pizza);
+            pizzasParId.put(pizza.getId(), pizza);
+            similarite.mettreAJour(pizza);
+            pizza.setClassement(classementNotes);
+            pizza.setBus(bus);
+            pizza.setStock(stock);
+            classementNotes.ajouter(pizza);
+            bus.publier(TypeEvenement.PIZZA_CREEE, pizza, pizza.getId(), 0);
+            return pizza;
+        });
     }
 
     /**
@@ -238,19 +930,26 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public int ajouterIngredientPizza(Pizza pizza, String nomIngredient) {
-        if (pizza == null || !pizzas.contains(pizza)) return -1;
+        if (pizza == null) return -1;
         if (nomIngredient == null || nomIngredient.isBlank()) return -2;
 
         String key = nomIngredient.toLowerCase();
-        Ingredient ing = ingredients.get(key);
-        if (ing == null) return -2;
+        return ecrire(() -> {
+            if (!pizzas.contains(pizza)) return -1;
+            Ingredient ing = ingredients.get(key);
+            if (ing == null) return -2;
 
-        if (ingredientsInterdits.get(pizza.getType()).contains(key)) {
-            return -3;
-        }
+            if (regles.estInterdit(pizza.getType(), ing.getId())) {
+                return -3;
+            }
 
-        boolean ajoute = pizza.ajouterIngredient(ing);
-        return ajoute ? 0 : 1;
+            boolean ajoute = pizza.ajouterIngredient(ing);
+            if (ajoute) {
+                similarite.mettreAJour(pizza);
+                stock.recetteModifiee(pizza, ing, true);
+            }
+            return ajoute ? 0 : 1;
+        });
     }
 
     /**
@@ -261,12 +960,21 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public Set<String> verifierIngredientsPizza(Pizza pizza) {
-        if (pizza == null || !pizzas.contains(pizza)) return null;
+        if (pizza == null) return null;
 
-        return pizza.getIngredients().stream()
-                .map(i -> i.getNom().toLowerCase())
-                .filter(n -> ingredientsInterdits.get(pizza.getType()).contains(n))
-                .collect(Collectors.toSet());
+        return lire(() -> pizzas.contains(pizza)
+                ? regles.ingredientsInterdits(pizza)
+                : null);
+    }
+
+    /**
+     * Revérifie en parallèle toutes les pizzas du catalogue, par exemple après
+     * de nouvelles interdictions d'ingrédients.
+     *
+     * @return map pizza → ingrédients interdits, limitée aux pizzas invalides
+     */
+    public Map<Pizza, Set<String>> verifierToutesPizzas() {
+        return lire(() -> regles.verifierCatalogue(pizzas));
     }
 
     /**
@@ -278,13 +986,16 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public boolean ajouterPhoto(Pizza pizza, String file) {
-        if (pizza == null || !pizzas.contains(pizza) || file == null) return false;
+        if (pizza == null || file == null) return false;
 
         File f = new File(file);
         if (!f.exists() || !file.matches(".*\\.(png|jpg|jpeg)$")) return false;
 
-        pizza.setPhoto(file);
-        return true;
+        return ecrire(() -> {
+            if (!pizzas.contains(pizza)) return false;
+            pizza.setPhoto(file);
+            return true;
+        });
     }
 
     /**
@@ -295,8 +1006,8 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public double getPrixPizza(Pizza pizza) {
-        if (pizza == null || !pizzas.contains(pizza)) return -1;
-        return pizza.getPrixVente();
+        if (pizza == null) return -1;
+        return lire(() -> pizzas.contains(pizza) ? pizza.getPrixVente() : -1);
     }
 
     /**
@@ -309,20 +1020,18 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
     @Override
     public boolean setPrixPizza(Pizza pizza, double prix) {
 
-        if (pizza == null || !pizzas.contains(pizza)) {
+        if (pizza == null || prix <= 0) {
             return false;
         }
 
-        if (prix <= 0) {
-            return false;
-        }
-
-        if (prix < pizza.getPrixMinimal()) {
-            return false;
-        }
+        return ecrire(() -> {
+            if (!pizzas.contains(pizza) || prix < pizza.getPrixMinimal()) {
+                return false;
+            }
 
-        pizza.setPrixVente(prix);
-        return true;
+            pizza.setPrixVente(prix);
+            return true;
+        });
     }
 
     /**
@@ -339,13 +1048,19 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
             return -1;
         }
 
-        Ingredient i = ingredients.get(nomIngredient.toLowerCase());
-        if (i == null) {
-            return -2;
-        }
+        return ecrire(() -> {
+            Ingredient i = ingredients.get(nomIngredient.toLowerCase());
+            if (i == null) {
+                return -2;
+            }
 
-        boolean removed = pizza.retirerIngredient(i);
-        return removed ? 0 : -3;
+            boolean removed = pizza.retirerIngredient(i);
+            if (removed && pizzas.contains(pizza)) {
+                similarite.mettreAJour(pizza);
+                stock.recetteModifiee(pizza, i, false);
+            }
+            return removed ? 0 : -3;
+        });
     }
 
     /**
@@ -356,8 +1071,8 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public double calculerPrixMinimalPizza(Pizza pizza) {
-        if (pizza == null || !pizzas.contains(pizza)) return -1;
-        return pizza.getPrixMinimal();
+        if (pizza == null) return -1;
+        return lire(() -> pizzas.contains(pizza) ? pizza.getPrixMinimal() : -1);
     }
 
     /**
@@ -370,6 +1085,57 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
         return Collections.unmodifiableSet(pizzas);
     }
 
+    /**
+     * Retrouve une pizza par son identifiant.
+     *
+     * @param id identifiant de la pizza
+     * @return la pizza, ou {@code null} si elle n'existe pas
+     */
+    public Pizza trouverPizza(int id) {
+        return pizzasParId.get(id);
+    }
+
+    /**
+     * Retourne les pizzas dont la composition est la plus proche de celle
+     * d'une pizza donnée.
+     *
+     * @param pizza pizza de référence
+     * @param nombre nombre maximum de pizzas retournées
+     * @return les pizzas similaires, de la plus proche à la moins proche
+     *         (liste vide si la pizza n'est pas valide)
+     */
+    public List<Pizza> pizzasSimilaires(Pizza pizza, int nombre) {
+        if (pizza == null) return new ArrayList<>();
+
+        // sous verrou : les compositions ne changent pas pendant la recherche
+        return lire(() -> pizzas.contains(pizza)
+                ? similarite.similaires(pizza, nombre)
+                : new ArrayList<>());
+    }
+
+    /**
+     * Suggère à un client des pizzas souvent commandées avec celles qu'il
+     * achète habituellement.
+     *
+     * @param client client concerné
+     * @param nombre nombre maximum de suggestions
+     * @return les pizzas suggérées (liste vide si le client n'a pas
+     *         d'historique)
+     */
+    public List<Pizza> suggestionsPourClient(Client client, int nombre) {
+        return recommandation.suggestions(client, nombre);
+    }
+
+    /**
+     * Retourne les pizzas de la mieux notée à la moins bien notée, selon une
+     * moyenne bayésienne (voir {@link ClassementNotes}).
+     *
+     * @return liste non modifiable des pizzas triées
+     */
+    public List<Pizza> pizzasParNote() {
+        return classementNotes.getClassement();
+    }
+
     /* =========================
        CLIENTS & COMMANDES
        ========================= */
@@ -380,7 +1146,7 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      * @param c client à enregistrer
      */
     public void enregistrerClient(Client c) {
-        if (c != null) clients.add(c);
+        if (c != null) ecrire(() -> clients.add(c));
     }
 
     /**
@@ -390,7 +1156,11 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     public void enregistrerCommande(Commande c) {
         if (c != null && c.getEtat() == EtatCommande.VALIDEE) {
-            commandesNonTraitees.add(c);
+            ecrire(() -> {
+                commandesNonTraitees.add(c);
+                bus.publier(TypeEvenement.COMMANDE_VALIDEE, c, c.getId(), c.getPrixTotal());
+                return null;
+            });
         }
     }
 
@@ -401,9 +1171,17 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public List<Commande> commandesDejaTraitees() {
-        return commandesTraitees.stream()
-                .sorted(Comparator.comparing(Commande::getDateCreation))
-                .collect(Collectors.toList());
+        return statistique("commandesDejaTraitees", () -> commandesTraitees.commandes(id -> true));
+    }
+
+    /**
+     * Retourne le nombre de commandes déjà traitées, archivées comprises,
+     * sans reconstituer les commandes.
+     *
+     * @return le nombre de commandes traitées
+     */
+    public int nombreCommandesTraitees() {
+        return (int) lireCompteur(commandesTraitees::taille);
     }
 
     /**
@@ -416,10 +1194,21 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
     public List<Commande> commandesTraiteesClient(InformationPersonnelle client) {
         if (client == null) return null;
 
-        return commandesTraitees.stream()
-                .filter(c -> c.getClient().getInfos().equals(client))
-                .sorted(Comparator.comparing(Commande::getDateCreation))
-                .collect(Collectors.toList());
+        return statistique("commandesTraiteesClient", () -> {
+            boolean[] retenus = commandesTraitees.clientsPortant(client);
+            return commandesTraitees.commandes(id -> retenus[id]);
+        });
+    }
+
+    /**
+     * Retourne les commandes traitées d'un client, par date de création.
+     *
+     * @param idClient identifiant du client
+     * @return liste des commandes (vide si le client n'a pas de commande
+     *         traitée)
+     */
+    public List<Commande> commandesTraiteesClient(int idClient) {
+        return statistique("commandesTraiteesClient", () -> commandesTraitees.commandes(id -> id == idClient));
     }
 
     /* =========================
@@ -433,11 +1222,13 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public Map<Pizza, Double> beneficeParPizza() {
-        Map<Pizza, Double> map = new HashMap<>();
-        for (Pizza p : pizzas) {
-            map.put(p, p.getPrixVente() - p.getPrixMinimal());
-        }
-        return map;
+        return statistique("beneficeParPizza", () -> {
+            Map<Pizza, Double> map = new HashMap<>();
+            for (Pizza p : pizzas) {
+                map.put(p, p.getPrixVente() - p.getPrixMinimal());
+            }
+            return map;
+        });
     }
 
     /**
@@ -459,9 +1250,7 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public double beneficeToutesCommandes() {
-        return commandesTraitees.stream()
-                .mapToDouble(Commande::getBenefice)
-                .sum();
+        return statistique("beneficeToutesCommandes", commandesTraitees::beneficeTotal);
     }
 
     /**
@@ -471,13 +1260,31 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public Map<InformationPersonnelle, Integer> nombrePizzasCommandeesParClient() {
-        Map<InformationPersonnelle, Integer> map = new HashMap<>();
+        return statistique("nombrePizzasCommandeesParClient", () -> {
+            Map<InformationPersonnelle, Integer> map = new HashMap<>();
+            int[] parClient = commandesTraitees.pizzasParClient();
+
+            for (int id = 0; id < parClient.length; id++) {
+                Client c = commandesTraitees.client(id);
+                if (c != null) {
+                    map.merge(c.getInfos(), parClient[id], Integer::sum);
+                }
+            }
+            return map;
+        });
+    }
 
-        for (Commande c : commandesTraitees) {
-            InformationPersonnelle info = c.getClient().getInfos();
-            map.put(info, map.getOrDefault(info, 0) + c.getPizzas().size());
-        }
-        return map;
+    /**
+     * Calcule le nombre de pizzas commandées par un client.
+     *
+     * @param idClient identifiant du client
+     * @return nombre de pizzas des commandes traitées du client
+     */
+    public int nombrePizzasCommandeesClient(int idClient) {
+        return statistique("nombrePizzasCommandeesClient", () -> {
+            int[] parClient = commandesTraitees.pizzasParClient();
+            return idClient >= 0 && idClient < parClient.length ? parClient[idClient] : 0;
+        });
     }
 
     /**
@@ -487,14 +1294,31 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public Map<InformationPersonnelle, Double> beneficeParClient() {
-        Map<InformationPersonnelle, Double> map = new HashMap<>();
+        return statistique("beneficeParClient", () -> {
+            Map<InformationPersonnelle, Double> map = new HashMap<>();
+            double[] parClient = commandesTraitees.beneficesParClient();
+
+            for (int id = 0; id < parClient.length; id++) {
+                Client c = commandesTraitees.client(id);
+                if (c != null) {
+                    map.merge(c.getInfos(), parClient[id], Double::sum);
+                }
+            }
+            return map;
+        });
+    }
 
-        for (Commande c : commandesTraitees) {
-            InformationPersonnelle info = c.getClient().getInfos();
-            map.put(info,
-                    map.getOrDefault(info, 0.0) + c.getBenefice());
-        }
-        return map;
+    /**
+     * Calcule le bénéfice généré par un client.
+     *
+     * @param idClient identifiant du client
+     * @return bénéfice des commandes traitées du client
+     */
+    public double beneficeClient(int idClient) {
+        return statistique("beneficeClient", () -> {
+            double[] parClient = commandesTraitees.beneficesParClient();
+            return idClient >= 0 && idClient < parClient.length ? parClient[idClient] : 0.0;
+        });
     }
 
     /**
@@ -505,15 +1329,21 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public int nombrePizzasCommandees(Pizza pizza) {
-        if (pizza == null || !pizzas.contains(pizza)) return -1;
+        if (pizza == null) return -1;
 
-        int count = 0;
-        for (Commande c : commandesTraitees) {
-            for (Pizza p : c.getPizzas()) {
-                if (p.equals(pizza)) count++;
-            }
-        }
-        return count;
+        return lire(() -> pizzas.contains(pizza) ? compterCommandes().get(pizza.getId()) : -1);
+    }
+
+    /**
+     * Compte, en un seul parcours des commandes traitées, le nombre de fois
+     * où chaque pizza a été commandée. Doit être appelée sous verrou.
+     *
+     * @return table identifiant de pizza → nombre de commandes
+     */
+    private TableEntiers compterCommandes() {
+        TableEntiers compteurs = new TableEntiers(pizzas.size());
+        commandesTraitees.compterPizzas(compteurs);
+        return compteurs;
     }
 
     /**
@@ -523,12 +1353,15 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public List<Pizza> classementPizzasParNombreCommandes() {
-        return pizzas.stream()
-                .sorted((p1, p2) ->
-                        Integer.compare(
-                                nombrePizzasCommandees(p2),
-                                nombrePizzasCommandees(p1)))
-                .collect(Collectors.toList());
+        return statistique("classementPizzasParNombreCommandes", () -> {
+            TableEntiers compteurs = compterCommandes();
+            return pizzas.stream()
+                    .sorted((p1, p2) ->
+                            Integer.compare(
+                                    compteurs.get(p2.getId()),
+                                    compteurs.get(p1.getId())))
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -538,9 +1371,9 @@ public class GestionPizzaiolo implements InterPizzaiolo, Serializable {
      */
     @Override
     public Set<InformationPersonnelle> ensembleClients() {
-        return clients.stream()
+        return lire(() -> clients.stream()
                 .map(Client::getInfos)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toSet()));
     }
 
     /* =========================
@@ -0,0 +1,140 @@
+package pizzas;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gestionnaire des sessions des clients connectés.
+ * <p>
+ * Les sessions sont rangées dans une map concurrente indexée par jeton, ce
+ * qui permet à un même serveur de servir simultanément un grand nombre de
+ * clients. Une session inutilisée pendant plus de la durée d'inactivité
+ * expire : elle est retirée à sa prochaine résolution ou lors d'une purge.
+ * </p>
+ */
+public class GestionSessions {
+
+    /**
+     * Durée d'inactivité par défaut (30 minutes).
+     */
+    public static final long DUREE_INACTIVITE_DEFAUT = 30 * 60 * 1000L;
+
+    /**
+     * Nombre d'ouvertures de session entre deux purges automatiques.
+     */
+    private static final int OUVERTURES_ENTRE_PURGES = 1024;
+
+    private static final SecureRandom ALEA = new SecureRandom();
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong ouvertures = new AtomicLong();
+    private volatile long dureeInactivite;
+
+    /**
+     * Construit un gestionnaire avec la durée d'inactivité par défaut.
+     */
+    public GestionSessions() {
+        this(DUREE_INACTIVITE_DEFAUT);
+    }
+
+    /**
+     * Construit un gestionnaire de sessions.
+     *
+     * @param dureeInactivite durée d'inactivité avant expiration, en ms
+     */
+    public GestionSessions(long dureeInactivite) {
+        setDureeInactivite(dureeInactivite);
+    }
+
+    /**
+     * Modifie la durée d'inactivité avant expiration.
+     *
+     * @param dureeInactivite durée en millisecondes (strictement positive)
+     */
+    public void setDureeInactivite(long dureeInactivite) {
+        if (dureeInactivite <= 0) {
+            throw new IllegalArgumentException("Durée d'inactivité invalide");
+        }
+        this.dureeInactivite = dureeInactivite;
+    }
+
+    /**
+     * Ouvre une nouvelle session pour un client.
+     *
+     * @param client client authentifié
+     * @return la session créée
+     */
+    public Session ouvrir(Client client) {
+        if (ouvertures.incrementAndGet() % OUVERTURES_ENTRE_PURGES == 0) {
+            purger();
+        }
+        byte[] octets = new byte[16];
+        ALEA.nextBytes(octets);
+        String jeton = Base64.getUrlEncoder().withoutPadding().encodeToString(octets);
+        Session session = new Session(jeton, client);
+        sessions.put(jeton, session);
+        return session;
+    }
+
+    /**
+     * Retrouve une session active à partir de son jeton et la marque comme
+     * utilisée.
+     *
+     * @param jeton jeton de la session
+     * @return la session ou {@code null} si le jeton est inconnu ou expiré
+     */
+    public Session resoudre(String jeton) {
+        if (jeton == null) {
+            return null;
+        }
+        Session session = sessions.get(jeton);
+        if (session == null) {
+            return null;
+        }
+        if (estExpiree(session, System.currentTimeMillis())) {
+            sessions.remove(jeton, session);
+            return null;
+        }
+        session.toucher();
+        return session;
+    }
+
+    /**
+     * Ferme une session.
+     *
+     * @param jeton jeton de la session
+     * @return {@code true} si la session existait
+     */
+    public boolean fermer(String jeton) {
+        return jeton != null && sessions.remove(jeton) != null;
+    }
+
+    /**
+     * Retire toutes les sessions expirées.
+     *
+     * @return le nombre de sessions retirées
+     */
+    public int purger() {
+        long maintenant = System.currentTimeMillis();
+        int avant = sessions.size();
+        sessions.values().removeIf(s -> estExpiree(s, maintenant));
+        return avant - sessions.size();
+    }
+
+    /**
+     * Retourne le nombre de sessions ouvertes (y compris celles expirées mais
+     * pas encore purgées).
+     *
+     * @return le nombre de sessions
+     */
+    public int nombreSessions() {
+        return sessions.size();
+    }
+
+    private boolean estExpiree(Session session, long maintenant) {
+        return maintenant - session.getDernierAcces() > dureeInactivite;
+    }
+}
@@ -1,27 +1,75 @@
 package pizzas;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 /**
  * Représente un ingrédient utilisé dans une pizza.
  */
-public class Ingredient  implements Serializable  {
+public final class Ingredient  implements Serializable  {
+
+    private static final long serialVersionUID = 1L;
 
     private String nom;
     private double prix;
 
     /**
-     * Crée un ingrédient avec un nom et un prix.
+     * Dictionnaire du catalogue de l'ingrédient.
+     */
+    private transient DictionnaireIngredients dictionnaire;
+
+    /**
+     * Identifiant dense attribué par le dictionnaire.
+     */
+    private transient int id;
+
+    /**
+     * Crée un ingrédient avec un nom et un prix, hors de tout gestionnaire.
+     * Il est enregistré dans le dictionnaire commun, libéré avec le dernier
+     * de ses ingrédients.
      *
      * @param nom nom de l'ingrédient (non nul)
      * @param prix prix de l'ingrédient (>= 0)
      */
     public Ingredient(String nom, double prix) {
+        this(nom, prix, DictionnaireIngredients.commun());
+    }
+
+    /**
+     * Crée un ingrédient enregistré dans le dictionnaire d'un catalogue.
+     *
+     * @param nom nom de l'ingrédient (non nul)
+     * @param prix prix de l'ingrédient (>= 0)
+     * @param dictionnaire dictionnaire du catalogue
+     */
+    Ingredient(String nom, double prix, DictionnaireIngredients dictionnaire) {
         if (nom == null || nom.isBlank()) {
             throw new IllegalArgumentException("Nom invalide");
         }
         this.nom = nom;
         this.prix = Math.max(0, prix);
+        this.dictionnaire = dictionnaire;
+        this.id = dictionnaire.enregistrer(this);
+    }
+
+    /**
+     * Retourne l'identifiant de l'ingrédient dans le dictionnaire de son
+     * catalogue.
+     *
+     * @return l'identifiant de l'ingrédient
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Retourne le dictionnaire du catalogue de l'ingrédient.
+     *
+     * @return le dictionnaire
+     */
+    DictionnaireIngredients getDictionnaire() {
+        return dictionnaire;
     }
 
     public String getNom() {
@@ -35,12 +83,29 @@ public class Ingredient  implements Serializable  {
     public void setNom(String nom) {
         if (nom != null && !nom.isBlank()) {
             this.nom = nom;
+            dictionnaire.setNom(id, nom);
         }
     }
 
     public void setPrix(double prix) {
         if (prix >= 0) {
             this.prix = prix;
+            dictionnaire.setPrix(id, prix);
         }
     }
+
+    /**
+     * Réenregistre l'ingrédient après désérialisation, dans le dictionnaire
+     * du gestionnaire en cours de chargement.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.dictionnaire = DictionnaireIngredients.courant();
+        this.id = dictionnaire.enregistrer(this);
+    }
 }
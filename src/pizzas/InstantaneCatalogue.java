@@ -0,0 +1,80 @@
+package pizzas;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantané immuable du catalogue du pizzaïolo.
+ * <p>
+ * Les prix sont recopiés au moment de la prise de l'instantané : ils ne
+ * suivent pas les modifications ultérieures. Un instantané peut être lu
+ * depuis n'importe quel fil sans verrou.
+ * </p>
+ */
+public final class InstantaneCatalogue {
+
+    private final long version;
+    private final List<Pizza> pizzas;
+    private final Map<Pizza, Double> prixVente;
+    private final Map<String, Double> prixIngredients;
+    private final int nombreCommandesNonTraitees;
+    private final int nombreCommandesTraitees;
+
+    InstantaneCatalogue(long version, List<Pizza> pizzas,
+            Map<String, Double> prixIngredients,
+            int nombreCommandesNonTraitees, int nombreCommandesTraitees) {
+        this.version = version;
+        this.pizzas = List.copyOf(pizzas);
+        Map<Pizza, Double> prix = new HashMap<>();
+        for (Pizza p : pizzas) {
+            prix.put(p, p.getPrixVente());
+        }
+        this.prixVente = Collections.unmodifiableMap(prix);
+        this.prixIngredients = Collections.unmodifiableMap(prixIngredients);
+        this.nombreCommandesNonTraitees = nombreCommandesNonTraitees;
+        this.nombreCommandesTraitees = nombreCommandesTraitees;
+    }
+
+    /**
+     * Retourne le numéro de version, croissant d'un instantané à l'autre.
+     *
+     * @return la version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Pizza> getPizzas() {
+        return pizzas;
+    }
+
+    /**
+     * Retourne le prix de vente d'une pizza au moment de l'instantané.
+     *
+     * @param pizza pizza concernée
+     * @return le prix, ou -1 si la pizza n'existait pas
+     */
+    public double getPrixVente(Pizza pizza) {
+        Double prix = prixVente.get(pizza);
+        return prix == null ? -1 : prix;
+    }
+
+    /**
+     * Retourne le prix des ingrédients, par nom en minuscules.
+     *
+     * @return map nom → prix non modifiable
+     */
+    public Map<String, Double> getPrixIngredients() {
+        return prixIngredients;
+    }
+
+    public int getNombreCommandesNonTraitees() {
+        return nombreCommandesNonTraitees;
+    }
+
+    public int getNombreCommandesTraitees() {
+        return nombreCommandesTraitees;
+    }
+}
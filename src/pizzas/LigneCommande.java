@@ -0,0 +1,81 @@
+package pizzas;
+
+import java.io.Serializable;
+
+/**
+ * Ligne d'une commande : une pizza et la quantité commandée.
+ * <p>
+ * Une commande ne contient jamais deux lignes pour la même pizza : un nouvel
+ * ajout augmente la quantité de la ligne existante.
+ * </p>
+ */
+public class LigneCommande implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Pizza commandée.
+     */
+    private final Pizza pizza;
+
+    /**
+     * Nombre d'exemplaires commandés.
+     */
+    private int quantite;
+
+    /**
+     * Construit une ligne.
+     *
+     * @param pizza pizza commandée
+     * @param quantite nombre d'exemplaires, strictement positif
+     */
+    LigneCommande(Pizza pizza, int quantite) {
+        this.pizza = pizza;
+        this.quantite = quantite;
+    }
+
+    /**
+     * Retourne la pizza commandée.
+     *
+     * @return la pizza
+     */
+    public Pizza getPizza() {
+        return pizza;
+    }
+
+    /**
+     * Retourne le nombre d'exemplaires commandés.
+     *
+     * @return la quantité
+     */
+    public int getQuantite() {
+        return quantite;
+    }
+
+    /**
+     * Modifie la quantité. Réservé à la commande, qui tient ses totaux à jour.
+     *
+     * @param quantite nouvelle quantité
+     */
+    void setQuantite(int quantite) {
+        this.quantite = quantite;
+    }
+
+    /**
+     * Calcule le prix de la ligne.
+     *
+     * @return le prix de vente de la pizza multiplié par la quantité
+     */
+    public double getPrixTotal() {
+        return pizza.getPrixVente() * quantite;
+    }
+
+    /**
+     * Calcule le bénéfice de la ligne.
+     *
+     * @return le bénéfice unitaire multiplié par la quantité
+     */
+    public double getBenefice() {
+        return (pizza.getPrixVente() - pizza.getPrixMinimal()) * quantite;
+    }
+}
@@ -0,0 +1,18 @@
+package pizzas;
+
+/**
+ * Mode d'exécution des modifications de {@link GestionPizzaiolo}.
+ */
+public enum ModeExecution {
+
+    /**
+     * Chaque fil appelant modifie le modèle sous verrou en écriture.
+     */
+    VERROUS,
+
+    /**
+     * Toutes les modifications sont confiées à un fil écrivain unique qui les
+     * applique par lots, dans l'ordre de soumission.
+     */
+    ECRIVAIN_UNIQUE
+}
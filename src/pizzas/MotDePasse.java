@@ -0,0 +1,100 @@
+package pizzas;
+
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Empreinte salée d'un mot de passe (PBKDF2 avec HMAC-SHA256).
+ * <p>
+ * Le mot de passe en clair n'est jamais conservé. Le nombre d'itérations
+ * fixe le coût d'une vérification ; il est mémorisé avec chaque empreinte, ce
+ * qui permet d'augmenter le coût par défaut sans invalider les comptes
+ * existants.
+ * </p>
+ */
+public final class MotDePasse implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nombre d'itérations par défaut.
+     */
+    public static final int ITERATIONS_DEFAUT = 100_000;
+
+    private static final String ALGORITHME = "PBKDF2WithHmacSHA256";
+    private static final int TAILLE_SEL = 16;
+    private static final int TAILLE_EMPREINTE = 256;
+    private static final SecureRandom ALEA = new SecureRandom();
+
+    /**
+     * Nombre d'itérations utilisé pour les nouvelles empreintes.
+     */
+    private static volatile int iterationsParDefaut = ITERATIONS_DEFAUT;
+
+    private final byte[] sel;
+    private final int iterations;
+    private final byte[] empreinte;
+
+    private MotDePasse(byte[] sel, int iterations, byte[] empreinte) {
+        this.sel = sel;
+        this.iterations = iterations;
+        this.empreinte = empreinte;
+    }
+
+    /**
+     * Calcule l'empreinte d'un mot de passe avec un sel aléatoire.
+     *
+     * @param mdp mot de passe en clair
+     * @return l'empreinte
+     */
+    public static MotDePasse hacher(String mdp) {
+        byte[] sel = new byte[TAILLE_SEL];
+        ALEA.nextBytes(sel);
+        int iterations = iterationsParDefaut;
+        return new MotDePasse(sel, iterations, deriver(mdp, sel, iterations));
+    }
+
+    /**
+     * Vérifie un mot de passe en temps constant.
+     *
+     * @param mdp mot de passe en clair
+     * @return {@code true} si le mot de passe correspond
+     */
+    public boolean verifier(String mdp) {
+        if (mdp == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(empreinte, deriver(mdp, sel, iterations));
+    }
+
+    /**
+     * Modifie le nombre d'itérations des nouvelles empreintes.
+     *
+     * @param iterations nombre d'itérations (strictement positif)
+     */
+    public static void setIterationsParDefaut(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Nombre d'itérations invalide");
+        }
+        iterationsParDefaut = iterations;
+    }
+
+    public static int getIterationsParDefaut() {
+        return iterationsParDefaut;
+    }
+
+    private static byte[] deriver(String mdp, byte[] sel, int iterations) {
+        try {
+            KeySpec spec = new PBEKeySpec(mdp.toCharArray(), sel, iterations, TAILLE_EMPREINTE);
+            return SecretKeyFactory.getInstance(ALGORITHME).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Algorithme " + ALGORITHME + " indisponible", e);
+        }
+    }
+}
@@ -1,28 +1,103 @@
 package pizzas;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Représente une pizza en vente.
  */
 public class Pizza  implements Serializable {
 
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Compteur utilisé pour générer des identifiants denses.
+     */
+    private static final AtomicInteger COMPTEUR = new AtomicInteger();
+
+    private final int id;
     private final String nom;
     private final TypePizza type;
-    private final List<Ingredient> ingredients = new ArrayList<>();
-    private final List<Evaluation> evaluations = new ArrayList<>();
+    /**
+     * Dictionnaire des ingrédients de la pizza, fixé par le premier
+     * ingrédient ajouté.
+     */
+    private transient DictionnaireIngredients dictionnaire;
+
+    /**
+     * Identifiants triés des ingrédients (voir {@link DictionnaireIngredients}).
+     */
+    private transient int[] ingredients = new int[4];
+    private transient int nbIngredients;
+
+    /**
+     * Masque de bits des identifiants d'ingrédients (bit i = ingrédient i).
+     */
+    private transient long[] masqueIngredients = new long[1];
+
+    /**
+     * Évaluations de la pizza, stockées sous forme compacte.
+     */
+    private final EvaluationsPizza evaluations = new EvaluationsPizza();
+
+    /**
+     * Agrégats des évaluations : nombre, somme et histogramme des notes.
+     */
+    private int nbEvaluations;
+    private long sommeNotes;
+    private final int[] histogrammeNotes = new int[6];
+
+    /**
+     * Classement à prévenir quand la note de la pizza change.
+     */
+    private transient ClassementNotes classement;
+
+    /**
+     * Bus sur lequel publier les nouvelles évaluations.
+     */
+    private transient BusEvenements bus;
+
+    /**
+     * Stock des ingrédients du gestionnaire, ou {@code null} hors
+     * gestionnaire.
+     */
+    private transient volatile StockIngredients stock;
+
+    /**
+     * Vues en lecture seule partagées par tous les appelants, créées à la
+     * première demande.
+     */
+    private transient List<Ingredient> vueIngredients;
+    private transient List<Evaluation> vueEvaluations;
     private double prixVente;
     private String photo;
 
     public Pizza(String nom, TypePizza type) {
+        this.id = COMPTEUR.getAndIncrement();
         this.nom = nom;
         this.type = type;
-        this.prixVente = getPrixMinimal();
+        this.prixVente = 0; // prix minimal d'une pizza sans ingrédient
     }
 
 
+    /**
+     * Retourne l'identifiant numérique de la pizza.
+     *
+     * @return l'identifiant
+     */
+    public int getId() {
+        return id;
+    }
+
     public String getNom() {
         return nom;
     }
@@ -31,12 +106,147 @@ public class Pizza  implements Serializable {
         return type;
     }
 
+    /**
+     * Retourne une vue non modifiable des ingrédients de la pizza. La vue
+     * n'est pas une copie : elle reflète les changements de recette.
+     *
+     * @return les ingrédients, triés par identifiant
+     */
     public List<Ingredient> getIngredients() {
-        return List.copyOf(ingredients);
+        if (vueIngredients == null) {
+            vueIngredients = new VueIngredients();
+        }
+        return vueIngredients;
+    }
+
+    /**
+     * Applique une action à chaque ingrédient de la pizza, sans allocation.
+     *
+     * @param action action à appliquer
+     */
+    public void pourChaqueIngredient(Consumer<? super Ingredient> action) {
+        for (int i = 0; i < nbIngredients; i++) {
+            action.accept(dictionnaire.get(ingredients[i]));
+        }
+    }
+
+    /**
+     * Applique une action à l'identifiant de chaque ingrédient de la pizza,
+     * sans allocation.
+     *
+     * @param action action à appliquer
+     */
+    public void pourChaqueIdIngredient(IntConsumer action) {
+        for (int i = 0; i < nbIngredients; i++) {
+            action.accept(ingredients[i]);
+        }
+    }
+
+    /**
+     * Retourne le nombre d'ingrédients de la pizza.
+     *
+     * @return le nombre d'ingrédients
+     */
+    public int getNombreIngredients() {
+        return nbIngredients;
+    }
+
+    /**
+     * Retourne l'identifiant du i-ème ingrédient (ordre croissant des
+     * identifiants).
+     *
+     * @param i indice entre 0 et {@link #getNombreIngredients()} exclu
+     * @return l'identifiant de l'ingrédient
+     */
+    public int getIdIngredient(int i) {
+        return ingredients[i];
     }
 
+    /**
+     * Retourne le nom en minuscules du i-ème ingrédient.
+     *
+     * @param i indice entre 0 et {@link #getNombreIngredients()} exclu
+     * @return le nom en minuscules
+     */
+    String getNomMinusculeIngredient(int i) {
+        return dictionnaire.nomMinuscule(ingredients[i]);
+    }
+
+    /**
+     * Indique si la pizza contient un ingrédient.
+     *
+     * @param idIngredient identifiant de l'ingrédient
+     * @return {@code true} si l'ingrédient fait partie de la pizza
+     */
+    public boolean contientIngredient(int idIngredient) {
+        return Arrays.binarySearch(ingredients, 0, nbIngredients, idIngredient) >= 0;
+    }
+
+    /**
+     * Indique si la pizza contient au moins un des ingrédients d'un masque.
+     *
+     * @param masque masque de bits d'identifiants d'ingrédients
+     * @return {@code true} si l'intersection n'est pas vide
+     */
+    public boolean intersecte(long[] masque) {
+        int n = Math.min(masque.length, masqueIngredients.length);
+        for (int w = 0; w < n; w++) {
+            if ((masque[w] & masqueIngredients[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indique si la pizza contient un ingrédient d'un nom donné.
+     *
+     * @param nomMinuscule nom de l'ingrédient en minuscules
+     * @return {@code true} si un ingrédient de ce nom fait partie de la pizza
+     */
+    public boolean contientIngredient(String nomMinuscule) {
+        for (int i = 0; i < nbIngredients; i++) {
+            if (dictionnaire.nomMinuscule(ingredients[i]).equals(nomMinuscule)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne une vue non modifiable des évaluations de la pizza, de la plus
+     * ancienne à la plus récente. La vue n'est pas une copie : elle reflète
+     * les évaluations ajoutées ensuite.
+     *
+     * @return les évaluations
+     */
     public List<Evaluation> getEvaluations() {
-        return List.copyOf(evaluations);
+        if (vueEvaluations == null) {
+            vueEvaluations = new VueEvaluations();
+        }
+        return vueEvaluations;
+    }
+
+    /**
+     * Applique une action à chaque évaluation de la pizza.
+     *
+     * @param action action à appliquer
+     */
+    public synchronized void pourChaqueEvaluation(Consumer<? super Evaluation> action) {
+        for (int i = 0; i < evaluations.taille(); i++) {
+            action.accept(new Evaluation(this, evaluations, i));
+        }
+    }
+
+    /**
+     * Retourne une page d'évaluations, de la plus ancienne à la plus récente.
+     *
+     * @param debut position de la première évaluation
+     * @param nombre nombre maximum d'évaluations
+     * @return les évaluations de la page (vide au-delà de la dernière)
+     */
+    public synchronized List<Evaluation> getEvaluations(int debut, int nombre) {
+        return evaluations.page(this, debut, nombre);
     }
 
     public double getPrixVente() {
@@ -47,27 +257,58 @@ public class Pizza  implements Serializable {
         return photo;
     }
     public boolean retirerIngredient(Ingredient i) {
-        if (i == null) return false;
-        return ingredients.remove(i);
+        if (i == null || i.getDictionnaire() != dictionnaire) return false;
+
+        int pos = Arrays.binarySearch(ingredients, 0, nbIngredients, i.getId());
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(ingredients, pos + 1, ingredients, pos, nbIngredients - pos - 1);
+        nbIngredients--;
+        masqueIngredients[i.getId() >>> 6] &= ~(1L << i.getId());
+        return true;
     }
 
+    /**
+     * Ajoute un ingrédient à la pizza.
+     *
+     * @param i ingrédient à ajouter
+     * @return {@code true} si l'ingrédient est ajouté, {@code false} s'il est
+     *         nul ou déjà présent
+     * @throws IllegalArgumentException si l'ingrédient appartient à un autre
+     *         catalogue que les ingrédients de la pizza
+     */
     public boolean ajouterIngredient(Ingredient i) {
         if (i == null) return false;
+        if (dictionnaire == null) {
+            dictionnaire = i.getDictionnaire();
+        } else if (i.getDictionnaire() != dictionnaire) {
+            throw new IllegalArgumentException("Ingrédient d'un autre catalogue");
+        }
 
-        if (ingredients.contains(i)) {
+        int pos = Arrays.binarySearch(ingredients, 0, nbIngredients, i.getId());
+        if (pos >= 0) {
             return false;
         }
-
-        ingredients.add(i);
+        pos = -pos - 1;
+        if (nbIngredients == ingredients.length) {
+            ingredients = Arrays.copyOf(ingredients, nbIngredients * 2);
+        }
+        System.arraycopy(ingredients, pos, ingredients, pos + 1, nbIngredients - pos);
+        ingredients[pos] = i.getId();
+        nbIngredients++;
+        int mot = i.getId() >>> 6;
+        if (mot >= masqueIngredients.length) {
+            masqueIngredients = Arrays.copyOf(masqueIngredients, mot + 1);
+        }
+        masqueIngredients[mot] |= 1L << i.getId();
         return true;
     }
 
 
 
     public double getPrixMinimal() {
-        double somme = ingredients.stream()
-                .mapToDouble(Ingredient::getPrix)
-                .sum();
+        double somme = nbIngredients == 0 ? 0 : dictionnaire.sommePrix(ingredients, nbIngredients);
 
         double prix = somme * 1.4;
         return Math.ceil(prix * 10) / 10.0;
@@ -84,9 +325,212 @@ public class Pizza  implements Serializable {
         this.photo = photo;
     }
 
-    public void ajouterEvaluation(Evaluation e) {
-        if (e != null) {
-            evaluations.add(e);
+    /**
+     * Ajoute une évaluation, sauf si son auteur a déjà évalué la pizza.
+     *
+     * @param e évaluation à ajouter
+     * @return {@code true} si l'évaluation est ajoutée
+     */
+    public boolean ajouterEvaluation(Evaluation e) {
+        int nombre;
+        long somme;
+        ClassementNotes aPrevenir;
+        BusEvenements busEvenements;
+        synchronized (this) {
+            if (e == null || !evaluations.ajouter(e.getClient(), e.getNote(),
+                    e.getDateSecondes(), e.getCommentaire())) {
+                return false;
+            }
+            nbEvaluations++;
+            sommeNotes += e.getNote();
+            histogrammeNotes[e.getNote()]++;
+            nombre = nbEvaluations;
+            somme = sommeNotes;
+            aPrevenir = classement;
+            busEvenements = bus;
+        }
+        // hors du verrou de la pizza : le classement a son propre verrou
+        if (aPrevenir != null) {
+            aPrevenir.mettreAJour(this, nombre, somme);
+        }
+        if (busEvenements != null) {
+            busEvenements.publier(TypeEvenement.EVALUATION_AJOUTEE, this,
+                    e.getIdClient(), e.getNote());
+        }
+        return true;
+    }
+
+    /**
+     * Associe le classement à prévenir à chaque nouvelle évaluation.
+     *
+     * @param classement classement des pizzas par note
+     */
+    synchronized void setClassement(ClassementNotes classement) {
+        this.classement = classement;
+    }
+
+    /**
+     * Associe le bus sur lequel publier les nouvelles évaluations.
+     *
+     * @param bus bus d'événements du domaine
+     */
+    synchronized void setBus(BusEvenements bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Associe le stock sur lequel réserver les ingrédients.
+     *
+     * @param stock stock des ingrédients du gestionnaire
+     */
+    void setStock(StockIngredients stock) {
+        this.stock = stock;
+    }
+
+    /**
+     * Retourne le stock sur lequel réserver les ingrédients.
+     *
+     * @return le stock, ou {@code null} hors gestionnaire
+     */
+    StockIngredients getStock() {
+        return stock;
+    }
+
+    /**
+     * Indique si la pizza peut être préparée : chacun de ses ingrédients a
+     * au moins une unité disponible. Une pizza hors gestionnaire, ou dont
+     * aucun ingrédient n'a de stock fixé, est toujours disponible.
+     *
+     * @return {@code true} si la pizza est disponible
+     */
+    public boolean estDisponible() {
+        StockIngredients s = stock;
+        return s == null || s.pizzaDisponible(id);
+    }
+
+    /**
+     * Indique si un client a déjà évalué la pizza.
+     *
+     * @param client client concerné
+     * @return {@code true} si le client a déjà évalué la pizza
+     */
+    public synchronized boolean estEvalueePar(Client client) {
+        return client != null && evaluations.contientClient(client.getId());
+    }
+
+    /**
+     * Retourne la note moyenne des évaluations.
+     *
+     * @return la moyenne entre 0 et 5, ou -1 si aucune évaluation
+     */
+    public synchronized double getNoteMoyenne() {
+        return nbEvaluations == 0 ? -1 : (double) sommeNotes / nbEvaluations;
+    }
+
+    /**
+     * Retourne le nombre d'évaluations.
+     *
+     * @return le nombre d'évaluations
+     */
+    public synchronized int getNombreEvaluations() {
+        return nbEvaluations;
+    }
+
+    /**
+     * Retourne la somme des notes.
+     *
+     * @return la somme des notes
+     */
+    public synchronized long getSommeNotes() {
+        return sommeNotes;
+    }
+
+    /**
+     * Retourne le nombre d'évaluations ayant une note donnée.
+     *
+     * @param note note entre 0 et 5
+     * @return le nombre d'évaluations avec cette note
+     */
+    public synchronized int getNombreNotes(int note) {
+        return histogrammeNotes[note];
+    }
+
+    /**
+     * Vue en lecture seule sur le tableau d'identifiants d'ingrédients.
+     */
+    private final class VueIngredients extends AbstractList<Ingredient>
+            implements RandomAccess {
+
+        @Override
+        public Ingredient get(int index) {
+            if (index < 0 || index >= nbIngredients) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return dictionnaire.get(ingredients[index]);
+        }
+
+        @Override
+        public int size() {
+            return nbIngredients;
+        }
+    }
+
+    /**
+     * Vue en lecture seule sur le segment des évaluations.
+     */
+    private final class VueEvaluations extends AbstractList<Evaluation>
+            implements RandomAccess {
+
+        @Override
+        public Evaluation get(int index) {
+            synchronized (Pizza.this) {
+                if (index < 0 || index >= evaluations.taille()) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return new Evaluation(Pizza.this, evaluations, index);
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (Pizza.this) {
+                return evaluations.taille();
+            }
+        }
+    }
+
+    /**
+     * Sérialise les ingrédients sous forme d'objets, leurs identifiants
+     * n'étant valables que pour l'exécution courante.
+     *
+     * @param out flux d'écriture
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(nbIngredients);
+        for (int i = 0; i < nbIngredients; i++) {
+            out.writeObject(dictionnaire.get(ingredients[i]));
+        }
+    }
+
+    /**
+     * Reconstruit le tableau d'identifiants après désérialisation.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        COMPTEUR.accumulateAndGet(id + 1, Math::max);
+        int nombre = in.readInt();
+        ingredients = new int[Math.max(4, nombre)];
+        nbIngredients = 0;
+        masqueIngredients = new long[1];
+        for (int i = 0; i < nombre; i++) {
+            ajouterIngredient((Ingredient) in.readObject());
         }
     }
 }
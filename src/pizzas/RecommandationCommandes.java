@@ -0,0 +1,225 @@
+package pizzas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Recommandation de pizzas à partir de l'historique des commandes traitées.
+ * <p>
+ * Le service maintient :
+ * <ul>
+ *   <li>une matrice creuse de co-occurrence : pour chaque pizza, le nombre de
+ *       commandes où elle apparaît avec chacune des autres pizzas</li>
+ *   <li>un profil par client : le nombre de fois où il a commandé chaque
+ *       pizza</li>
+ * </ul>
+ * Lignes et profils sont des {@link TableEntiers} indexées par identifiant de
+ * pizza, rangées dans des tableaux indexés par identifiant de pizza ou de
+ * client. Une suggestion additionne les lignes des pizzas du profil, ce qui ne
+ * dépend que de la taille du profil et non de l'historique.
+ * </p>
+ */
+public class RecommandationCommandes {
+
+    /**
+     * Lignes de la matrice de co-occurrence, indexées par identifiant de pizza.
+     */
+    private TableEntiers[] cooccurrences = new TableEntiers[16];
+
+    /**
+     * Pizzas rencontrées, indexées par identifiant.
+     */
+    private Pizza[] pizzas = new Pizza[16];
+
+    /**
+     * Profil de chaque client, indexé par identifiant de client.
+     */
+    private TableEntiers[] profils = new TableEntiers[16];
+
+    /**
+     * Prend en compte une commande traitée.
+     *
+     * @param commande commande traitée
+     */
+    public synchronized void enregistrer(Commande commande) {
+        List<LigneCommande> lignes = commande.getLignes();
+        int[] ids = new int[lignes.size()];
+        TableEntiers profil = profil(commande.getClient().getId());
+        for (int i = 0; i < ids.length; i++) {
+            LigneCommande l = lignes.get(i);
+            referencer(l.getPizza());
+            profil.incrementer(l.getPizza().getId(), l.getQuantite());
+            // une commande n'a qu'une ligne par pizza : les identifiants sont distincts
+            ids[i] = l.getPizza().getId();
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            TableEntiers ligne = ligne(ids[i]);
+            for (int j = 0; j < ids.length; j++) {
+                if (i != j) {
+                    ligne.incrementer(ids[j], 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Suggère des pizzas à un client à partir de son profil : les pizzas les
+     * plus souvent commandées avec celles qu'il achète, et qu'il n'a pas
+     * encore commandées.
+     *
+     * @param client client concerné
+     * @param nombre nombre maximum de suggestions
+     * @return les pizzas suggérées, de la plus pertinente à la moins
+     *         pertinente (liste vide si le client n'a pas d'historique)
+     */
+    public synchronized List<Pizza> suggestions(Client client, int nombre) {
+        TableEntiers profil = client == null || client.getId() >= profils.length
+                ? null : profils[client.getId()];
+        if (profil == null || nombre <= 0) {
+            return new ArrayList<>();
+        }
+
+        TableEntiers scores = new TableEntiers();
+        profil.pourChaque((pizza, poids) -> {
+            TableEntiers ligne = pizza < cooccurrences.length ? cooccurrences[pizza] : null;
+            if (ligne != null) {
+                ligne.pourChaque((autre, compte) -> {
+                    if (profil.get(autre) == 0) {
+                        scores.incrementer(autre, poids * compte);
+                    }
+                });
+            }
+        });
+
+        int[] meilleurs = new int[Math.min(nombre, scores.taille())];
+        int[] meilleursScores = new int[meilleurs.length];
+        int[] retenus = {0};
+        scores.pourChaque((pizza, score) -> {
+            int k = retenus[0];
+            if (k < meilleurs.length) {
+                retenus[0]++;
+            } else if (score <= meilleursScores[k - 1]) {
+                return;
+            } else {
+                k--;
+            }
+            while (k > 0 && meilleursScores[k - 1] < score) {
+                meilleurs[k] = meilleurs[k - 1];
+                meilleursScores[k] = meilleursScores[k - 1];
+                k--;
+            }
+            meilleurs[k] = pizza;
+            meilleursScores[k] = score;
+        });
+
+        List<Pizza> resultat = new ArrayList<>(retenus[0]);
+        for (int i = 0; i < retenus[0]; i++) {
+            resultat.add(pizzas[meilleurs[i]]);
+        }
+        return resultat;
+    }
+
+    /**
+     * Nombre de commandes où deux pizzas apparaissent ensemble.
+     *
+     * @param a première pizza
+     * @param b seconde pizza
+     * @return le nombre de commandes communes
+     */
+    public synchronized int cooccurrence(Pizza a, Pizza b) {
+        if (a.getId() >= cooccurrences.length || cooccurrences[a.getId()] == null) {
+            return 0;
+        }
+        return cooccurrences[a.getId()].get(b.getId());
+    }
+
+    /**
+     * Reconstruit en parallèle un service à partir d'un historique de
+     * commandes traitées : chaque fil alimente un service partiel, puis les
+     * services partiels sont fusionnés.
+     *
+     * @param historique commandes traitées
+     * @return le service reconstruit
+     */
+    public static RecommandationCommandes reconstruire(Collection<Commande> historique) {
+        return historique.parallelStream().collect(
+                RecommandationCommandes::new,
+                RecommandationCommandes::enregistrer,
+                RecommandationCommandes::fusionner);
+    }
+
+    /**
+     * Ajoute le contenu d'un autre service à celui-ci.
+     *
+     * @param autre service à fusionner
+     */
+    private synchronized void fusionner(RecommandationCommandes autre) {
+        for (int id = 0; id < autre.cooccurrences.length; id++) {
+            if (autre.cooccurrences[id] != null) {
+                referencer(autre.pizzas[id]);
+                ligne(id).ajouterTout(autre.cooccurrences[id]);
+            }
+        }
+        for (int id = 0; id < autre.pizzas.length; id++) {
+            if (autre.pizzas[id] != null) {
+                referencer(autre.pizzas[id]);
+            }
+        }
+        for (int id = 0; id < autre.profils.length; id++) {
+            if (autre.profils[id] != null) {
+                profil(id).ajouterTout(autre.profils[id]);
+            }
+        }
+    }
+
+    /**
+     * Mémorise une pizza sous son identifiant.
+     *
+     * @param p pizza à mémoriser
+     */
+    private void referencer(Pizza p) {
+        int id = p.getId();
+        if (id >= pizzas.length) {
+            int capacite = Math.max(id + 1, pizzas.length * 2);
+            pizzas = Arrays.copyOf(pizzas, capacite);
+            cooccurrences = Arrays.copyOf(cooccurrences, capacite);
+        }
+        pizzas[id] = p;
+    }
+
+    /**
+     * Retourne (en le créant si besoin) le profil d'un client.
+     *
+     * @param id identifiant du client
+     * @return le profil
+     */
+    private TableEntiers profil(int id) {
+        if (id >= profils.length) {
+            profils = Arrays.copyOf(profils, Math.max(id + 1, profils.length * 2));
+        }
+        TableEntiers profil = profils[id];
+        if (profil == null) {
+            profil = new TableEntiers();
+            profils[id] = profil;
+        }
+        return profil;
+    }
+
+    /**
+     * Retourne (en la créant si besoin) la ligne d'une pizza.
+     *
+     * @param id identifiant de la pizza
+     * @return la ligne de co-occurrence
+     */
+    private TableEntiers ligne(int id) {
+        TableEntiers ligne = cooccurrences[id];
+        if (ligne == null) {
+            ligne = new TableEntiers();
+            cooccurrences[id] = ligne;
+        }
+        return ligne;
+    }
+}
@@ -0,0 +1,163 @@
+package pizzas;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registre des clients inscrits, indexé par email normalisé.
+ * <p>
+ * La recherche d'un compte se fait en temps constant quel que soit le nombre
+ * d'inscrits. Un {@link FiltreBloom} permet de répondre sans consulter la map
+ * pour les emails qui n'ont certainement jamais été inscrits, cas le plus
+ * fréquent à l'inscription.
+ * </p>
+ * <p>
+ * Le filtre est d'abord petit et double de taille chaque fois que le nombre
+ * de comptes dépasse sa capacité, de sorte que sa mémoire suit le nombre
+ * réel d'inscrits plutôt qu'une estimation a priori.
+ * </p>
+ */
+public class RegistreClients {
+
+    /**
+     * Capacité initiale du filtre par défaut.
+     */
+    public static final int CAPACITE_INITIALE = 1 << 10;
+
+    private static final double TAUX_FAUX_POSITIFS = 0.01;
+
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private volatile FiltreBloom filtre;
+    private int capaciteFiltre;
+    private int nbDansFiltre;
+
+    /**
+     * Construit un registre dont le filtre est dimensionné pour
+     * {@link #CAPACITE_INITIALE} comptes.
+     */
+    public RegistreClients() {
+        this(CAPACITE_INITIALE);
+    }
+
+    /**
+     * Construit un registre.
+     *
+     * @param capacite nombre de comptes attendus au départ
+     */
+    public RegistreClients(int capacite) {
+        this.capaciteFiltre = capacite;
+        this.filtre = new FiltreBloom(capacite, TAUX_FAUX_POSITIFS);
+    }
+
+    /**
+     * Normalise un email pour en faire une clé du registre.
+     *
+     * @param email email à normaliser
+     * @return l'email sans espaces autour et en minuscules
+     */
+    public static String normaliser(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indique si un email est déjà inscrit.
+     *
+     * @param email email à tester
+     * @return {@code true} si un compte existe pour cet email
+     */
+    public boolean estInscrit(String email) {
+        return trouver(email) != null;
+    }
+
+    /**
+     * Retrouve le compte associé à un email.
+     *
+     * @param email email du compte
+     * @return le client ou {@code null} s'il n'existe pas
+     */
+    public Client trouver(String email) {
+        if (email == null) {
+            return null;
+        }
+        String cle = normaliser(email);
+        if (!filtre.peutContenir(cle)) {
+            return null;
+        }
+        return clients.get(cle);
+    }
+
+    /**
+     * Inscrit un client si son email n'est pas déjà utilisé. L'opération est
+     * atomique : deux inscriptions simultanées du même email ne peuvent pas
+     * réussir toutes les deux. L'email n'est ajouté au filtre que si
+     * l'inscription réussit.
+     *
+     * @param client client à inscrire
+     * @return {@code true} si le client est inscrit, {@code false} si
+     *         l'email était déjà utilisé
+     */
+    public boolean inscrire(Client client) {
+        String cle = normaliser(client.getEmail());
+        if (clients.putIfAbsent(cle, client) != null) {
+            return false;
+        }
+        ajouterAuFiltre(cle);
+        return true;
+    }
+
+    /**
+     * Ajoute une clé déjà présente dans la map au filtre, en l'agrandissant si
+     * sa capacité est dépassée. Le nouveau filtre est rempli à partir de la
+     * map avant d'être publié : toute clé dont l'ajout a précédé
+     * l'agrandissement y figure déjà, et les suivantes y seront ajoutées par
+     * leur inscription.
+     *
+     * @param cle email normalisé
+     */
+    private synchronized void ajouterAuFiltre(String cle) {
+        filtre.ajouter(cle);
+        if (++nbDansFiltre > capaciteFiltre) {
+            int capacite = capaciteFiltre * 2;
+            FiltreBloom agrandi = new FiltreBloom(capacite, TAUX_FAUX_POSITIFS);
+            for (String c : clients.keySet()) {
+                agrandi.ajouter(c);
+            }
+            capaciteFiltre = capacite;
+            filtre = agrandi;
+        }
+    }
+
+    /**
+     * Importe en parallèle un ensemble de comptes. Les comptes dont l'email
+     * est déjà utilisé sont ignorés.
+     *
+     * @param aImporter clients à importer
+     * @return le nombre de comptes importés
+     */
+    public int importer(Collection<Client> aImporter) {
+        return (int) aImporter.parallelStream()
+                .filter(this::inscrire)
+                .count();
+    }
+
+    /**
+     * Retourne le nombre de comptes inscrits.
+     *
+     * @return le nombre de comptes
+     */
+    public int taille() {
+        return clients.size();
+    }
+
+    /**
+     * Retourne une vue non modifiable des comptes inscrits.
+     *
+     * @return les clients inscrits
+     */
+    public Collection<Client> getClients() {
+        return Collections.unmodifiableCollection(clients.values());
+    }
+}
@@ -0,0 +1,184 @@
+package pizzas;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moteur de règles des ingrédients interdits par type de pizza.
+ * <p>
+ * Les interdictions viennent de deux sources : les ingrédients interdits par
+ * défaut de {@link TypePizza} et ceux ajoutés par le pizzaïolo via
+ * {@link GestionPizzaiolo#interdireIngredient(String, TypePizza)}. Le moteur
+ * les compile en un masque de bits d'identifiants d'ingrédients par type, si
+ * bien que la vérification d'une pizza se réduit à un ET entre deux masques.
+ * </p>
+ */
+public class ReglesIngredients implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Noms (en minuscules) des ingrédients interdits par type de pizza.
+     */
+    private final EnumMap<TypePizza, Set<String>> nomsInterdits = new EnumMap<>(TypePizza.class);
+
+    /**
+     * Masques compilés, indexés par l'ordinal du type de pizza.
+     */
+    private transient long[][] masques;
+
+    /**
+     * Construit un moteur initialisé avec les interdictions par défaut.
+     */
+    public ReglesIngredients() {
+        for (TypePizza t : TypePizza.values()) {
+            nomsInterdits.put(t, new HashSet<>(t.getIngredientsInterditsParDefaut()));
+        }
+        masques = new long[TypePizza.values().length][1];
+    }
+
+    /**
+     * Recompile tous les masques à partir des ingrédients connus.
+     *
+     * @param ingredients ingrédients disponibles
+     */
+    public void compiler(Collection<Ingredient> ingredients) {
+        masques = new long[TypePizza.values().length][1];
+        for (Ingredient i : ingredients) {
+            ingredientAjoute(i);
+        }
+    }
+
+    /**
+     * Met à jour les masques lorsqu'un nouvel ingrédient devient disponible.
+     *
+     * @param ingredient ingrédient créé
+     */
+    public void ingredientAjoute(Ingredient ingredient) {
+        String nom = ingredient.getNom().toLowerCase();
+        for (TypePizza t : TypePizza.values()) {
+            if (nomsInterdits.get(t).contains(nom)) {
+                activer(t, ingredient.getId());
+            }
+        }
+    }
+
+    /**
+     * Interdit un ingrédient pour un type de pizza.
+     *
+     * @param ingredient ingrédient à interdire
+     * @param type type de pizza
+     * @return {@code true} si l'interdiction est nouvelle
+     */
+    public boolean interdire(Ingredient ingredient, TypePizza type) {
+        boolean ajoute = nomsInterdits.get(type).add(ingredient.getNom().toLowerCase());
+        activer(type, ingredient.getId());
+        return ajoute;
+    }
+
+    /**
+     * Indique si un ingrédient est interdit pour un type de pizza.
+     *
+     * @param type type de pizza
+     * @param idIngredient identifiant de l'ingrédient
+     * @return {@code true} si l'ingrédient est interdit
+     */
+    public boolean estInterdit(TypePizza type, int idIngredient) {
+        long[] masque = masques[type.ordinal()];
+        int mot = idIngredient >>> 6;
+        return mot < masque.length && (masque[mot] & (1L << idIngredient)) != 0;
+    }
+
+    /**
+     * Indique si une pizza ne contient aucun ingrédient interdit pour son
+     * type.
+     *
+     * @param pizza pizza à vérifier
+     * @return {@code true} si la pizza respecte les règles
+     */
+    public boolean estValide(Pizza pizza) {
+        return !pizza.intersecte(masques[pizza.getType().ordinal()]);
+    }
+
+    /**
+     * Retourne les noms des ingrédients interdits présents dans une pizza.
+     *
+     * @param pizza pizza à vérifier
+     * @return ensemble des noms (en minuscules), vide si la pizza est valide
+     */
+    public Set<String> ingredientsInterdits(Pizza pizza) {
+        if (estValide(pizza)) {
+            return new HashSet<>();
+        }
+        Set<String> resultat = new HashSet<>();
+        for (int i = 0; i < pizza.getNombreIngredients(); i++) {
+            if (estInterdit(pizza.getType(), pizza.getIdIngredient(i))) {
+                resultat.add(pizza.getNomMinusculeIngredient(i));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Revérifie en parallèle toutes les pizzas d'un catalogue.
+     *
+     * @param pizzas pizzas à vérifier
+     * @return map pizza → ingrédients interdits, limitée aux pizzas invalides
+     */
+    public Map<Pizza, Set<String>> verifierCatalogue(Collection<Pizza> pizzas) {
+        Map<Pizza, Set<String>> invalides = new ConcurrentHashMap<>();
+        pizzas.parallelStream()
+                .filter(p -> !estValide(p))
+                .forEach(p -> invalides.put(p, ingredientsInterdits(p)));
+        return invalides;
+    }
+
+    /**
+     * Retourne les noms interdits pour un type de pizza.
+     *
+     * @param type type de pizza
+     * @return ensemble non modifiable de noms en minuscules
+     */
+    public Set<String> getNomsInterdits(TypePizza type) {
+        return Collections.unmodifiableSet(nomsInterdits.get(type));
+    }
+
+    /**
+     * Active le bit d'un ingrédient dans le masque d'un type.
+     *
+     * @param type type de pizza
+     * @param idIngredient identifiant de l'ingrédient
+     */
+    private void activer(TypePizza type, int idIngredient) {
+        long[] masque = masques[type.ordinal()];
+        int mot = idIngredient >>> 6;
+        if (mot >= masque.length) {
+            masque = Arrays.copyOf(masque, mot + 1);
+        }
+        masque[mot] |= 1L << idIngredient;
+        masques[type.ordinal()] = masque;
+    }
+
+    /**
+     * Recrée des masques vides après désérialisation ; ils sont recompilés
+     * par {@link #compiler(Collection)}.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        masques = new long[TypePizza.values().length][1];
+    }
+}
@@ -0,0 +1,85 @@
+package pizzas;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Session d'un client connecté.
+ * <p>
+ * Une session est identifiée par un jeton opaque. Elle mémorise le client,
+ * la date de dernière utilisation (pour l'expiration) et les filtres
+ * d'affichage propres à ce client.
+ * </p>
+ */
+public class Session {
+
+    private final String jeton;
+    private final Client client;
+    private final Filtres filtres = new Filtres();
+    private volatile long dernierAcces;
+
+    /**
+     * Crée une session.
+     *
+     * @param jeton jeton de la session
+     * @param client client connecté
+     */
+    Session(String jeton, Client client) {
+        this.jeton = jeton;
+        this.client = client;
+        this.dernierAcces = System.currentTimeMillis();
+    }
+
+    public String getJeton() {
+        return jeton;
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    public Filtres getFiltres() {
+        return filtres;
+    }
+
+    long getDernierAcces() {
+        return dernierAcces;
+    }
+
+    /**
+     * Met à jour la date de dernière utilisation.
+     */
+    void toucher() {
+        dernierAcces = System.currentTimeMillis();
+    }
+
+    /**
+     * Filtres d'affichage des pizzas.
+     */
+    public static class Filtres {
+
+        /**
+         * Filtre sur le type de pizza.
+         */
+        TypePizza type;
+
+        /**
+         * Filtre sur les ingrédients (noms en minuscules).
+         */
+        final Set<String> ingredients = new HashSet<>();
+
+        /**
+         * Filtre sur le prix maximum.
+         */
+        Double prixMax;
+
+        /**
+         * Supprime tous les filtres.
+         */
+        void vider() {
+            type = null;
+            ingredients.clear();
+            prixMax = null;
+        }
+    }
+}
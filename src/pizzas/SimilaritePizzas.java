@@ -0,0 +1,247 @@
+package pizzas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Service de recherche des pizzas similaires par leurs ingrédients.
+ * <p>
+ * Chaque pizza reçoit une signature MinHash de {@value #NB_HACHAGES} valeurs
+ * calculée sur les identifiants de ses ingrédients. La signature est découpée
+ * en {@value #NB_BANDES} bandes ; deux pizzas qui partagent une bande tombent
+ * dans le même seau (LSH) et deviennent candidates. Seuls les candidats sont
+ * ensuite classés par similarité de Jaccard exacte, ce qui évite de comparer
+ * toutes les paires de pizzas du catalogue.
+ * </p>
+ */
+public class SimilaritePizzas {
+
+    /**
+     * Nombre de fonctions de hachage (taille de la signature).
+     */
+    static final int NB_HACHAGES = 64;
+
+    /**
+     * Nombre de bandes LSH.
+     */
+    static final int NB_BANDES = 16;
+
+    /**
+     * Nombre de lignes par bande.
+     */
+    private static final int LIGNES_PAR_BANDE = NB_HACHAGES / NB_BANDES;
+
+    /**
+     * Coefficients multiplicatifs des fonctions de hachage.
+     */
+    private static final long[] COEFFICIENTS = new long[NB_HACHAGES];
+
+    /**
+     * Décalages des fonctions de hachage.
+     */
+    private static final long[] DECALAGES = new long[NB_HACHAGES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int k = 0; k < NB_HACHAGES; k++) {
+            COEFFICIENTS[k] = random.nextLong() | 1L;
+            DECALAGES[k] = random.nextLong();
+        }
+    }
+
+    /**
+     * Signature courante de chaque pizza indexée.
+     */
+    private final Map<Pizza, int[]> signatures = new HashMap<>();
+
+    /**
+     * Seaux LSH : pour chaque bande, clé de bande → pizzas.
+     */
+    private final List<Map<Long, Set<Pizza>>> seaux = new ArrayList<>();
+
+    /**
+     * Construit un service vide.
+     */
+    public SimilaritePizzas() {
+        for (int b = 0; b < NB_BANDES; b++) {
+            seaux.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Construit un service indexant un ensemble de pizzas.
+     *
+     * @param pizzas pizzas à indexer
+     */
+    public SimilaritePizzas(Collection<Pizza> pizzas) {
+        this();
+        for (Pizza p : pizzas) {
+            mettreAJour(p);
+        }
+    }
+
+    /**
+     * Indexe une pizza ou recalcule sa signature après un changement de
+     * recette.
+     *
+     * @param pizza pizza à (ré)indexer
+     */
+    public synchronized void mettreAJour(Pizza pizza) {
+        retirer(pizza);
+        int[] signature = signature(pizza);
+        signatures.put(pizza, signature);
+        for (int b = 0; b < NB_BANDES; b++) {
+            seaux.get(b)
+                    .computeIfAbsent(cleBande(signature, b), k -> new HashSet<>())
+                    .add(pizza);
+        }
+    }
+
+    /**
+     * Retire une pizza de l'index.
+     *
+     * @param pizza pizza à retirer
+     */
+    public synchronized void retirer(Pizza pizza) {
+        int[] ancienne = signatures.remove(pizza);
+        if (ancienne == null) {
+            return;
+        }
+        for (int b = 0; b < NB_BANDES; b++) {
+            Map<Long, Set<Pizza>> bande = seaux.get(b);
+            Long cle = cleBande(ancienne, b);
+            Set<Pizza> seau = bande.get(cle);
+            seau.remove(pizza);
+            if (seau.isEmpty()) {
+                bande.remove(cle);
+            }
+        }
+    }
+
+    /**
+     * Retourne les pizzas les plus similaires à une pizza donnée.
+     *
+     * @param pizza pizza de référence
+     * @param nombre nombre maximum de pizzas retournées
+     * @return les pizzas similaires, de la plus proche à la moins proche
+     *         (liste vide si la pizza n'est pas indexée ou n'a pas
+     *         d'ingrédients)
+     */
+    public synchronized List<Pizza> similaires(Pizza pizza, int nombre) {
+        int[] signature = signatures.get(pizza);
+        if (signature == null || pizza.getNombreIngredients() == 0 || nombre <= 0) {
+            return new ArrayList<>();
+        }
+
+        Set<Pizza> candidats = new HashSet<>();
+        for (int b = 0; b < NB_BANDES; b++) {
+            Set<Pizza> seau = seaux.get(b).get(cleBande(signature, b));
+            if (seau != null) {
+                candidats.addAll(seau);
+            }
+        }
+        candidats.remove(pizza);
+
+        List<Pizza> resultat = new ArrayList<>(candidats.size());
+        Map<Pizza, Double> scores = new HashMap<>();
+        for (Pizza c : candidats) {
+            double score = jaccard(pizza, c);
+            if (score > 0) {
+                scores.put(c, score);
+                resultat.add(c);
+            }
+        }
+        resultat.sort((p1, p2) -> Double.compare(scores.get(p2), scores.get(p1)));
+        return resultat.size() > nombre
+                ? new ArrayList<>(resultat.subList(0, nombre))
+                : resultat;
+    }
+
+    /**
+     * Calcule la similarité de Jaccard exacte entre les ingrédients de deux
+     * pizzas, par fusion de leurs tableaux d'identifiants triés.
+     *
+     * @param a première pizza
+     * @param b seconde pizza
+     * @return la similarité entre 0 et 1
+     */
+    static double jaccard(Pizza a, Pizza b) {
+        int na = a.getNombreIngredients();
+        int nb = b.getNombreIngredients();
+        if (na == 0 && nb == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int communs = 0;
+        while (i < na && j < nb) {
+            int ia = a.getIdIngredient(i);
+            int ib = b.getIdIngredient(j);
+            if (ia == ib) {
+                communs++;
+                i++;
+                j++;
+            } else if (ia < ib) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) communs / (na + nb - communs);
+    }
+
+    /**
+     * Calcule la signature MinHash d'une pizza.
+     *
+     * @param pizza pizza concernée
+     * @return la signature
+     */
+    private static int[] signature(Pizza pizza) {
+        int[] signature = new int[NB_HACHAGES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int i = 0; i < pizza.getNombreIngredients(); i++) {
+            long id = pizza.getIdIngredient(i);
+            for (int k = 0; k < NB_HACHAGES; k++) {
+                int h = (int) (melanger(id * COEFFICIENTS[k] + DECALAGES[k]) >>> 33);
+                if (h < signature[k]) {
+                    signature[k] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Calcule la clé d'une bande de signature.
+     *
+     * @param signature signature MinHash
+     * @param bande numéro de bande
+     * @return la clé du seau
+     */
+    private static long cleBande(int[] signature, int bande) {
+        long cle = bande;
+        for (int r = 0; r < LIGNES_PAR_BANDE; r++) {
+            cle = cle * 0x9E3779B97F4A7C15L + signature[bande * LIGNES_PAR_BANDE + r];
+        }
+        return melanger(cle);
+    }
+
+    /**
+     * Fonction de mélange de bits (finaliseur de SplitMix64).
+     *
+     * @param x valeur à mélanger
+     * @return la valeur mélangée
+     */
+    private static long melanger(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,633 @@
+package pizzas;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock des ingrédients d'un gestionnaire pizzaïolo.
+ * <p>
+ * Pour chaque identifiant d'ingrédient, quatre compteurs atomiques :
+ * <ul>
+ *   <li>le stock disponible, non réservé ({@link #ILLIMITE} tant qu'aucun
+ *       stock n'a été fixé)</li>
+ *   <li>le stock réservé par les commandes validées non encore traitées</li>
+ *   <li>le seuil sous lequel le stock disponible est signalé par un
+ *       événement {@link TypeEvenement#STOCK_BAS}</li>
+ *   <li>la génération du suivi, incrémentée quand le stock redevient
+ *       illimité</li>
+ * </ul>
+ * Une pizza consomme une unité de chacun de ses ingrédients. La validation
+ * d'une commande réserve ses ingrédients par compare-and-set, sans verrou :
+ * des validations concurrentes de la même pizza ne s'attendent pas. Si un
+ * ingrédient manque, les réservations déjà faites pour la commande sont
+ * rendues ; une validation concurrente peut, pendant ce court instant, voir
+ * un stock plus bas qu'il ne l'est.
+ * </p>
+ * <p>
+ * La commande garde une {@link Reservation} des quantités effectivement
+ * réservées, et c'est exactement ce qui est consommé au traitement : une
+ * recette modifiée ou un stock fixé entre la validation et le traitement ne
+ * faussent pas les compteurs. Une réservation faite sous une génération
+ * précédente n'est plus décomptée.
+ * </p>
+ * <p>
+ * Les compteurs sont rangés dans des blocs de taille fixe qui ne sont jamais
+ * recopiés : l'ajout d'un ingrédient n'agrandit que le tableau des blocs et
+ * ne peut pas perdre une mise à jour concurrente. Un masque de bits des
+ * pizzas indisponibles (un ingrédient épuisé), rangé de la même façon, se
+ * consulte en temps constant. Quand un stock disponible passe par zéro,
+ * seules les pizzas qui utilisent l'ingrédient sont réévaluées, grâce à un
+ * index ingrédient → pizzas tenu à jour à chaque changement de recette.
+ * </p>
+ */
+final class StockIngredients implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Stock d'un ingrédient dont la quantité n'est pas suivie.
+     */
+    static final long ILLIMITE = Long.MAX_VALUE;
+
+    /**
+     * Nombre d'ingrédients par bloc.
+     */
+    private static final int TAILLE_BLOC = 64;
+
+    /**
+     * Compteurs par ingrédient : disponible, réservé, seuil d'alerte,
+     * génération.
+     */
+    private static final int COMPTEURS = 4;
+
+    private static final int DISPONIBLE = 0;
+    private static final int RESERVE = 1;
+    private static final int SEUIL = 2;
+    private static final int GENERATION = 3;
+
+    /**
+     * Nombre de mots de 64 bits par bloc du masque des pizzas.
+     */
+    private static final int MOTS_BLOC = 64;
+
+    /**
+     * Blocs de compteurs, indexés par identifiant d'ingrédient divisé par
+     * {@link #TAILLE_BLOC}.
+     */
+    private transient volatile AtomicLongArray[] blocs = new AtomicLongArray[0];
+
+    /**
+     * Pizzas indisponibles, bit i = pizza d'identifiant i, par blocs de
+     * {@link #MOTS_BLOC} mots.
+     */
+    private transient volatile AtomicLongArray[] indisponibles = new AtomicLongArray[0];
+
+    /**
+     * Pizzas utilisant chaque ingrédient, indexées par identifiant
+     * d'ingrédient. Chaque tableau est remplacé, jamais modifié.
+     */
+    private transient volatile Pizza[][] utilisations = new Pizza[0][];
+
+    /**
+     * Dictionnaire des ingrédients du gestionnaire.
+     */
+    private transient DictionnaireIngredients dictionnaire;
+
+    /**
+     * Bus sur lequel publier les alertes de stock.
+     */
+    private transient BusEvenements bus;
+
+    /**
+     * Construit un stock illimité pour tous les ingrédients d'un catalogue.
+     *
+     * @param dictionnaire dictionnaire des ingrédients du gestionnaire
+     */
+    StockIngredients(DictionnaireIngredients dictionnaire) {
+        this.dictionnaire = dictionnaire;
+    }
+
+    /**
+     * Définit le bus sur lequel publier les alertes.
+     *
+     * @param bus bus des événements
+     */
+    void setBus(BusEvenements bus) {
+        this.bus = bus;
+    }
+
+    /* =========================
+       COMPTEURS
+       ========================= */
+
+    /**
+     * Retourne le bloc d'un ingrédient, en le créant si besoin.
+     *
+     * @param id identifiant de l'ingrédient
+     * @return le bloc
+     */
+    private AtomicLongArray bloc(int id) {
+        AtomicLongArray[] b = blocs;
+        int n = id / TAILLE_BLOC;
+        if (n < b.length && b[n] != null) {
+            return b[n];
+        }
+        synchronized (this) {
+            b = blocs;
+            if (n >= b.length) {
+                b = Arrays.copyOf(b, n + 1);
+            }
+            if (b[n] == null) {
+                AtomicLongArray nouveau = new AtomicLongArray(TAILLE_BLOC * COMPTEURS);
+                for (int i = 0; i < TAILLE_BLOC; i++) {
+                    nouveau.set(i * COMPTEURS + DISPONIBLE, ILLIMITE);
+                }
+                b[n] = nouveau;
+            }
+            blocs = b;
+            return b[n];
+        }
+    }
+
+    private static int indice(int id, int compteur) {
+        return (id % TAILLE_BLOC) * COMPTEURS + compteur;
+    }
+
+    /**
+     * Retourne le stock disponible d'un ingrédient.
+     *
+     * @param id identifiant de l'ingrédient
+     * @return la quantité non réservée, ou {@link #ILLIMITE}
+     */
+    long disponible(int id) {
+        AtomicLongArray[] b = blocs;
+        int n = id / TAILLE_BLOC;
+        return n < b.length && b[n] != null ? b[n].get(indice(id, DISPONIBLE)) : ILLIMITE;
+    }
+
+    /**
+     * Retourne le stock réservé d'un ingrédient.
+     *
+     * @param id identifiant de l'ingrédient
+     * @return la quantité réservée par les commandes validées
+     */
+    long reserve(int id) {
+        AtomicLongArray[] b = blocs;
+        int n = id / TAILLE_BLOC;
+        return n < b.length && b[n] != null ? b[n].get(indice(id, RESERVE)) : 0;
+    }
+
+    /**
+     * Fixe la quantité en stock d'un ingrédient, réservations comprises.
+     * Repasser un ingrédient en {@link #ILLIMITE} abandonne ses réservations
+     * en cours : elles ne seront pas décomptées à leur traitement.
+     *
+     * @param ingredient ingrédient concerné
+     * @param quantite quantité en stock, ou {@link #ILLIMITE}
+     */
+    void definir(Ingredient ingredient, long quantite) {
+        int id = ingredient.getId();
+        AtomicLongArray b = bloc(id);
+        long avant;
+        long apres;
+        do {
+            avant = b.get(indice(id, DISPONIBLE));
+            apres = quantite == ILLIMITE ? ILLIMITE : quantite - b.get(indice(id, RESERVE));
+        } while (!b.compareAndSet(indice(id, DISPONIBLE), avant, apres));
+        if (quantite == ILLIMITE && avant != ILLIMITE) {
+            b.incrementAndGet(indice(id, GENERATION));
+            b.set(indice(id, RESERVE), 0);
+        }
+        signaler(ingredient, b, avant, apres);
+    }
+
+    /**
+     * Ajoute une quantité au stock disponible d'un ingrédient suivi.
+     *
+     * @param ingredient ingrédient concerné
+     * @param quantite quantité livrée
+     * @return {@code false} si le stock de l'ingrédient n'est pas suivi
+     */
+    boolean reapprovisionner(Ingredient ingredient, long quantite) {
+        int id = ingredient.getId();
+        AtomicLongArray b = bloc(id);
+        long avant;
+        do {
+            avant = b.get(indice(id, DISPONIBLE));
+            if (avant == ILLIMITE) {
+                return false;
+            }
+        } while (!b.compareAndSet(indice(id, DISPONIBLE), avant, avant + quantite));
+        signaler(ingredient, b, avant, avant + quantite);
+        return true;
+    }
+
+    /**
+     * Fixe le seuil d'alerte d'un ingrédient.
+     *
+     * @param ingredient ingrédient concerné
+     * @param seuil quantité disponible sous laquelle alerter
+     */
+    void definirSeuil(Ingredient ingredient, long seuil) {
+        int id = ingredient.getId();
+        bloc(id).set(indice(id, SEUIL), seuil);
+    }
+
+    /* =========================
+       COMMANDES
+       ========================= */
+
+    /**
+     * Indique si le stock disponible suffit à préparer une commande, sans
+     * rien réserver.
+     *
+     * @param lignes lignes de la commande
+     * @return {@code true} si chaque ingrédient est en quantité suffisante
+     */
+    boolean suffit(List<LigneCommande> lignes) {
+        Besoins besoins = new Besoins(lignes);
+        for (int k = 0; k < besoins.nombre; k++) {
+            if (disponible(besoins.ids[k]) < besoins.quantites[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Réserve les ingrédients d'une commande, tous ou aucun.
+     *
+     * @param lignes lignes de la commande
+     * @return les quantités réservées, ou {@code null} si aucun ingrédient
+     *         de la commande n'est suivi
+     * @throws CommandeException si un ingrédient manque
+     */
+    Reservation reserver(List<LigneCommande> lignes) throws CommandeException {
+        Besoins besoins = new Besoins(lignes);
+        Reservation reservation = new Reservation(this, besoins.nombre);
+        for (int k = 0; k < besoins.nombre; k++) {
+            int id = besoins.ids[k];
+            long besoin = besoins.quantites[k];
+            AtomicLongArray[] tous = blocs;
+            int n = id / TAILLE_BLOC;
+            if (n >= tous.length || tous[n] == null) {
+                continue;
+            }
+            AtomicLongArray b = tous[n];
+            long generation = b.get(indice(id, GENERATION));
+            long avant;
+            do {
+                avant = b.get(indice(id, DISPONIBLE));
+                if (avant == ILLIMITE) {
+                    break;
+                }
+                if (avant < besoin) {
+                    liberer(reservation);
+                    throw new CommandeException("Stock insuffisant : "
+                            + dictionnaire.get(id).getNom());
+                }
+            } while (!b.compareAndSet(indice(id, DISPONIBLE), avant, avant - besoin));
+            if (avant != ILLIMITE) {
+                b.getAndAdd(indice(id, RESERVE), besoin);
+                Ingredient ingredient = dictionnaire.get(id);
+                reservation.ajouter(ingredient, besoin, generation);
+                signaler(ingredient, b, avant, avant - besoin);
+            }
+        }
+        return reservation.nombre == 0 ? null : reservation;
+    }
+
+    /**
+     * Rend au stock disponible les quantités d'une réservation.
+     *
+     * @param reservation réservation à rendre
+     */
+    void liberer(Reservation reservation) {
+        for (int k = 0; k < reservation.nombre; k++) {
+            Ingredient ingredient = reservation.ingredients[k];
+            int id = ingredient.getId();
+            AtomicLongArray b = bloc(id);
+            if (b.get(indice(id, GENERATION)) != reservation.generations[k]) {
+                continue;
+            }
+            long quantite = reservation.quantites[k];
+            b.getAndAdd(indice(id, RESERVE), -quantite);
+            long avant = b.getAndAdd(indice(id, DISPONIBLE), quantite);
+            signaler(ingredient, b, avant, avant + quantite);
+        }
+        reservation.nombre = 0;
+    }
+
+    /**
+     * Consomme les quantités d'une réservation, quand sa commande est
+     * traitée.
+     *
+     * @param reservation réservation à consommer
+     */
+    void consommer(Reservation reservation) {
+        for (int k = 0; k < reservation.nombre; k++) {
+            int id = reservation.ingredients[k].getId();
+            AtomicLongArray b = bloc(id);
+            if (b.get(indice(id, GENERATION)) == reservation.generations[k]) {
+                b.getAndAdd(indice(id, RESERVE), -reservation.quantites[k]);
+            }
+        }
+        reservation.nombre = 0;
+    }
+
+    /**
+     * Publie une alerte si le stock passe sous son seuil, et réévalue les
+     * pizzas qui utilisent l'ingrédient s'il passe par zéro.
+     */
+    private void signaler(Ingredient ingredient, AtomicLongArray b, long avant, long apres) {
+        int id = ingredient.getId();
+        long seuil = b.get(indice(id, SEUIL));
+        BusEvenements bus = this.bus;
+        if (bus != null && apres < seuil && (avant >= seuil || avant == ILLIMITE)) {
+            bus.publier(TypeEvenement.STOCK_BAS, ingredient, id, apres);
+        }
+        if ((avant > 0) != (apres > 0)) {
+            Pizza[][] u = utilisations;
+            if (id < u.length && u[id] != null) {
+                for (Pizza p : u[id]) {
+                    evaluer(p);
+                }
+            }
+        }
+    }
+
+    /* =========================
+       DISPONIBILITÉ DES PIZZAS
+       ========================= */
+
+    /**
+     * Indique si une pizza peut être préparée, chacun de ses ingrédients
+     * ayant au moins une unité disponible.
+     *
+     * @param idPizza identifiant de la pizza
+     * @return {@code true} si la pizza est disponible
+     */
+    boolean pizzaDisponible(int idPizza) {
+        AtomicLongArray[] m = indisponibles;
+        int w = idPizza >>> 6;
+        int n = w / MOTS_BLOC;
+        return n >= m.length || m[n] == null
+                || (m[n].get(w % MOTS_BLOC) & (1L << idPizza)) == 0;
+    }
+
+    /**
+     * Réindexe une pizza dont la recette a changé et réévalue sa
+     * disponibilité. Appelée par le gestionnaire sous son verrou en écriture.
+     *
+     * @param pizza pizza modifiée
+     * @param ingredient ingrédient ajouté ou retiré
+     * @param ajoute {@code true} si l'ingrédient a été ajouté
+     */
+    void recetteModifiee(Pizza pizza, Ingredient ingredient, boolean ajoute) {
+        synchronized (this) {
+            int id = ingredient.getId();
+            Pizza[][] u = utilisations;
+            if (id >= u.length) {
+                u = Arrays.copyOf(u, id + 1);
+            }
+            Pizza[] avant = u[id] == null ? new Pizza[0] : u[id];
+            int pos = -1;
+            for (int i = 0; i < avant.length; i++) {
+                if (avant[i] == pizza) {
+                    pos = i;
+                }
+            }
+            if (ajoute && pos < 0) {
+                Pizza[] apres = Arrays.copyOf(avant, avant.length + 1);
+                apres[avant.length] = pizza;
+                u[id] = apres;
+            } else if (!ajoute && pos >= 0) {
+                Pizza[] apres = new Pizza[avant.length - 1];
+                System.arraycopy(avant, 0, apres, 0, pos);
+                System.arraycopy(avant, pos + 1, apres, pos, apres.length - pos);
+                u[id] = apres;
+            }
+            utilisations = u;
+        }
+        evaluer(pizza);
+    }
+
+    /**
+     * Reconstruit l'index ingrédient → pizzas et le masque des pizzas
+     * indisponibles, après le chargement du gestionnaire.
+     *
+     * @param pizzas pizzas du gestionnaire
+     */
+    void indexer(Collection<Pizza> pizzas) {
+        for (Pizza p : pizzas) {
+            for (int i = 0; i < p.getNombreIngredients(); i++) {
+                recetteModifiee(p, dictionnaire.get(p.getIdIngredient(i)), true);
+            }
+        }
+    }
+
+    /**
+     * Met à jour le bit d'une pizza d'après le stock de ses ingrédients. Le
+     * calcul est refait après l'écriture du bit : si un autre fil a écrit un
+     * bit calculé sur un stock plus ancien entre-temps, le dernier fil à
+     * écrire rétablit la bonne valeur.
+     *
+     * @param pizza pizza à réévaluer
+     */
+    private void evaluer(Pizza pizza) {
+        int w = pizza.getId() >>> 6;
+        long bit = 1L << pizza.getId();
+        AtomicLongArray mots = blocMasque(w / MOTS_BLOC);
+        boolean indisponible = epuisee(pizza);
+        while (true) {
+            if (indisponible) {
+                mots.getAndAccumulate(w % MOTS_BLOC, bit, (a, x) -> a | x);
+            } else {
+                mots.getAndAccumulate(w % MOTS_BLOC, ~bit, (a, x) -> a & x);
+            }
+            boolean verification = epuisee(pizza);
+            if (verification == indisponible) {
+                return;
+            }
+            indisponible = verification;
+        }
+    }
+
+    /**
+     * Indique si un des ingrédients d'une pizza est épuisé.
+     *
+     * @param pizza pizza concernée
+     * @return {@code true} si un ingrédient n'a plus d'unité disponible
+     */
+    private boolean epuisee(Pizza pizza) {
+        for (int i = 0; i < pizza.getNombreIngredients(); i++) {
+            if (disponible(pizza.getIdIngredient(i)) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne un bloc du masque des pizzas, en le créant si besoin.
+     *
+     * @param n numéro du bloc
+     * @return le bloc
+     */
+    private AtomicLongArray blocMasque(int n) {
+        AtomicLongArray[] m = indisponibles;
+        if (n < m.length && m[n] != null) {
+            return m[n];
+        }
+        synchronized (this) {
+            m = indisponibles;
+            if (n >= m.length) {
+                m = Arrays.copyOf(m, n + 1);
+            }
+            if (m[n] == null) {
+                m[n] = new AtomicLongArray(MOTS_BLOC);
+            }
+            indisponibles = m;
+            return m[n];
+        }
+    }
+
+    /* =========================
+       SÉRIALISATION
+       ========================= */
+
+    /**
+     * Écrit les compteurs des ingrédients suivis, avec l'ingrédient lui-même :
+     * les identifiants d'ingrédients sont réattribués à la relecture.
+     *
+     * @param out flux d'écriture
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        AtomicLongArray[] b = blocs;
+        for (int n = 0; n < b.length; n++) {
+            for (int i = 0; b[n] != null && i < TAILLE_BLOC; i++) {
+                long disponible = b[n].get(i * COMPTEURS + DISPONIBLE);
+                long seuil = b[n].get(i * COMPTEURS + SEUIL);
+                long generation = b[n].get(i * COMPTEURS + GENERATION);
+                if (disponible != ILLIMITE || seuil != 0 || generation != 0) {
+                    out.writeObject(dictionnaire.get(n * TAILLE_BLOC + i));
+                    out.writeLong(disponible);
+                    out.writeLong(b[n].get(i * COMPTEURS + RESERVE));
+                    out.writeLong(seuil);
+                    out.writeLong(generation);
+                }
+            }
+        }
+        out.writeObject(null);
+    }
+
+    /**
+     * Relit les compteurs sous les nouveaux identifiants d'ingrédients. Le
+     * masque des pizzas est reconstruit par le gestionnaire, une fois ses
+     * pizzas relues.
+     *
+     * @param in flux de lecture
+     * @throws IOException en cas d'erreur de lecture
+     * @throws ClassNotFoundException si une classe est introuvable
+     */
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        dictionnaire = DictionnaireIngredients.courant();
+        blocs = new AtomicLongArray[0];
+        indisponibles = new AtomicLongArray[0];
+        utilisations = new Pizza[0][];
+        Ingredient ingredient;
+        while ((ingredient = (Ingredient) in.readObject()) != null) {
+            int id = ingredient.getId();
+            AtomicLongArray b = bloc(id);
+            b.set(indice(id, DISPONIBLE), in.readLong());
+            b.set(indice(id, RESERVE), in.readLong());
+            b.set(indice(id, SEUIL), in.readLong());
+            b.set(indice(id, GENERATION), in.readLong());
+        }
+    }
+
+    /**
+     * Quantités réservées pour une commande validée, à consommer à son
+     * traitement. Les ingrédients sont conservés eux-mêmes, leurs
+     * identifiants étant réattribués au chargement.
+     */
+    static final class Reservation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final StockIngredients stock;
+        private final Ingredient[] ingredients;
+        private final long[] quantites;
+        private final long[] generations;
+        private int nombre;
+
+        private Reservation(StockIngredients stock, int capacite) {
+            this.stock = stock;
+            this.ingredients = new Ingredient[capacite];
+            this.quantites = new long[capacite];
+            this.generations = new long[capacite];
+        }
+
+        private void ajouter(Ingredient ingredient, long quantite, long generation) {
+            ingredients[nombre] = ingredient;
+            quantites[nombre] = quantite;
+            generations[nombre++] = generation;
+        }
+
+        /**
+         * Consomme les quantités réservées.
+         */
+        void consommer() {
+            stock.consommer(this);
+        }
+    }
+
+    /**
+     * Quantités d'ingrédients nécessaires à une commande, chaque ingrédient
+     * n'y figurant qu'une fois. Les commandes comptent peu d'ingrédients : un
+     * parcours linéaire suffit pour regrouper.
+     */
+    private static final class Besoins {
+
+        final int[] ids;
+        final long[] quantites;
+        int nombre;
+
+        Besoins(List<LigneCommande> lignes) {
+            int total = 0;
+            for (int i = 0; i < lignes.size(); i++) {
+                total += lignes.get(i).getPizza().getNombreIngredients();
+            }
+            ids = new int[total];
+            quantites = new long[total];
+            for (int i = 0; i < lignes.size(); i++) {
+                Pizza p = lignes.get(i).getPizza();
+                int quantite = lignes.get(i).getQuantite();
+                for (int j = 0; j < p.getNombreIngredients(); j++) {
+                    ajouter(p.getIdIngredient(j), quantite);
+                }
+            }
+        }
+
+        private void ajouter(int id, long quantite) {
+            for (int k = 0; k < nombre; k++) {
+                if (ids[k] == id) {
+                    quantites[k] += quantite;
+                    return;
+                }
+            }
+            ids[nombre] = id;
+            quantites[nombre++] = quantite;
+        }
+    }
+}
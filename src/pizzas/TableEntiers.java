@@ -0,0 +1,162 @@
+package pizzas;
+
+import java.util.Arrays;
+
+/**
+ * Table de hachage à adressage ouvert associant des entiers à des compteurs
+ * entiers, sans objet intermédiaire (ni {@code Integer} ni entrée de map).
+ * <p>
+ * Les clés doivent être positives ou nulles ; la valeur -1 marque une case
+ * libre. Cette classe n'est pas synchronisée.
+ * </p>
+ */
+public class TableEntiers {
+
+    /**
+     * Action appliquée à chaque couple clé / valeur.
+     */
+    @FunctionalInterface
+    public interface Visiteur {
+
+        /**
+         * Traite un couple clé / valeur.
+         *
+         * @param cle la clé
+         * @param valeur la valeur associée
+         */
+        void visiter(int cle, int valeur);
+    }
+
+    /**
+     * Marqueur de case libre.
+     */
+    private static final int LIBRE = -1;
+
+    private int[] cles;
+    private int[] valeurs;
+    private int taille;
+
+    /**
+     * Construit une table vide.
+     */
+    public TableEntiers() {
+        this(8);
+    }
+
+    /**
+     * Construit une table vide avec une capacité initiale.
+     *
+     * @param capacite nombre d'entrées attendues
+     */
+    public TableEntiers(int capacite) {
+        int n = Integer.highestOneBit(Math.max(4, capacite * 2 - 1)) << 1;
+        cles = new int[n];
+        valeurs = new int[n];
+        Arrays.fill(cles, LIBRE);
+    }
+
+    /**
+     * Retourne la valeur associée à une clé.
+     *
+     * @param cle la clé
+     * @return la valeur, ou 0 si la clé est absente
+     */
+    public int get(int cle) {
+        int masque = cles.length - 1;
+        for (int i = melanger(cle) & masque; ; i = (i + 1) & masque) {
+            int c = cles[i];
+            if (c == cle) {
+                return valeurs[i];
+            }
+            if (c == LIBRE) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Ajoute une quantité à la valeur associée à une clé (0 si absente).
+     *
+     * @param cle la clé (positive ou nulle)
+     * @param delta quantité à ajouter
+     */
+    public void incrementer(int cle, int delta) {
+        if (cle < 0) {
+            throw new IllegalArgumentException("Clé négative");
+        }
+        int masque = cles.length - 1;
+        int i = melanger(cle) & masque;
+        while (cles[i] != LIBRE && cles[i] != cle) {
+            i = (i + 1) & masque;
+        }
+        if (cles[i] == LIBRE) {
+            cles[i] = cle;
+            taille++;
+            valeurs[i] = delta;
+            if (taille * 4 > cles.length * 3) {
+                agrandir();
+            }
+        } else {
+            valeurs[i] += delta;
+        }
+    }
+
+    /**
+     * Ajoute toutes les valeurs d'une autre table à celle-ci.
+     *
+     * @param autre table à fusionner
+     */
+    public void ajouterTout(TableEntiers autre) {
+        autre.pourChaque(this::incrementer);
+    }
+
+    /**
+     * Applique une action à chaque couple clé / valeur.
+     *
+     * @param visiteur action à appliquer
+     */
+    public void pourChaque(Visiteur visiteur) {
+        for (int i = 0; i < cles.length; i++) {
+            if (cles[i] != LIBRE) {
+                visiteur.visiter(cles[i], valeurs[i]);
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre de clés présentes.
+     *
+     * @return le nombre de clés
+     */
+    public int taille() {
+        return taille;
+    }
+
+    /**
+     * Double la capacité de la table.
+     */
+    private void agrandir() {
+        int[] anciennesCles = cles;
+        int[] anciennesValeurs = valeurs;
+        cles = new int[anciennesCles.length * 2];
+        valeurs = new int[anciennesCles.length * 2];
+        Arrays.fill(cles, LIBRE);
+        taille = 0;
+        for (int i = 0; i < anciennesCles.length; i++) {
+            if (anciennesCles[i] != LIBRE) {
+                incrementer(anciennesCles[i], anciennesValeurs[i]);
+            }
+        }
+    }
+
+    /**
+     * Disperse les bits d'une clé.
+     *
+     * @param cle la clé
+     * @return la valeur dispersée
+     */
+    private static int melanger(int cle) {
+        int h = cle * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,43 @@
+package pizzas;
+
+/**
+ * Types d'événements du domaine publiés sur le {@link BusEvenements}.
+ */
+public enum TypeEvenement {
+
+    /**
+     * Le prix d'un ingrédient a changé : sujet = {@link Ingredient},
+     * valeur = nouveau prix.
+     */
+    PRIX_INGREDIENT_CHANGE,
+
+    /**
+     * Une pizza a été créée : sujet = {@link Pizza}.
+     */
+    PIZZA_CREEE,
+
+    /**
+     * Une commande validée a été transmise au pizzaïolo : sujet =
+     * {@link Commande}, valeur = prix total.
+     */
+    COMMANDE_VALIDEE,
+
+    /**
+     * Une commande a été traitée : sujet = {@link Commande}, valeur = prix
+     * total.
+     */
+    COMMANDE_TRAITEE,
+
+    /**
+     * Une évaluation a été ajoutée : sujet = {@link Pizza}, entier =
+     * identifiant du client, valeur = note.
+     */
+    EVALUATION_AJOUTEE,
+
+    /**
+     * Le stock disponible d'un ingrédient est passé sous son seuil
+     * d'alerte : sujet = {@link Ingredient}, entier = identifiant de
+     * l'ingrédient, valeur = stock disponible.
+     */
+    STOCK_BAS
+}
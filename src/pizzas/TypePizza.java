@@ -17,6 +17,16 @@ public enum TypePizza {
         this.ingredientsInterdits = ingredientsInterdits;
     }
 
+    /**
+     * Retourne les noms (en minuscules) des ingrédients interdits par défaut
+     * pour ce type de pizza.
+     *
+     * @return ensemble non modifiable de noms d'ingrédients
+     */
+    public Set<String> getIngredientsInterditsParDefaut() {
+        return ingredientsInterdits;
+    }
+
     /**
      * Vérifie si un ingrédient est autorisé pour ce type de pizza.
      *
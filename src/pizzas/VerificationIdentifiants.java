@@ -0,0 +1,217 @@
+package pizzas;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vérification des mots de passe sur un groupe de fils dédié.
+ * <p>
+ * Le calcul d'une empreinte est volontairement coûteux. Pour qu'une rafale de
+ * connexions ne pénalise ni l'interface graphique ni le traitement des
+ * commandes :
+ * <ul>
+ *   <li>les vérifications s'exécutent sur un nombre limité de fils, avec une
+ *       file d'attente bornée ; au-delà, la connexion est refusée</li>
+ *   <li>le nombre de tentatives par compte est limité sur une fenêtre de
+ *       temps ; les fenêtres expirées sont purgées au plus une fois par
+ *       fenêtre</li>
+ *   <li>les empreintes des nouveaux comptes sont calculées sur les mêmes
+ *       fils</li>
+ * </ul>
+ * </p>
+ */
+public class VerificationIdentifiants {
+
+    /**
+     * Nombre maximum de tentatives par compte et par fenêtre.
+     */
+    public static final int TENTATIVES_MAX = 5;
+
+    /**
+     * Durée de la fenêtre de limitation des tentatives (1 minute).
+     */
+    public static final long FENETRE_TENTATIVES = 60_000L;
+
+    /**
+     * Délai maximum d'attente d'une vérification synchrone, en ms.
+     */
+    private static final long DELAI_VERIFICATION = 5_000L;
+
+    /**
+     * Taille de la file d'attente des vérifications.
+     */
+    private static final int TAILLE_FILE = 256;
+
+    /**
+     * Fenêtre de comptage des tentatives d'un compte.
+     */
+    private static final class Tentatives {
+        private final long debut;
+        private int nombre;
+
+        private Tentatives(long debut) {
+            this.debut = debut;
+        }
+    }
+
+    private final ThreadPoolExecutor executeur;
+    private final Map<String, Tentatives> tentatives = new ConcurrentHashMap<>();
+
+    /**
+     * Date à partir de laquelle les fenêtres expirées seront purgées.
+     */
+    private volatile long prochainePurge;
+
+    /**
+     * Construit un service avec un fil de vérification par tranche de
+     * quatre processeurs (au moins un).
+     */
+    public VerificationIdentifiants() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+    }
+
+    /**
+     * Construit un service de vérification.
+     *
+     * @param nbFils nombre de fils de vérification
+     */
+    public VerificationIdentifiants(int nbFils) {
+        AtomicInteger numero = new AtomicInteger();
+        executeur = new ThreadPoolExecutor(nbFils, nbFils, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(TAILLE_FILE), r -> {
+                    Thread t = new Thread(r, "verification-mdp-" + numero.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executeur.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Enregistre une tentative de connexion pour un compte existant.
+     *
+     * @param cle email normalisé du compte
+     * @return {@code true} si la tentative est autorisée, {@code false} si le
+     *         compte a dépassé son quota sur la fenêtre courante
+     */
+    public boolean autoriserTentative(String cle) {
+        long maintenant = System.currentTimeMillis();
+        if (maintenant >= prochainePurge) {
+            purger(maintenant);
+        }
+        int[] nombre = new int[1];
+        tentatives.compute(cle, (k, t) -> {
+            if (t == null || maintenant - t.debut > FENETRE_TENTATIVES) {
+                t = new Tentatives(maintenant);
+            }
+            nombre[0] = ++t.nombre;
+            return t;
+        });
+        return nombre[0] <= TENTATIVES_MAX;
+    }
+
+    /**
+     * Supprime les fenêtres expirées. Chaque suppression est atomique avec
+     * les tentatives concurrentes sur le même compte.
+     *
+     * @param maintenant date courante, en ms
+     */
+    private void purger(long maintenant) {
+        prochainePurge = maintenant + FENETRE_TENTATIVES;
+        for (String cle : tentatives.keySet()) {
+            tentatives.computeIfPresent(cle,
+                    (k, t) -> maintenant - t.debut > FENETRE_TENTATIVES ? null : t);
+        }
+    }
+
+    /**
+     * Retourne le nombre de comptes dont les tentatives sont suivies.
+     *
+     * @return le nombre de fenêtres conservées
+     */
+    public int nombreComptesSuivis() {
+        return tentatives.size();
+    }
+
+    /**
+     * Oublie les tentatives d'un compte, après une connexion réussie.
+     *
+     * @param cle email normalisé du compte
+     */
+    public void reinitialiser(String cle) {
+        tentatives.remove(cle);
+    }
+
+    /**
+     * Lance la vérification d'un mot de passe sur le groupe dédié.
+     *
+     * @param client compte concerné
+     * @param mdp mot de passe proposé
+     * @return le résultat futur ; {@code false} si le service est saturé
+     */
+    public CompletableFuture<Boolean> verifier(Client client, String mdp) {
+        try {
+            return CompletableFuture.supplyAsync(() -> client.verifierMotDePasse(mdp), executeur);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Calcule l'empreinte d'un nouveau mot de passe sur le groupe dédié.
+     *
+     * @param mdp mot de passe en clair
+     * @return l'empreinte future, en échec avec
+     *         {@link RejectedExecutionException} si le service est saturé
+     */
+    public CompletableFuture<MotDePasse> hacher(String mdp) {
+        try {
+            return CompletableFuture.supplyAsync(() -> MotDePasse.hacher(mdp), executeur);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Calcule l'empreinte d'un nouveau mot de passe sur le groupe dédié et
+     * attend le résultat.
+     *
+     * @param mdp mot de passe en clair
+     * @return l'empreinte, ou {@code null} si le service est saturé
+     */
+    public MotDePasse hacherEtAttendre(String mdp) {
+        try {
+            return hacher(mdp).get(DELAI_VERIFICATION, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Vérifie un mot de passe sur le groupe dédié et attend le résultat.
+     *
+     * @param client compte concerné
+     * @param mdp mot de passe proposé
+     * @return {@code true} si le mot de passe est correct
+     */
+    public boolean verifierEtAttendre(Client client, String mdp) {
+        try {
+            return verifier(client, mdp).get(DELAI_VERIFICATION, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+}
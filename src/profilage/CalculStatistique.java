@@ -0,0 +1,28 @@
+package profilage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Calcul d'une statistique sur les commandes traitées.
+ */
+@Name("pizzas.CalculStatistique")
+@Label("Calcul de statistique")
+@Description("Calcul d'une statistique sur les commandes traitées.")
+@Category({"Pizzas", "Statistiques"})
+@Threshold("5 ms")
+@StackTrace(false)
+public final class CalculStatistique extends jdk.jfr.Event {
+
+    /** Nom du calcul (méthode du gestionnaire). */
+    @Label("Calcul")
+    public String calcul;
+
+    /** Nombre de commandes traitées parcourues. */
+    @Label("Commandes")
+    public int commandes;
+}
@@ -0,0 +1,30 @@
+package profilage;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Lecture des données du pizzaïolo depuis un fichier.
+ */
+@Name("pizzas.Chargement")
+@Label("Chargement")
+@Description("Lecture des données du pizzaïolo depuis un fichier.")
+@Category({"Pizzas", "Persistance"})
+@Threshold("0 ms")
+@StackTrace(false)
+public final class Chargement extends jdk.jfr.Event {
+
+    /** Chemin du fichier. */
+    @Label("Fichier")
+    public String fichier;
+
+    /** Taille du fichier. */
+    @Label("Taille")
+    @DataAmount
+    public long octets;
+}
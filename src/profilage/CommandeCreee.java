@@ -0,0 +1,16 @@
+package profilage;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Création d'une commande par un client.
+ */
+@Name("pizzas.CommandeCreee")
+@Label("Commande créée")
+@Description("Création d'une commande par un client.")
+@Threshold("0 ms")
+public final class CommandeCreee extends EvenementCommande {
+}
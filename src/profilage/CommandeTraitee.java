@@ -0,0 +1,22 @@
+package profilage;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Traitement d'une commande par le pizzaïolo.
+ */
+@Name("pizzas.CommandeTraitee")
+@Label("Commande traitée")
+@Description("Traitement d'une commande par le pizzaïolo.")
+@Threshold("0 ms")
+public final class CommandeTraitee extends EvenementCommande {
+
+    /** Délai entre la création de la commande et son traitement. */
+    @Label("Délai depuis la création")
+    @Timespan(Timespan.MILLISECONDS)
+    public long delaiDepuisCreation;
+}
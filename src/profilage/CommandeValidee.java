@@ -0,0 +1,16 @@
+package profilage;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Validation d'une commande par son client.
+ */
+@Name("pizzas.CommandeValidee")
+@Label("Commande validée")
+@Description("Validation d'une commande par son client.")
+@Threshold("0 ms")
+public final class CommandeValidee extends EvenementCommande {
+}
@@ -0,0 +1,29 @@
+package profilage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Champs communs aux événements du cycle de vie d'une commande.
+ */
+@Category({"Pizzas", "Commandes"})
+@StackTrace(false)
+public abstract class EvenementCommande extends jdk.jfr.Event {
+
+    /** Identifiant de la commande. */
+    @Label("Commande")
+    public int idCommande;
+
+    /** Identifiant du client. */
+    @Label("Client")
+    public int idClient;
+
+    /** Nombre de pizzas de la commande. */
+    @Label("Pizzas")
+    public int nombrePizzas;
+
+    /** Prix total de la commande. */
+    @Label("Valeur")
+    public double valeur;
+}
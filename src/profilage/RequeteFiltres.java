@@ -0,0 +1,40 @@
+package profilage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Sélection des pizzas du catalogue selon des filtres.
+ */
+@Name("pizzas.RequeteFiltres")
+@Label("Requête filtrée")
+@Description("Sélection des pizzas du catalogue selon des filtres.")
+@Category({"Pizzas", "Catalogue"})
+@Threshold("1 ms")
+@StackTrace(false)
+public final class RequeteFiltres extends jdk.jfr.Event {
+
+    /** Type de pizza filtré, vide si aucun. */
+    @Label("Type")
+    public String type;
+
+    /** Ingrédients requis, séparés par des virgules. */
+    @Label("Ingrédients")
+    public String ingredients;
+
+    /** Nombre d'ingrédients requis. */
+    @Label("Nombre d'ingrédients")
+    public int nombreIngredients;
+
+    /** Prix maximum, négatif si aucun. */
+    @Label("Prix maximum")
+    public double prixMax;
+
+    /** Nombre de pizzas retenues. */
+    @Label("Résultats")
+    public int resultats;
+}
@@ -0,0 +1,7 @@
+/**
+ * Événements Java Flight Recorder du domaine : cycle de vie des commandes,
+ * requêtes filtrées, calculs de statistiques et persistance. Les seuils
+ * d'enregistrement se règlent dans le fichier de paramètres
+ * {@code pizzas.jfc} de ce paquetage.
+ */
+package profilage;
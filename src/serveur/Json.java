@@ -0,0 +1,91 @@
+package serveur;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Écriture minimale de documents JSON, sans dépendance externe.
+ * <p>
+ * Les valeurs acceptées sont {@code null}, les chaînes, les nombres, les
+ * booléens, les {@link Map} (clés converties en chaînes) et les
+ * {@link Collection}.
+ * </p>
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Convertit une valeur en texte JSON.
+     *
+     * @param valeur valeur à convertir
+     * @return le texte JSON
+     */
+    static String ecrire(Object valeur) {
+        StringBuilder sb = new StringBuilder(128);
+        ecrire(sb, valeur);
+        return sb.toString();
+    }
+
+    private static void ecrire(StringBuilder sb, Object valeur) {
+        if (valeur == null) {
+            sb.append("null");
+        } else if (valeur instanceof String) {
+            chaine(sb, (String) valeur);
+        } else if (valeur instanceof Double || valeur instanceof Float) {
+            double d = ((Number) valeur).doubleValue();
+            if (Double.isFinite(d)) {
+                sb.append(String.format(Locale.ROOT, "%.2f", d));
+            } else {
+                sb.append("null");
+            }
+        } else if (valeur instanceof Number || valeur instanceof Boolean) {
+            sb.append(valeur);
+        } else if (valeur instanceof Map) {
+            sb.append('{');
+            boolean premier = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) valeur).entrySet()) {
+                if (!premier) sb.append(',');
+                premier = false;
+                chaine(sb, String.valueOf(e.getKey()));
+                sb.append(':');
+                ecrire(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (valeur instanceof Collection) {
+            sb.append('[');
+            boolean premier = true;
+            for (Object o : (Collection<?>) valeur) {
+                if (!premier) sb.append(',');
+                premier = false;
+                ecrire(sb, o);
+            }
+            sb.append(']');
+        } else {
+            chaine(sb, valeur.toString());
+        }
+    }
+
+    private static void chaine(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,76 @@
+package serveur;
+
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import metriques.RegistreMetriques;
+import pizzas.GestionClient;
+import pizzas.GestionPizzaiolo;
+
+/**
+ * Lanceur sans interface graphique : démarre les services client et
+ * pizzaïolo derrière l'API HTTP de {@link ServeurPizzas}.
+ * <p>
+ * Usage : {@code java serveur.MainServeur [port] [nombreFils]} (par défaut
+ * 8080 et 0, soit des fils virtuels si la JVM en dispose, sinon 4 fils par
+ * processeur).
+ * </p>
+ * <p>
+ * Les métriques sont consultables par {@code GET /metriques} et, si la
+ * propriété {@code pizzas.metriques.periode} donne une période en secondes,
+ * écrites périodiquement sur la sortie standard.
+ * </p>
+ * <p>
+ * La propriété {@code pizzas.archive.age} (en minutes) active l'archivage
+ * hors tas des commandes traitées plus anciennes ; l'archive est projetée
+ * dans le répertoire {@code pizzas.archive.repertoire} s'il est donné, en
+ * mémoire directe sinon.
+ * </p>
+ * <p>
+ * Les routes du pizzaïolo exigent le jeton donné par la propriété
+ * {@code pizzas.jeton.pizzaiolo} ; à défaut, un jeton aléatoire est tiré au
+ * démarrage et affiché sur la sortie standard.
+ * </p>
+ */
+public class MainServeur {
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int fils = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        GestionPizzaiolo gestionPizzaiolo = new GestionPizzaiolo();
+        GestionClient gestionClient = new GestionClient(gestionPizzaiolo.getPizzas());
+        gestionClient.setGestionPizzaiolo(gestionPizzaiolo);
+
+        long ageArchive = Long.getLong("pizzas.archive.age", -1);
+        if (ageArchive >= 0) {
+            String repertoire = System.getProperty("pizzas.archive.repertoire");
+            gestionPizzaiolo.configurerArchivage(Duration.ofMinutes(ageArchive),
+                    repertoire == null ? null : Path.of(repertoire));
+        }
+
+        RegistreMetriques metriques = new RegistreMetriques();
+        gestionPizzaiolo.enregistrerMetriques(metriques);
+        long periode = Long.getLong("pizzas.metriques.periode", 0);
+        if (periode > 0) {
+            metriques.publierPeriodiquement(periode, TimeUnit.SECONDS, System.out::print);
+        }
+
+        ServeurPizzas serveur = new ServeurPizzas(gestionPizzaiolo, gestionClient, port, fils);
+        serveur.setMetriques(metriques);
+        String jeton = System.getProperty("pizzas.jeton.pizzaiolo");
+        if (jeton == null) {
+            byte[] alea = new byte[24];
+            new SecureRandom().nextBytes(alea);
+            jeton = Base64.getUrlEncoder().withoutPadding().encodeToString(alea);
+            System.out.println("Jeton pizzaïolo : " + jeton);
+        }
+        serveur.setJetonPizzaiolo(jeton);
+        Runtime.getRuntime().addShutdownHook(new Thread(serveur::arreter));
+        serveur.demarrer();
+        System.out.println("Serveur pizzas à l'écoute sur http://127.0.0.1:" + serveur.getPort());
+    }
+}
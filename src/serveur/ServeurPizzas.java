@@ -0,0 +1,489 @@
+package serveur;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import pizzas.Commande;
+import pizzas.CommandeException;
+import pizzas.Evaluation;
+import pizzas.GestionClient;
+import pizzas.GestionPizzaiolo;
+import pizzas.InformationPersonnelle;
+import pizzas.LigneCommande;
+import pizzas.NonConnecteException;
+import pizzas.Pizza;
+import pizzas.TypePizza;
+import metriques.RegistreMetriques;
+
+/**
+ * API HTTP locale exposant les services client et pizzaïolo.
+ * <p>
+ * Les paramètres sont lus dans la chaîne de requête et, pour un POST, dans le
+ * corps encodé comme un formulaire. Les réponses sont en JSON. Le client est
+ * identifié par le jeton de session renvoyé par {@code POST /sessions}, à
+ * transmettre dans l'en-tête {@value #ENTETE_JETON} ; aucune donnée de
+ * session n'est gardée par le serveur en dehors de {@link GestionClient}.
+ * </p>
+ * <p>
+ * Les routes du pizzaïolo ({@code /cuisine}, {@code /statistiques}) exigent
+ * le jeton fixé par {@link #setJetonPizzaiolo(String)}, transmis dans
+ * l'en-tête {@value #ENTETE_PIZZAIOLO} ; une session client n'y donne pas
+ * accès (403). Sans jeton pizzaïolo configuré, ces routes ne sont pas
+ * exposées (404).
+ * </p>
+ * <table>
+ *   <caption>Routes</caption>
+ *   <tr><td>GET /pizzas</td><td>catalogue, filtres {@code type},
+ *       {@code ingredients} (séparés par des virgules), {@code prixMax}</td></tr>
+ *   <tr><td>GET /pizzas/classement</td><td>pizzas de la mieux notée à la
+ *       moins bien notée</td></tr>
+ *   <tr><td>POST /clients</td><td>inscription : {@code email}, {@code mdp},
+ *       {@code nom}, {@code prenom}, {@code adresse}, {@code age}</td></tr>
+ *   <tr><td>POST /sessions</td><td>connexion : {@code email}, {@code mdp}</td></tr>
+ *   <tr><td>DELETE /sessions</td><td>déconnexion</td></tr>
+ *   <tr><td>GET /commandes</td><td>commandes du client</td></tr>
+ *   <tr><td>POST /commandes</td><td>nouvelle commande</td></tr>
+ *   <tr><td>POST /commandes/{id}/pizzas</td><td>ajout : {@code pizza},
+ *       {@code nombre}</td></tr>
+ *   <tr><td>POST /commandes/{id}/validation</td><td>validation et envoi au
+ *       pizzaïolo</td></tr>
+ *   <tr><td>GET /evaluations</td><td>{@code pizza}, {@code debut},
+ *       {@code nombre}</td></tr>
+ *   <tr><td>POST /evaluations</td><td>{@code pizza}, {@code note},
+ *       {@code commentaire}</td></tr>
+ *   <tr><td>POST /cuisine/traitement</td><td>traite les commandes en
+ *       attente (pizzaïolo)</td></tr>
+ *   <tr><td>GET /statistiques</td><td>bénéfices et classements
+ *       (pizzaïolo)</td></tr>
+ *   <tr><td>GET /metriques</td><td>relevé des métriques, si un registre a
+ *       été fourni par {@link #setMetriques(RegistreMetriques)}</td></tr>
+ * </table>
+ */
+public class ServeurPizzas {
+
+    /**
+     * En-tête portant le jeton de session.
+     */
+    public static final String ENTETE_JETON = "X-Jeton";
+
+    /**
+     * En-tête portant le jeton du pizzaïolo.
+     */
+    public static final String ENTETE_PIZZAIOLO = "X-Jeton-Pizzaiolo";
+
+    /**
+     * Erreur renvoyée au client HTTP avec un code de statut.
+     */
+    private static final class ErreurHttp extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int statut;
+        private final boolean routeInconnue;
+
+        ErreurHttp(int statut, String message) {
+            this(statut, message, false);
+        }
+
+        ErreurHttp(int statut, String message, boolean routeInconnue) {
+            super(message);
+            this.statut = statut;
+            this.routeInconnue = routeInconnue;
+        }
+    }
+
+    private final GestionPizzaiolo gestionPizzaiolo;
+    private final GestionClient gestionClient;
+    private final HttpServer serveur;
+    private final ExecutorService executeur;
+    private volatile RegistreMetriques metriques;
+    private volatile byte[] jetonPizzaiolo;
+
+    /**
+     * Crée le serveur sans le démarrer.
+     *
+     * @param gestionPizzaiolo services du pizzaïolo
+     * @param gestionClient services client
+     * @param port port d'écoute (0 pour un port libre quelconque)
+     * @param nombreFils nombre de fils servant les requêtes, ou 0 pour un fil
+     *        virtuel par requête lorsque la JVM le permet
+     * @throws IOException si le port ne peut être ouvert
+     */
+    public ServeurPizzas(GestionPizzaiolo gestionPizzaiolo, GestionClient gestionClient,
+            int port, int nombreFils) throws IOException {
+        this.gestionPizzaiolo = gestionPizzaiolo;
+        this.gestionClient = gestionClient;
+        this.serveur = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executeur = creerExecuteur(nombreFils);
+        serveur.setExecutor(executeur);
+        serveur.createContext("/", this::traiter);
+    }
+
+    /**
+     * Crée l'exécuteur des requêtes. Les fils virtuels (Java 21) sont
+     * recherchés par réflexion pour que le code reste compilable en Java 17 ;
+     * à défaut, un groupe de fils fixe est utilisé.
+     *
+     * @param nombreFils nombre de fils, 0 pour des fils virtuels
+     * @return l'exécuteur
+     */
+    private static ExecutorService creerExecuteur(int nombreFils) {
+        if (nombreFils <= 0) {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                nombreFils = 4 * Runtime.getRuntime().availableProcessors();
+            }
+        }
+        return Executors.newFixedThreadPool(nombreFils, r -> {
+            Thread t = new Thread(r, "serveur-pizzas");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Mesure chaque requête dans un registre, sous le nom
+     * {@code http.<route>} (par exemple {@code http.POST /commandes/{id}/pizzas}),
+     * et expose le relevé par {@code GET /metriques}.
+     *
+     * @param metriques registre recevant les mesures
+     */
+    public void setMetriques(RegistreMetriques metriques) {
+        this.metriques = metriques;
+    }
+
+    /**
+     * Fixe le jeton donnant accès aux routes du pizzaïolo. Sans jeton, ces
+     * routes ne sont pas exposées.
+     *
+     * @param jeton jeton secret, ou {@code null} pour fermer les routes
+     * @throws IllegalArgumentException si le jeton est vide
+     */
+    public void setJetonPizzaiolo(String jeton) {
+        if (jeton != null && jeton.isBlank()) {
+            throw new IllegalArgumentException("Jeton pizzaïolo vide");
+        }
+        this.jetonPizzaiolo = jeton == null ? null : jeton.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Démarre l'écoute.
+     */
+    public void demarrer() {
+        serveur.start();
+    }
+
+    /**
+     * Arrête le serveur et ses fils.
+     */
+    public void arreter() {
+        serveur.stop(0);
+        executeur.shutdown();
+    }
+
+    /**
+     * Retourne le port d'écoute effectif.
+     *
+     * @return le port
+     */
+    public int getPort() {
+        return serveur.getAddress().getPort();
+    }
+
+    /**
+     * Traite un échange HTTP.
+     *
+     * @param echange échange en cours
+     */
+    private void traiter(HttpExchange echange) throws IOException {
+        long debut = System.nanoTime();
+        int statut = 200;
+        boolean routeInconnue = false;
+        Object reponse;
+        String[] chemin = echange.getRequestURI().getPath().split("/");
+        String route = route(echange.getRequestMethod(), chemin);
+        try {
+            Map<String, String> parametres = lireParametres(echange);
+            String jeton = echange.getRequestHeaders().getFirst(ENTETE_JETON);
+            if (jeton != null && !gestionClient.utiliserSession(jeton)) {
+                throw new ErreurHttp(401, "Session inconnue ou expirée");
+            }
+            reponse = router(route, chemin, parametres,
+                    echange.getRequestHeaders().getFirst(ENTETE_PIZZAIOLO));
+        } catch (ErreurHttp e) {
+            statut = e.statut;
+            routeInconnue = e.routeInconnue;
+            reponse = objet("erreur", e.getMessage());
+        } catch (NonConnecteException e) {
+            statut = 401;
+            reponse = objet("erreur", e.getMessage());
+        } catch (CommandeException e) {
+            statut = 409;
+            reponse = objet("erreur", e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            statut = 400;
+            reponse = objet("erreur", e.getMessage());
+        } catch (RuntimeException e) {
+            // par exemple une CompletionException du mode écrivain unique
+            statut = 500;
+            reponse = objet("erreur", "Erreur interne");
+        } finally {
+            gestionClient.utiliserSession(null);
+        }
+        byte[] octets = Json.ecrire(reponse).getBytes(StandardCharsets.UTF_8);
+        echange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        echange.sendResponseHeaders(statut, octets.length);
+        try (OutputStream out = echange.getResponseBody()) {
+            out.write(octets);
+        }
+        RegistreMetriques m = metriques;
+        if (m != null) {
+            // les routes inconnues sont regroupées pour borner le nombre de métriques
+            m.chronometre("http." + (routeInconnue ? "inconnue" : route)).arreter(debut);
+            if (statut >= 400) {
+                m.compteur("http.erreurs." + statut).incrementer();
+            }
+        }
+    }
+
+    /**
+     * Retourne le nom de la route d'une requête, les identifiants numériques
+     * étant remplacés par {@code {id}}.
+     *
+     * @param methode méthode HTTP
+     * @param chemin segments du chemin (le premier est vide)
+     * @return la route, par exemple {@code POST /commandes/{id}/pizzas}
+     */
+    private static String route(String methode, String[] chemin) {
+        String ressource = chemin.length > 1 ? chemin[1] : "";
+        return methode + " /" + ressource
+                + (chemin.length > 2 ? "/" + (estNombre(chemin[2]) ? "{id}" : chemin[2]) : "")
+                + (chemin.length > 3 ? "/" + chemin[3] : "");
+    }
+
+    /**
+     * Aiguille une requête vers le service correspondant.
+     *
+     * @param route route de la requête
+     * @param chemin segments du chemin (le premier est vide)
+     * @param p paramètres de la requête
+     * @param jetonCuisine jeton pizzaïolo de la requête, ou {@code null}
+     * @return l'objet à renvoyer en JSON
+     */
+    private Object router(String route, String[] chemin, Map<String, String> p,
+            String jetonCuisine) throws NonConnecteException, CommandeException {
+        switch (route) {
+            case "GET /pizzas":
+                return pizzas(gestionClient.selectionPizzas(
+                        p.containsKey("type") ? TypePizza.valueOf(p.get("type")) : null,
+                        ingredients(p.get("ingredients")),
+                        p.containsKey("prixMax") ? Double.valueOf(p.get("prixMax")) : null));
+            case "GET /pizzas/classement":
+                return pizzas(gestionClient.getPizzasParNote());
+            case "POST /clients":
+                return objet("code", gestionClient.inscription(p.get("email"), p.get("mdp"),
+                        new InformationPersonnelle(p.get("nom"), p.get("prenom"),
+                                p.getOrDefault("adresse", ""), entier(p, "age", 0))));
+            case "POST /sessions": {
+                String jeton = gestionClient.ouvrirSession(p.get("email"), p.get("mdp"));
+                if (jeton == null) {
+                    throw new ErreurHttp(401, "Identifiants refusés");
+                }
+                return objet("jeton", jeton);
+            }
+            case "DELETE /sessions":
+                gestionClient.deconnexion();
+                return objet("code", 0);
+            case "GET /commandes": {
+                List<Object> liste = new ArrayList<>();
+                for (Commande c : gestionClient.getCommandesEncours()) {
+                    liste.add(commande(c));
+                }
+                for (Commande c : gestionClient.getCommandePassees()) {
+                    liste.add(commande(c));
+                }
+                return liste;
+            }
+            case "POST /commandes":
+                return commande(gestionClient.debuterCommande());
+            case "POST /commandes/{id}/pizzas": {
+                Commande c = gestionClient.trouverCommande(Integer.parseInt(chemin[2]));
+                gestionClient.ajouterPizza(pizza(p), entier(p, "nombre", 1), c);
+                return commande(c);
+            }
+            case "POST /commandes/{id}/validation": {
+                Commande c = gestionClient.trouverCommande(Integer.parseInt(chemin[2]));
+                gestionClient.validerCommande(c);
+                gestionPizzaiolo.enregistrerCommande(c);
+                return commande(c);
+            }
+            case "GET /evaluations": {
+                List<Object> liste = new ArrayList<>();
+                for (Evaluation e : pizza(p).getEvaluations(
+                        entier(p, "debut", 0), entier(p, "nombre", 20))) {
+                    liste.add(objet("client", e.getIdClient(), "note", e.getNote(),
+                            "commentaire", e.getCommentaire(), "date", e.getDate()));
+                }
+                return liste;
+            }
+            case "POST /evaluations":
+                return objet("ajoutee", gestionClient.ajouterEvaluation(
+                        pizza(p), entier(p, "note", -1), p.get("commentaire")));
+            case "POST /cuisine/traitement": {
+                exigerPizzaiolo(jetonCuisine);
+                List<Object> ids = new ArrayList<>();
+                for (Commande c : gestionPizzaiolo.commandeNonTraitees()) {
+                    ids.add(c.getId());
+                }
+                return objet("traitees", ids);
+            }
+            case "GET /statistiques": {
+                exigerPizzaiolo(jetonCuisine);
+                List<Object> parCommandes = new ArrayList<>();
+                for (Pizza pz : gestionPizzaiolo.classementPizzasParNombreCommandes()) {
+                    parCommandes.add(pz.getId());
+                }
+                List<Object> parNote = new ArrayList<>();
+                for (Pizza pz : gestionPizzaiolo.pizzasParNote()) {
+                    parNote.add(pz.getId());
+                }
+                return objet("benefice", gestionPizzaiolo.beneficeToutesCommandes(),
+                        "commandesTraitees", gestionPizzaiolo.nombreCommandesTraitees(),
+                        "classementCommandes", parCommandes,
+                        "classementNotes", parNote);
+            }
+            case "GET /metriques": {
+                RegistreMetriques m = metriques;
+                if (m == null) {
+                    throw new ErreurHttp(404, "Métriques désactivées");
+                }
+                return m.valeurs();
+            }
+            default:
+                throw new ErreurHttp(404, "Route inconnue : " + route, true);
+        }
+    }
+
+    /**
+     * Vérifie que la requête porte le jeton du pizzaïolo. La comparaison se
+     * fait en temps constant.
+     *
+     * @param jeton jeton transmis, ou {@code null}
+     */
+    private void exigerPizzaiolo(String jeton) {
+        byte[] attendu = jetonPizzaiolo;
+        if (attendu == null) {
+            throw new ErreurHttp(404, "Routes pizzaïolo désactivées");
+        }
+        if (jeton == null || !MessageDigest.isEqual(attendu, jeton.getBytes(StandardCharsets.UTF_8))) {
+            throw new ErreurHttp(403, "Réservé au pizzaïolo");
+        }
+    }
+
+    /**
+     * Lit les paramètres de la chaîne de requête et du corps.
+     *
+     * @param echange échange en cours
+     * @return les paramètres décodés
+     */
+    private static Map<String, String> lireParametres(HttpExchange echange) throws IOException {
+        Map<String, String> parametres = new HashMap<>();
+        decoder(echange.getRequestURI().getRawQuery(), parametres);
+        if ("POST".equals(echange.getRequestMethod())) {
+            try (InputStream in = echange.getRequestBody()) {
+                decoder(new String(in.readAllBytes(), StandardCharsets.UTF_8), parametres);
+            }
+        }
+        return parametres;
+    }
+
+    private static void decoder(String texte, Map<String, String> parametres) {
+        if (texte == null || texte.isEmpty()) {
+            return;
+        }
+        for (String paire : texte.split("&")) {
+            int egal = paire.indexOf('=');
+            if (egal > 0) {
+                parametres.put(URLDecoder.decode(paire.substring(0, egal), StandardCharsets.UTF_8),
+                        URLDecoder.decode(paire.substring(egal + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private Pizza pizza(Map<String, String> p) {
+        Pizza pizza = gestionPizzaiolo.trouverPizza(entier(p, "pizza", -1));
+        if (pizza == null) {
+            throw new ErreurHttp(404, "Pizza inconnue");
+        }
+        return pizza;
+    }
+
+    private static int entier(Map<String, String> p, String nom, int defaut) {
+        String valeur = p.get(nom);
+        return valeur == null ? defaut : Integer.parseInt(valeur);
+    }
+
+    private static boolean estNombre(String s) {
+        return !s.isEmpty() && s.chars().allMatch(Character::isDigit);
+    }
+
+    private static Set<String> ingredients(String liste) {
+        Set<String> noms = new HashSet<>();
+        if (liste != null) {
+            for (String nom : liste.split(",")) {
+                if (!nom.isBlank()) {
+                    noms.add(nom.trim().toLowerCase());
+                }
+            }
+        }
+        return noms;
+    }
+
+    private static List<Object> pizzas(Iterable<Pizza> pizzas) {
+        List<Object> liste = new ArrayList<>();
+        for (Pizza p : pizzas) {
+            List<Object> ingredients = new ArrayList<>(p.getNombreIngredients());
+            p.pourChaqueIngredient(i -> ingredients.add(i.getNom()));
+            liste.add(objet("id", p.getId(), "nom", p.getNom(), "type", p.getType(),
+                    "prix", p.getPrixVente(), "note", p.getNoteMoyenne(),
+                    "ingredients", ingredients));
+        }
+        return liste;
+    }
+
+    private static Map<String, Object> commande(Commande c) {
+        List<Object> lignes = new ArrayList<>();
+        for (LigneCommande l : c.getLignes()) {
+            lignes.add(objet("pizza", l.getPizza().getId(), "quantite", l.getQuantite()));
+        }
+        return objet("id", c.getId(), "etat", c.getEtat(), "lignes", lignes,
+                "total", c.getPrixTotal());
+    }
+
+    private static Map<String, Object> objet(Object... clesValeurs) {
+        Map<String, Object> objet = new LinkedHashMap<>();
+        for (int i = 0; i < clesValeurs.length; i += 2) {
+            objet.put((String) clesValeurs[i], clesValeurs[i + 1]);
+        }
+        return objet;
+    }
+}
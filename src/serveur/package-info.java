@@ -0,0 +1,5 @@
+/**
+ * Lancement sans interface graphique : services client et pizzaïolo exposés
+ * par une API HTTP locale.
+ */
+package serveur;
@@ -0,0 +1,62 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import bench.Banc;
+import bench.BancsPizzas;
+
+/**
+ * Tests JUnit de la classe {@link bench.BancsPizzas BancsPizzas}.
+ */
+class TestBancsPizzas {
+
+    private BancsPizzas bancs;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bancs = new BancsPizzas(new Banc(0, 1, 1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    /**
+     * Vérifie que toutes les opérations sont mesurées sur un petit jeu de
+     * données.
+     */
+    @Test
+    void testExecution() throws Exception {
+        List<Banc.Resultat> resultats = bancs.executer(10, 5, 20);
+        assertEquals(9, resultats.size());
+        for (Banc.Resultat r : resultats) {
+            assertTrue(r.nanosParOperation > 0, r.cle());
+        }
+    }
+
+    /**
+     * Vérifie la relecture d'une référence et la détection des régressions.
+     */
+    @Test
+    void testRegressions() {
+        List<Banc.Resultat> resultats = List.of(
+                new Banc.Resultat("a", "n=1", 100, 0),
+                new Banc.Resultat("b", "n=1", 200, 0));
+        Map<String, Double> reference = BancsPizzas.lireReference(
+                "# commentaire\n" + BancsPizzas.formater(List.of(
+                        new Banc.Resultat("a", "n=1", 90, 0),
+                        new Banc.Resultat("b", "n=1", 100, 0))));
+        assertEquals(2, reference.size());
+        assertEquals(90.0, reference.get("a@n=1"), 1e-9);
+
+        List<String> regressions = BancsPizzas.regressions(resultats, reference, 0.25);
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith("b@n=1"));
+    }
+}
@@ -0,0 +1,72 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import pizzas.*;
+
+/**
+ * Tests JUnit de la classe {@link pizzas.BusEvenements BusEvenements}.
+ */
+class TestBusEvenements {
+
+    private GestionPizzaiolo gestion;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gestion = new GestionPizzaiolo();
+        gestion.creerIngredient("Tomate", 1.0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    /**
+     * Vérifie que deux lecteurs reçoivent indépendamment les événements
+     * publiés par le gestionnaire, dans l'ordre.
+     */
+    @Test
+    void testLecteursIndependants() {
+        BusEvenements.Curseur premier = gestion.getBus().curseur();
+        BusEvenements.Curseur second = gestion.getBus().curseur();
+
+        Pizza reine = gestion.creerPizza("Reine", TypePizza.VIANDE);
+        gestion.changerPrixIngredient("Tomate", 2.0);
+
+        List<TypeEvenement> types = new ArrayList<>();
+        assertEquals(2, premier.lire(e -> types.add(e.getType()), 10));
+        assertEquals(List.of(TypeEvenement.PIZZA_CREEE,
+                TypeEvenement.PRIX_INGREDIENT_CHANGE), types);
+
+        Object[] sujet = new Object[1];
+        assertEquals(1, second.lire(e -> sujet[0] = e.getSujet(), 1));
+        assertSame(reine, sujet[0]);
+        assertEquals(0, premier.lire(e -> types.add(e.getType()), 10));
+    }
+
+    /**
+     * Vérifie qu'un lecteur distancé compte les événements perdus sans
+     * bloquer les producteurs.
+     */
+    @Test
+    void testLecteurDistance() {
+        BusEvenements bus = new BusEvenements(8);
+        BusEvenements.Curseur lent = bus.curseur();
+        for (int i = 0; i < 20; i++) {
+            bus.publier(TypeEvenement.COMMANDE_VALIDEE, null, i, 0);
+        }
+        long[] premier = {-1};
+        int lus = lent.lire(e -> {
+            if (premier[0] < 0) premier[0] = e.getEntier();
+        }, 100);
+        assertEquals(8, lus);
+        assertEquals(12, lent.getPerdus());
+        assertEquals(12, premier[0]);
+    }
+}
@@ -2,6 +2,15 @@ package tests;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -19,7 +28,7 @@ class TestClient {
     @BeforeEach
     void setUp() throws Exception {
         info = new InformationPersonnelle("A","B","C",20);
-        client = new Client("a@a.com", "123", info);
+        client = new Client("a@a.com", MotDePasse.hacher("123"), info);
     }
 
     @AfterEach
@@ -52,4 +61,58 @@ class TestClient {
         client.annulerCommande(c);
         assertEquals(0, client.getCommandes().size());
     }
+
+    /**
+     * Vérifie que le mot de passe est vérifié sans être conservé en clair.
+     */
+    @Test
+    void testVerifierMotDePasse() {
+        assertTrue(client.verifierMotDePasse("123"));
+        assertFalse(client.verifierMotDePasse("1234"));
+        assertFalse(client.verifierMotDePasse(null));
+    }
+
+    /**
+     * Vérifie qu'une pizza n'est évaluable qu'après une commande traitée.
+     */
+    @Test
+    void testEvaluerPizzaAchetee() throws Exception {
+        Pizza p = new Pizza("Test", TypePizza.VIANDE);
+        assertThrows(IllegalStateException.class, () -> client.evaluerPizza(p, 4, null));
+
+        Commande c = client.creerCommande();
+        c.ajouterPizza(p);
+        c.valider();
+        c.traiter();
+        assertTrue(client.aAchete(p));
+        client.evaluerPizza(p, 4, null);
+        assertEquals(4.0, p.getNoteMoyenne());
+    }
+
+    /**
+     * Vérifie qu'une sauvegarde d'une version antérieure du client est
+     * refusée clairement au lieu d'être relue.
+     */
+    @Test
+    void testAncienneVersionRefusee() throws Exception {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(client);
+        }
+        byte[] flux = octets.toByteArray();
+        byte[] nom = "pizzas.Client".getBytes(StandardCharsets.UTF_8);
+        int position = -1;
+        for (int i = 0; i + nom.length <= flux.length && position < 0; i++) {
+            if (Arrays.equals(flux, i, i + nom.length, nom, 0, nom.length)) {
+                position = i + nom.length;
+            }
+        }
+        assertTrue(position > 0);
+        // version de la classe, juste après son nom dans le descripteur
+        ByteBuffer.wrap(flux, position, Long.BYTES).putLong(1L);
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(flux))) {
+            assertThrows(InvalidClassException.class, in::readObject);
+        }
+    }
 }
@@ -19,7 +19,7 @@ class TestCommande {
 
     @BeforeEach
     void setUp() throws Exception {
-        client = new Client("a@a.com", "123",
+        client = new Client("a@a.com", MotDePasse.hacher("123"),
             new InformationPersonnelle("A","B","C",20));
         commande = new Commande(client);
         pizza = new Pizza("Test", TypePizza.VIANDE);
@@ -75,4 +75,31 @@ class TestCommande {
         commande.traiter();
         assertEquals(EtatCommande.TRAITEE, commande.getEtat());
     }
+
+    /**
+     * Vérifie que les ajouts d'une même pizza sont regroupés sur une ligne
+     * et que les totaux tiennent compte des quantités.
+     */
+    @Test
+    void testLignesRegroupees() throws Exception {
+        Ingredient fromage = new Ingredient("Fromage", 2.0);
+        pizza.ajouterIngredient(fromage);
+        pizza.setPrixVente(5.0);
+        Pizza autre = new Pizza("Autre", TypePizza.VIANDE);
+
+        commande.ajouterPizza(pizza, 40);
+        commande.ajouterPizza(pizza);
+        commande.ajouterPizza(autre);
+        assertEquals(2, commande.getLignes().size());
+        assertEquals(41, commande.getQuantite(pizza));
+        assertEquals(42, commande.getNombrePizzas());
+        assertEquals(42, commande.getPizzas().size());
+        assertSame(autre, commande.getPizzas().get(41));
+        assertEquals(41 * 5.0, commande.getPrixTotal(), 1e-9);
+        assertEquals(41 * (5.0 - 2.8), commande.getBenefice(), 1e-9);
+
+        commande.retirerPizza(autre);
+        assertEquals(1, commande.getLignes().size());
+        assertThrows(IllegalArgumentException.class, () -> commande.ajouterPizza(pizza, 0));
+    }
 }
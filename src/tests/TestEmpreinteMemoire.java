@@ -0,0 +1,57 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import diagnostic.EmpreinteMemoire;
+import diagnostic.JeuDonnees;
+import pizzas.*;
+
+/**
+ * Tests JUnit de la classe {@link diagnostic.EmpreinteMemoire EmpreinteMemoire}.
+ */
+class TestEmpreinteMemoire {
+
+    private GestionPizzaiolo gp;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gp = JeuDonnees.generer(20, 50, 20_000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    /**
+     * Vérifie que l'historique par colonnes est compté dans la catégorie des
+     * commandes, et que seules les commandes encore retenues par le bus
+     * d'événements y restent sous forme d'objets.
+     */
+    @Test
+    void testCategories() {
+        EmpreinteMemoire.Rapport rapport = new EmpreinteMemoire().mesurer(gp);
+        assertEquals(1, rapport.getPostes(EmpreinteMemoire.COMMANDES).get("CommandesTraitees").getObjets());
+        assertTrue(rapport.getPostes(EmpreinteMemoire.COMMANDES).get("Commande").getObjets()
+                <= BusEvenements.CAPACITE_DEFAUT);
+        assertTrue(rapport.getPostes(EmpreinteMemoire.COMMANDES).get("ArrayList").estStructure());
+        assertEquals(20, rapport.getPostes(EmpreinteMemoire.CATALOGUE).get("Pizza").getObjets());
+        assertEquals(50, rapport.getPostes(EmpreinteMemoire.CLIENTS).get("Client").getObjets());
+        assertTrue(rapport.getOctetsStructures(EmpreinteMemoire.COMMANDES)
+                < rapport.getOctets(EmpreinteMemoire.COMMANDES));
+        assertTrue(rapport.toString().contains("commandes"));
+    }
+
+    /**
+     * Vérifie que l'échantillonnage estime l'empreinte des commandes à 10 %
+     * près (environ 2 000 commandes tirées, soit un écart type de 2 %).
+     */
+    @Test
+    void testEchantillonnage() {
+        long exacte = new EmpreinteMemoire().mesurer(gp).getOctets(EmpreinteMemoire.COMMANDES);
+        long estimee = new EmpreinteMemoire(10).mesurer(gp).getOctets(EmpreinteMemoire.COMMANDES);
+        assertTrue(Math.abs(estimee - exacte) < exacte / 10, exacte + " / " + estimee);
+    }
+}
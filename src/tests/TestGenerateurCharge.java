@@ -0,0 +1,66 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import charge.GenerateurCharge;
+import charge.HistogrammeLatences;
+import pizzas.MotDePasse;
+
+/**
+ * Tests JUnit de la classe {@link charge.GenerateurCharge GenerateurCharge}.
+ */
+class TestGenerateurCharge {
+
+    private GenerateurCharge.Configuration configuration;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        configuration = GenerateurCharge.Configuration.lire(
+                "ingredients=20", "pizzas=30", "clients=200", "duree=1",
+                "debitBase=50", "debitPic=200", "fils=4", "iterations=1");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        MotDePasse.setIterationsParDefaut(MotDePasse.ITERATIONS_DEFAUT);
+    }
+
+    /**
+     * Vérifie qu'une même graine produit le même trafic et que toutes les
+     * visites aboutissent.
+     */
+    @Test
+    void testExecutionReproductible() throws Exception {
+        GenerateurCharge premier = new GenerateurCharge(configuration);
+        premier.preparer();
+        premier.executer();
+        GenerateurCharge second = new GenerateurCharge(configuration);
+        second.preparer();
+        second.executer();
+
+        assertTrue(premier.getVisitesPlanifiees() > 0);
+        assertEquals(premier.getVisitesPlanifiees(), second.getVisitesPlanifiees());
+        assertEquals(0, premier.getEchecs());
+        assertEquals(premier.getVisitesPlanifiees(),
+                premier.getLatences(GenerateurCharge.Operation.VISITE).nombre());
+    }
+
+    /**
+     * Vérifie la précision des percentiles de l'histogramme.
+     */
+    @Test
+    void testPercentiles() {
+        HistogrammeLatences h = new HistogrammeLatences();
+        for (int i = 1; i <= 1000; i++) {
+            h.enregistrer(i * 1000L);
+        }
+        assertEquals(1000, h.nombre());
+        long p50 = h.percentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 33 / 32, "p50=" + p50);
+        assertEquals(1_000_000, h.percentile(100));
+    }
+}
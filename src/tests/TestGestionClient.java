@@ -78,4 +78,93 @@ class TestGestionClient {
         Set<Pizza> res = gestion.selectionPizzaFiltres();
         assertEquals(1, res.size());
     }
+
+    /**
+     * Vérifie que les filtres posés sans session sont conservés et écartent
+     * les pizzas qui ne correspondent pas.
+     */
+    @Test
+    void testFiltresSansSession() throws Exception {
+        Pizza vege = gp.creerPizza("Vege", TypePizza.VEGETARIENNE);
+        gp.ajouterIngredientPizza(vege, "Fromage");
+        gp.setPrixPizza(vege, vege.getPrixMinimal() + 1);
+
+        gestion.ajouterFiltre(TypePizza.VEGETARIENNE);
+        assertEquals(Set.of(vege), gestion.selectionPizzaFiltres());
+        gestion.ajouterFiltre(TypePizza.REGIONALE);
+        assertTrue(gestion.selectionPizzaFiltres().isEmpty());
+        gestion.supprimerFiltres();
+        assertEquals(Set.of(pizza, vege), gestion.selectionPizzaFiltres());
+    }
+
+    /**
+     * Vérifie que deux clients peuvent être connectés en même temps.
+     */
+    @Test
+    void testSessionsSimultanees() throws Exception {
+        gestion.inscription("a@a.com", "12345678", new InformationPersonnelle("A","B","C",20));
+        gestion.inscription("b@b.com", "12345678", new InformationPersonnelle("D","E","F",30));
+
+        String jetonA = gestion.ouvrirSession("a@a.com", "12345678");
+        String jetonB = gestion.ouvrirSession("b@b.com", "12345678");
+        assertNotNull(jetonA);
+        assertNotNull(jetonB);
+
+        assertTrue(gestion.utiliserSession(jetonA));
+        Commande cmdA = gestion.debuterCommande();
+        assertTrue(gestion.utiliserSession(jetonB));
+        assertThrows(CommandeException.class, () -> gestion.ajouterPizza(pizza, 1, cmdA));
+        assertTrue(gestion.getCommandesEncours().isEmpty());
+
+        gestion.deconnexion();
+        assertFalse(gestion.utiliserSession(jetonB));
+        assertTrue(gestion.utiliserSession(jetonA));
+        assertEquals(1, gestion.getCommandesEncours().size());
+    }
+
+    /**
+     * Vérifie l'expiration d'une session inactive.
+     */
+    @Test
+    void testExpirationSession() throws Exception {
+        gestion.inscription("a@a.com", "12345678", new InformationPersonnelle("A","B","C",20));
+        gestion.getSessions().setDureeInactivite(1);
+        assertTrue(gestion.connexion("a@a.com", "12345678"));
+        Thread.sleep(10);
+        assertThrows(NonConnecteException.class, () -> gestion.debuterCommande());
+        assertEquals(0, gestion.getSessions().nombreSessions());
+    }
+
+    /**
+     * Vérifie la limitation des tentatives de connexion par compte.
+     */
+    @Test
+    void testLimitationTentatives() {
+        gestion.inscription("a@a.com", "12345678", new InformationPersonnelle("A","B","C",20));
+        for (int i = 0; i < VerificationIdentifiants.TENTATIVES_MAX; i++) {
+            assertFalse(gestion.connexion("a@a.com", "mauvais!"));
+        }
+        assertFalse(gestion.connexion("a@a.com", "12345678"));
+    }
+
+    /**
+     * Vérifie que les tentatives sur des comptes inconnus ne sont pas
+     * suivies, et que l'inscription asynchrone calcule l'empreinte hors du
+     * fil appelant.
+     */
+    @Test
+    void testTentativesComptesInconnus() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertFalse(gestion.connexion("inconnu" + i + "@a.com", "12345678"));
+        }
+        assertEquals(0, gestion.getVerification().nombreComptesSuivis());
+
+        InformationPersonnelle info = new InformationPersonnelle("A","B","C",20);
+        assertEquals(0, (int) gestion.inscriptionAsync("a@a.com", "12345678", info).get());
+        assertEquals(-4, (int) gestion.inscriptionAsync("a@a.com", "12345678", info).get());
+        assertFalse(gestion.connexion("a@a.com", "mauvais!"));
+        assertEquals(1, gestion.getVerification().nombreComptesSuivis());
+        assertTrue(gestion.connexion("a@a.com", "12345678"));
+        assertEquals(0, gestion.getVerification().nombreComptesSuivis());
+    }
 }
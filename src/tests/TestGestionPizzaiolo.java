@@ -2,6 +2,21 @@ package tests;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -78,7 +93,7 @@ class TestGestionPizzaiolo {
         // Créer un client et une commande
         InformationPersonnelle info =
             new InformationPersonnelle("A","B","C",20);
-        Client c = new Client("a@a.com", "123", info);
+        Client c = new Client("a@a.com", MotDePasse.hacher("123"), info);
 
         Commande cmd = new Commande(c);
         cmd.ajouterPizza(pizza);
@@ -93,4 +108,350 @@ class TestGestionPizzaiolo {
         // Le classement doit contenir la pizza
         assertTrue(gestion.classementPizzasParNombreCommandes().contains(pizza));
     }
+
+    /**
+     * Vérifie que l'historique des commandes traitées restitue les commandes
+     * d'origine et leurs statistiques, au prix du jour du traitement, y
+     * compris après une sauvegarde, le client gardant ses commandes.
+     */
+    @Test
+    void testHistoriqueCommandes() throws Exception {
+        gestion.setPrixPizza(pizza, pizza.getPrixMinimal() + 2);
+        Pizza autre = gestion.creerPizza("Autre", TypePizza.VIANDE);
+        gestion.ajouterIngredientPizza(autre, "Tomate");
+        gestion.setPrixPizza(autre, autre.getPrixMinimal() + 1);
+        InformationPersonnelle infoA = new InformationPersonnelle("A", "A", "A", 20);
+        InformationPersonnelle infoB = new InformationPersonnelle("B", "B", "B", 30);
+        Client a = new Client("a@a.com", MotDePasse.hacher("123"), infoA);
+        Client b = new Client("b@a.com", MotDePasse.hacher("123"), infoB);
+
+        Commande c1 = a.creerCommande();
+        c1.ajouterPizza(pizza, 3);
+        c1.ajouterPizza(autre);
+        c1.valider();
+        gestion.enregistrerCommande(c1);
+        Commande c2 = b.creerCommande();
+        c2.ajouterPizza(autre, 2);
+        c2.valider();
+        gestion.enregistrerCommande(c2);
+        gestion.commandeNonTraitees();
+
+        assertEquals(List.of(c1), a.getCommandes());
+        assertSame(c1, gestion.commandesTraiteesClient(infoA).get(0));
+        gestion.setPrixPizza(pizza, pizza.getPrixMinimal() + 10);
+        assertEquals(9.0, gestion.beneficeToutesCommandes(), 0.0001);
+        assertEquals(7.0, gestion.beneficeParClient().get(infoA), 0.0001);
+        assertEquals(4, (int) gestion.nombrePizzasCommandeesParClient().get(infoA));
+        assertEquals(2, (int) gestion.nombrePizzasCommandeesParClient().get(infoB));
+        assertEquals(3, gestion.nombrePizzasCommandees(autre));
+
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(gestion);
+        }
+        GestionPizzaiolo relu;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(octets.toByteArray()))) {
+            relu = (GestionPizzaiolo) in.readObject();
+        }
+        for (GestionPizzaiolo g : List.of(gestion, relu)) {
+            List<Commande> commandes = g.commandesTraiteesClient(infoA);
+            assertEquals(1, commandes.size());
+            Commande c = commandes.get(0);
+            assertEquals(c1.getId(), c.getId());
+            assertEquals(EtatCommande.TRAITEE, c.getEtat());
+            assertEquals(4, c.getNombrePizzas());
+            assertEquals(2, c.getLignes().size());
+            assertEquals(c1.getPrixTotal(), c.getPrixTotal(), 0.0001);
+            assertEquals(2, g.commandesDejaTraitees().size());
+            assertEquals(2, g.nombreCommandesTraitees());
+            assertEquals(9.0, g.beneficeToutesCommandes(), 0.0001);
+        }
+    }
+
+    /**
+     * Vérifie que les statistiques par identifiant distinguent deux clients
+     * aux informations égales, que les tables par informations personnelles
+     * regroupent.
+     */
+    @Test
+    void testStatistiquesParClient() throws Exception {
+        gestion.setPrixPizza(pizza, pizza.getPrixMinimal() + 2);
+        InformationPersonnelle infoA = new InformationPersonnelle("A", "A", "Rue 1", 20);
+        InformationPersonnelle infoB = new InformationPersonnelle("A", "A", "Rue 1", 20);
+        Client a = new Client("a@a.com", MotDePasse.hacher("123"), infoA);
+        Client b = new Client("b@a.com", MotDePasse.hacher("123"), infoB);
+        gestion.enregistrerClient(a);
+        gestion.enregistrerClient(b);
+        for (Client c : List.of(a, b, b)) {
+            Commande cmd = c.creerCommande();
+            cmd.ajouterPizza(pizza);
+            cmd.valider();
+            gestion.enregistrerCommande(cmd);
+        }
+        gestion.commandeNonTraitees();
+
+        assertEquals(1, gestion.ensembleClients().size());
+        assertTrue(gestion.ensembleClients().contains(
+                new InformationPersonnelle("A", "A", "Rue 1", 20)));
+        assertEquals(1, gestion.beneficeParClient().size());
+        assertEquals(6.0, gestion.beneficeParClient().get(infoA), 0.0001);
+        assertEquals(3, (int) gestion.nombrePizzasCommandeesParClient().get(infoB));
+        assertEquals(3, gestion.commandesTraiteesClient(infoA).size());
+
+        assertEquals(2.0, gestion.beneficeClient(a.getId()), 0.0001);
+        assertEquals(4.0, gestion.beneficeClient(b.getId()), 0.0001);
+        assertEquals(1, gestion.commandesTraiteesClient(a.getId()).size());
+        assertEquals(2, gestion.nombrePizzasCommandeesClient(b.getId()));
+        assertEquals(2, gestion.commandesTraiteesClient(b.getId()).size());
+        assertEquals(0, gestion.nombrePizzasCommandeesClient(-1));
+    }
+
+    /**
+     * Vérifie que les commandes archivées hors tas restent visibles des
+     * statistiques et de l'historique, sur fichier comme en mémoire directe,
+     * et après une sauvegarde.
+     */
+    @Test
+    void testArchivage() throws Exception {
+        gestion.setPrixPizza(pizza, pizza.getPrixMinimal() + 2);
+        InformationPersonnelle info = new InformationPersonnelle("A", "A", "A", 20);
+        Client a = new Client("a@a.com", MotDePasse.hacher("123"), info);
+        for (int i = 1; i <= 3; i++) {
+            Commande c = a.creerCommande();
+            c.ajouterPizza(pizza, i);
+            c.valider();
+            gestion.enregistrerCommande(c);
+        }
+        gestion.commandeNonTraitees();
+        Thread.sleep(5);
+
+        Path repertoire = Files.createTempDirectory("archive");
+        gestion.configurerArchivage(Duration.ZERO, repertoire);
+        assertEquals(3, gestion.archiverCommandes());
+        assertEquals(0, gestion.archiverCommandes());
+        assertEquals(12.0, gestion.beneficeToutesCommandes(), 0.0001);
+        assertEquals(6, (int) gestion.nombrePizzasCommandeesParClient().get(info));
+        assertEquals(6, gestion.nombrePizzasCommandees(pizza));
+
+        gestion.configurerArchivage(Duration.ofDays(1), null);
+        Commande recente = a.creerCommande();
+        recente.ajouterPizza(pizza);
+        recente.valider();
+        gestion.enregistrerCommande(recente);
+        gestion.commandeNonTraitees();
+        assertEquals(0, gestion.archiverCommandes());
+
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(gestion);
+        }
+        GestionPizzaiolo relu;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(octets.toByteArray()))) {
+            relu = (GestionPizzaiolo) in.readObject();
+        }
+        for (GestionPizzaiolo g : List.of(gestion, relu)) {
+            List<Commande> commandes = g.commandesTraiteesClient(info);
+            assertEquals(4, commandes.size());
+            assertEquals(3, commandes.get(2).getNombrePizzas());
+            assertEquals(recente.getId(), commandes.get(3).getId());
+            assertEquals(14.0, g.beneficeToutesCommandes(), 0.0001);
+            assertEquals(14.0, g.beneficeParClient().get(info), 0.0001);
+        }
+    }
+
+    /**
+     * Vérifie que chaque gestionnaire relu a son propre dictionnaire
+     * d'ingrédients, aux identifiants denses.
+     */
+    @Test
+    void testDictionnaireParGestionnaire() throws Exception {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(gestion);
+        }
+        List<GestionPizzaiolo> relus = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new ByteArrayInputStream(octets.toByteArray()))) {
+                relus.add((GestionPizzaiolo) in.readObject());
+            }
+        }
+        assertEquals(0, relus.get(0).changerPrixIngredient("Fromage", 5.0));
+        for (GestionPizzaiolo g : relus) {
+            for (Ingredient ing : g.getIngredients()) {
+                assertTrue(ing.getId() < g.getIngredients().size());
+            }
+        }
+        Pizza p0 = relus.get(0).getPizzas().iterator().next();
+        Pizza p1 = relus.get(1).getPizzas().iterator().next();
+        assertEquals(8.4, relus.get(0).calculerPrixMinimalPizza(p0), 0.0001);
+        assertEquals(4.2, relus.get(1).calculerPrixMinimalPizza(p1), 0.0001);
+        assertSame(p0, relus.get(0).trouverPizza(p0.getId()));
+    }
+
+    /**
+     * Vérifie la recherche d'une pizza par identifiant.
+     */
+    @Test
+    void testTrouverPizza() {
+        Pizza autre = gestion.creerPizza("Autre", TypePizza.VEGETARIENNE);
+        assertSame(pizza, gestion.trouverPizza(pizza.getId()));
+        assertSame(autre, gestion.trouverPizza(autre.getId()));
+        assertNull(gestion.trouverPizza(-1));
+    }
+
+    /**
+     * Vérifie la détection d'un ingrédient interdit après coup.
+     */
+    @Test
+    void testVerifierIngredientsApresInterdiction() {
+        assertTrue(gestion.verifierIngredientsPizza(pizza).isEmpty());
+        gestion.interdireIngredient("Tomate", TypePizza.VIANDE);
+        assertEquals(Set.of("tomate"), gestion.verifierIngredientsPizza(pizza));
+        assertEquals(1, gestion.verifierToutesPizzas().size());
+    }
+
+    /**
+     * Vérifie que les interdictions par défaut du type sont appliquées.
+     */
+    @Test
+    void testInterdictionParDefaut() {
+        gestion.creerIngredient("Jambon", 3.0);
+        Pizza vege = gestion.creerPizza("Vege", TypePizza.VEGETARIENNE);
+        assertEquals(-3, gestion.ajouterIngredientPizza(vege, "Jambon"));
+    }
+
+    /**
+     * Vérifie que le classement par note privilégie une moyenne appuyée sur
+     * plusieurs évaluations à une note isolée.
+     */
+    @Test
+    void testPizzasParNote() {
+        Pizza autre = gestion.creerPizza("Autre", TypePizza.VIANDE);
+        int[] notes = {5, 4, 5, 4};
+        for (int i = 0; i < notes.length; i++) {
+            Client c = new Client("c" + i + "@a.com", MotDePasse.hacher("123"),
+                    new InformationPersonnelle("A", "B", "C", 20));
+            autre.ajouterEvaluation(new Evaluation(c, autre, notes[i], null));
+        }
+        Client seul = new Client("seul@a.com", MotDePasse.hacher("123"),
+                new InformationPersonnelle("A", "B", "C", 20));
+        pizza.ajouterEvaluation(new Evaluation(seul, pizza, 5, null));
+
+        assertEquals(List.of(autre, pizza), gestion.pizzasParNote());
+    }
+
+    /**
+     * Vérifie que des créations concurrentes de pizzas ne perdent aucune
+     * pizza et ne créent pas de doublon de nom.
+     */
+    @Test
+    void testCreationsConcurrentes() throws Exception {
+        Thread[] fils = new Thread[4];
+        for (int f = 0; f < fils.length; f++) {
+            fils[f] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    gestion.creerPizza("P" + i, TypePizza.VIANDE);
+                    gestion.beneficeParPizza();
+                }
+            });
+            fils[f].start();
+        }
+        for (Thread t : fils) {
+            t.join();
+        }
+        assertEquals(201, gestion.getPizzas().size());
+    }
+
+    /**
+     * Vérifie le mode écrivain unique : modifications appliquées dans l'ordre
+     * et instantané publié après chaque lot.
+     */
+    @Test
+    void testModeEcrivainUnique() throws Exception {
+        gestion.setModeExecution(ModeExecution.ECRIVAIN_UNIQUE);
+        try {
+            CompletableFuture<Pizza> reine =
+                    gestion.soumettre(() -> gestion.creerPizza("Reine", TypePizza.VIANDE));
+            assertNotNull(reine.get());
+            assertEquals(0, gestion.changerPrixIngredient("Tomate", 1.5));
+            assertNotNull(gestion.creerPizza("Vege", TypePizza.VEGETARIENNE));
+
+            InstantaneCatalogue inst = gestion.getInstantane();
+            assertEquals(3, inst.getPizzas().size());
+            assertEquals(1.5, (double) inst.getPrixIngredients().get("tomate"));
+        } finally {
+            gestion.setModeExecution(ModeExecution.VERROUS);
+        }
+        assertEquals(ModeExecution.VERROUS, gestion.getModeExecution());
+    }
+
+    /**
+     * Soumet une modification depuis un autre fil et attend son résultat,
+     * pour qu'un interblocage fasse échouer le test au lieu de le bloquer.
+     */
+    private <T> T soumettreEtAttendre(Supplier<T> modification) throws Exception {
+        return CompletableFuture.supplyAsync(() -> gestion.soumettre(modification).join())
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Vérifie qu'une modification soumise en mode verrous peut appeler les
+     * méthodes publiques du gestionnaire, en écriture comme en lecture.
+     */
+    @Test
+    void testSoumissionModeVerrous() throws Exception {
+        Pizza reine = soumettreEtAttendre(() -> gestion.creerPizza("Reine", TypePizza.VIANDE));
+        assertNotNull(reine);
+        assertEquals(gestion.getPrixPizza(pizza),
+                (double) soumettreEtAttendre(() -> gestion.getPrixPizza(pizza)));
+    }
+
+    /**
+     * Vérifie qu'une modification soumise au fil écrivain peut appeler les
+     * méthodes publiques du gestionnaire, en écriture comme en lecture, sans
+     * bloquer les modifications suivantes.
+     */
+    @Test
+    void testSoumissionModeEcrivainUnique() throws Exception {
+        gestion.setModeExecution(ModeExecution.ECRIVAIN_UNIQUE);
+        try {
+            Pizza reine = soumettreEtAttendre(() -> gestion.creerPizza("Reine", TypePizza.VIANDE));
+            assertNotNull(reine);
+            assertEquals(gestion.getPrixPizza(pizza),
+                    (double) soumettreEtAttendre(() -> gestion.getPrixPizza(pizza)));
+            assertNotNull(gestion.creerPizza("Vege", TypePizza.VEGETARIENNE));
+        } finally {
+            gestion.setModeExecution(ModeExecution.VERROUS);
+        }
+    }
+
+    /**
+     * Vérifie qu'aucune modification n'échoue ni ne se perd pendant des
+     * changements de mode d'exécution concurrents.
+     */
+    @Test
+    void testChangementModePendantEcritures() throws Exception {
+        AtomicReference<Throwable> erreur =
+                new AtomicReference<>();
+        Thread ecrivain = new Thread(() -> {
+            try {
+                for (int i = 0; i < 200; i++) {
+                    assertNotNull(gestion.creerPizza("P" + i, TypePizza.VIANDE));
+                }
+            } catch (Throwable t) {
+                erreur.set(t);
+            }
+        });
+        ecrivain.start();
+        while (ecrivain.isAlive()) {
+            gestion.setModeExecution(ModeExecution.ECRIVAIN_UNIQUE);
+            gestion.setModeExecution(ModeExecution.VERROUS);
+        }
+        ecrivain.join();
+        assertNull(erreur.get());
+        assertEquals(201, gestion.getPizzas().size());
+    }
 }
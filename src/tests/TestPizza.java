@@ -2,6 +2,12 @@ package tests;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -66,4 +72,97 @@ class TestPizza {
             pizza.setPrixVente(1.0);
         });
     }
+
+    /**
+     * Vérifie qu'on peut retirer un ingrédient.
+     */
+    @Test
+    void testRetirerIngredient() {
+        pizza.ajouterIngredient(fromage);
+        pizza.ajouterIngredient(tomate);
+        assertTrue(pizza.retirerIngredient(fromage));
+        assertFalse(pizza.retirerIngredient(fromage));
+        assertEquals(1, pizza.getNombreIngredients());
+        assertTrue(pizza.contientIngredient(tomate.getId()));
+    }
+
+    /**
+     * Vérifie que le prix minimal suit le changement de prix d'un ingrédient.
+     */
+    @Test
+    void testPrixMinimalApresChangementPrix() {
+        pizza.ajouterIngredient(fromage);
+        fromage.setPrix(5.0);
+        // 5 * 1.4 = 7
+        assertEquals(7.0, pizza.getPrixMinimal());
+    }
+
+    /**
+     * Vérifie les agrégats des évaluations et le refus d'une seconde
+     * évaluation du même client.
+     */
+    @Test
+    void testAgregatsEvaluations() {
+        Client a = new Client("a@a.com", MotDePasse.hacher("123"), new InformationPersonnelle("A","B","C",20));
+        Client b = new Client("b@b.com", MotDePasse.hacher("123"), new InformationPersonnelle("D","E","F",30));
+        assertEquals(-1, pizza.getNoteMoyenne());
+        assertTrue(pizza.ajouterEvaluation(new Evaluation(a, pizza, 5, null)));
+        assertTrue(pizza.ajouterEvaluation(new Evaluation(b, pizza, 2, "bof")));
+        assertFalse(pizza.ajouterEvaluation(new Evaluation(a, pizza, 0, null)));
+        assertEquals(2, pizza.getNombreEvaluations());
+        assertEquals(3.5, pizza.getNoteMoyenne());
+        assertEquals(1, pizza.getNombreNotes(5));
+        assertTrue(pizza.estEvalueePar(a));
+    }
+
+    /**
+     * Vérifie la lecture paginée des évaluations et leur sauvegarde, la
+     * relecture ne changeant pas l'auteur des évaluations déjà chargées.
+     */
+    @Test
+    void testEvaluationsPagineesEtSauvegardees() throws Exception {
+        Client a = new Client("a@a.com", MotDePasse.hacher("123"), new InformationPersonnelle("A","B","C",20));
+        Client b = new Client("b@b.com", MotDePasse.hacher("123"), new InformationPersonnelle("D","E","F",30));
+        pizza.ajouterEvaluation(new Evaluation(a, pizza, 4, "très bonne"));
+        pizza.ajouterEvaluation(new Evaluation(b, pizza, 1, null));
+
+        assertEquals(1, pizza.getEvaluations(1, 10).size());
+        assertEquals(b, pizza.getEvaluations(1, 10).get(0).getClient());
+        assertTrue(pizza.getEvaluations(5, 10).isEmpty());
+
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(pizza);
+        }
+        Pizza relue;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(octets.toByteArray()))) {
+            relue = (Pizza) in.readObject();
+        }
+        Evaluation premiere = relue.getEvaluations(0, 1).get(0);
+        assertEquals(4, premiere.getNote());
+        assertEquals("très bonne", premiere.getCommentaire());
+        assertNull(relue.getEvaluations(1, 1).get(0).getCommentaire());
+        assertEquals(2.5, relue.getNoteMoyenne());
+        assertEquals("a@a.com", premiere.getClient().getEmail());
+        assertSame(a, pizza.getEvaluations(0, 1).get(0).getClient());
+    }
+
+    /**
+     * Vérifie que la liste des ingrédients est une vue non modifiable qui
+     * suit la recette.
+     */
+    @Test
+    void testVueIngredients() {
+        List<Ingredient> vue = pizza.getIngredients();
+        pizza.ajouterIngredient(fromage);
+        pizza.ajouterIngredient(tomate);
+        assertEquals(2, vue.size());
+        assertSame(vue, pizza.getIngredients());
+        assertThrows(UnsupportedOperationException.class, () -> vue.add(fromage));
+
+        int[] nombre = {0};
+        pizza.pourChaqueIdIngredient(id -> nombre[0]++);
+        assertEquals(2, nombre[0]);
+    }
 }
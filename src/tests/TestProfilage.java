@@ -0,0 +1,93 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.FichierPizzaiolo;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import pizzas.*;
+
+/**
+ * Tests JUnit des événements du paquetage {@link profilage}.
+ */
+class TestProfilage {
+
+    private GestionPizzaiolo gp;
+    private GestionClient gc;
+    private File fichier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gp = new GestionPizzaiolo();
+        gc = new GestionClient(gp.getPizzas());
+        gc.setGestionPizzaiolo(gp);
+        fichier = File.createTempFile("pizzas", ".dat");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fichier.delete();
+    }
+
+    /**
+     * Vérifie que le cycle de vie d'une commande, une requête filtrée, un
+     * calcul de statistique et la persistance produisent leurs événements.
+     */
+    @Test
+    void testEvenements() throws Exception {
+        Path enregistrement = Files.createTempFile("pizzas", ".jfr");
+        try (Recording r = new Recording()) {
+            for (String nom : new String[] {"CommandeCreee", "CommandeValidee", "CommandeTraitee",
+                    "RequeteFiltres", "CalculStatistique", "Sauvegarde", "Chargement"}) {
+                r.enable("pizzas." + nom).withThreshold(Duration.ZERO);
+            }
+            r.start();
+
+            gp.creerIngredient("tomate", 1.0);
+            Pizza p = gp.creerPizza("Reine", TypePizza.VIANDE);
+            gp.ajouterIngredientPizza(p, "tomate");
+            Commande c = new Commande(new Client("a@a.com", MotDePasse.hacher("123"),
+                    new InformationPersonnelle("A", "B", "C", 20)));
+            c.ajouterPizza(p);
+            c.valider();
+            gp.enregistrerCommande(c);
+            gp.commandeNonTraitees();
+            gc.selectionPizzas(TypePizza.VIANDE, Set.of("tomate"), null);
+            gp.beneficeParClient();
+            FichierPizzaiolo.sauvegarder(gp, fichier);
+            assertEquals(1, FichierPizzaiolo.charger(fichier).commandesDejaTraitees().size());
+
+            r.stop();
+            r.dump(enregistrement);
+        }
+
+        Map<String, RecordedEvent> evenements = new HashMap<>();
+        for (RecordedEvent e : RecordingFile.readAllEvents(enregistrement)) {
+            evenements.putIfAbsent(e.getEventType().getName(), e);
+        }
+        Files.delete(enregistrement);
+
+        RecordedEvent validee = evenements.get("pizzas.CommandeValidee");
+        assertNotNull(validee);
+        assertEquals(1, validee.getInt("nombrePizzas"));
+        assertNotNull(evenements.get("pizzas.CommandeCreee"));
+        assertNotNull(evenements.get("pizzas.CommandeTraitee"));
+        assertEquals(1, evenements.get("pizzas.RequeteFiltres").getInt("resultats"));
+        assertEquals("beneficeParClient", evenements.get("pizzas.CalculStatistique").getString("calcul"));
+        assertEquals(fichier.length(), evenements.get("pizzas.Sauvegarde").getLong("octets"));
+        assertNotNull(evenements.get("pizzas.Chargement"));
+    }
+}
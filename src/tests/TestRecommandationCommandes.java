@@ -0,0 +1,85 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import pizzas.*;
+
+/**
+ * Tests JUnit de la classe {@link pizzas.RecommandationCommandes
+ * RecommandationCommandes}.
+ */
+class TestRecommandationCommandes {
+
+    private GestionPizzaiolo gestion;
+    private Client alice;
+    private Client bob;
+    private Pizza reine;
+    private Pizza calzone;
+    private Pizza vege;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gestion = new GestionPizzaiolo();
+        reine = gestion.creerPizza("Reine", TypePizza.VIANDE);
+        calzone = gestion.creerPizza("Calzone", TypePizza.VIANDE);
+        vege = gestion.creerPizza("Vege", TypePizza.VEGETARIENNE);
+        alice = new Client("alice@a.com", MotDePasse.hacher("12345678"),
+            new InformationPersonnelle("A", "Alice", "C", 20));
+        bob = new Client("bob@a.com", MotDePasse.hacher("12345678"),
+            new InformationPersonnelle("B", "Bob", "C", 30));
+
+        commander(bob, reine, calzone);
+        commander(bob, reine, calzone, vege);
+        commander(alice, reine);
+        gestion.commandeNonTraitees();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    private void commander(Client client, Pizza... contenu) throws Exception {
+        Commande cmd = client.creerCommande();
+        for (Pizza p : contenu) {
+            cmd.ajouterPizza(p);
+        }
+        cmd.valider();
+        gestion.enregistrerCommande(cmd);
+    }
+
+    /**
+     * Vérifie que les pizzas souvent commandées ensemble sont suggérées.
+     */
+    @Test
+    void testSuggestions() {
+        assertEquals(List.of(calzone, vege), gestion.suggestionsPourClient(alice, 5));
+        assertEquals(List.of(calzone), gestion.suggestionsPourClient(alice, 1));
+    }
+
+    /**
+     * Vérifie la reconstruction à partir de l'historique.
+     */
+    @Test
+    void testReconstruction() {
+        RecommandationCommandes r =
+            RecommandationCommandes.reconstruire(gestion.commandesDejaTraitees());
+        assertEquals(2, r.cooccurrence(reine, calzone));
+        assertEquals(1, r.cooccurrence(calzone, vege));
+        assertEquals(List.of(calzone, vege), r.suggestions(alice, 5));
+    }
+
+    /**
+     * Vérifie qu'un client sans historique n'a pas de suggestion.
+     */
+    @Test
+    void testSansHistorique() {
+        Client inconnu = new Client("c@a.com", MotDePasse.hacher("12345678"),
+            new InformationPersonnelle("C", "C", "C", 40));
+        assertTrue(gestion.suggestionsPourClient(inconnu, 5).isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import pizzas.*;
+
+/**
+ * Tests JUnit de la classe {@link pizzas.RegistreClients RegistreClients}.
+ */
+class TestRegistreClients {
+
+    private RegistreClients registre;
+    private InformationPersonnelle info;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MotDePasse.setIterationsParDefaut(1000);
+        registre = new RegistreClients(1000);
+        info = new InformationPersonnelle("A", "B", "C", 20);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        MotDePasse.setIterationsParDefaut(MotDePasse.ITERATIONS_DEFAUT);
+    }
+
+    /**
+     * Vérifie qu'un email ne peut être inscrit qu'une fois, sans tenir compte
+     * de la casse.
+     */
+    @Test
+    void testInscriptionUnique() {
+        assertTrue(registre.inscrire(new Client("a@a.com", MotDePasse.hacher("12345678"), info)));
+        assertFalse(registre.inscrire(new Client("A@A.com", MotDePasse.hacher("12345678"), info)));
+        assertTrue(registre.estInscrit(" a@A.COM "));
+        assertFalse(registre.estInscrit("b@a.com"));
+        assertEquals(1, registre.taille());
+    }
+
+    /**
+     * Vérifie l'import en masse.
+     */
+    @Test
+    void testImport() {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            clients.add(new Client("c" + i + "@a.com", MotDePasse.hacher("12345678"), info));
+        }
+        clients.add(new Client("c0@a.com", MotDePasse.hacher("12345678"), info));
+        assertEquals(500, registre.importer(clients));
+        for (int i = 0; i < 500; i++) {
+            assertNotNull(registre.trouver("c" + i + "@a.com"));
+        }
+    }
+
+    /**
+     * Vérifie que les comptes restent trouvables quand le filtre s'agrandit
+     * au-delà de sa capacité initiale, et que les doublons ne comptent pas.
+     */
+    @Test
+    void testAgrandissementFiltre() {
+        RegistreClients petit = new RegistreClients(4);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(petit.inscrire(new Client("d" + i + "@a.com", MotDePasse.hacher("12345678"), info)));
+            assertFalse(petit.inscrire(new Client("D" + i + "@a.com", MotDePasse.hacher("12345678"), info)));
+        }
+        assertEquals(100, petit.taille());
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(petit.trouver("d" + i + "@a.com"));
+        }
+        assertNull(petit.trouver("e0@a.com"));
+    }
+}
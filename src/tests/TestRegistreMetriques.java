@@ -0,0 +1,102 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import metriques.Instrumentation;
+import metriques.RegistreMetriques;
+import pizzas.*;
+
+/**
+ * Tests JUnit de la classe {@link metriques.RegistreMetriques RegistreMetriques}.
+ */
+class TestRegistreMetriques {
+
+    private RegistreMetriques registre;
+    private GestionPizzaiolo gp;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        registre = new RegistreMetriques();
+        gp = new GestionPizzaiolo();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    /**
+     * Vérifie les compteurs, jauges et chronomètres du relevé.
+     */
+    @Test
+    void testReleve() {
+        registre.compteur("a").incrementer();
+        registre.compteur("a").ajouter(2);
+        registre.jauge("b", () -> 7);
+        registre.chronometre("c").enregistrer(100);
+        registre.chronometre("c").enregistrer(300);
+
+        assertEquals(3, registre.valeur("a"));
+        assertEquals(7, registre.valeur("b"));
+        assertEquals(2, registre.valeur("c.nombre"));
+        assertEquals(200, registre.valeur("c.moyenneNs"));
+        assertEquals(300, registre.valeur("c.maxNs"));
+        assertTrue(registre.rapport().contains("c"));
+    }
+
+    /**
+     * Vérifie que l'enveloppe chronomètre chaque appel de l'interface et
+     * compte les erreurs sans changer les résultats.
+     */
+    @Test
+    void testInstrumentation() {
+        InterPizzaiolo instrumente = Instrumentation.instrumenter(
+                InterPizzaiolo.class, gp, registre, "pizzaiolo");
+        assertEquals(0, instrumente.creerIngredient("tomate", 1.0));
+        assertEquals(-2, instrumente.creerIngredient("tomate", 1.0));
+        assertNotNull(instrumente.creerPizza("Reine", TypePizza.VIANDE));
+
+        InterClient client = Instrumentation.instrumenter(
+                InterClient.class, new GestionClient(gp.getPizzas()), registre, "client");
+        assertThrows(NonConnecteException.class, client::debuterCommande);
+        client.ajouterFiltre(TypePizza.VIANDE);
+
+        assertEquals(2, registre.valeur("pizzaiolo.creerIngredient.nombre"));
+        assertEquals(1, registre.valeur("pizzaiolo.creerPizza.nombre"));
+        assertEquals(0, registre.valeur("pizzaiolo.getPizzas.nombre"));
+        assertEquals(1, registre.valeur("client.debuterCommande.erreurs"));
+        assertEquals(1, registre.valeur("client.ajouterFiltre(TypePizza).nombre"));
+    }
+
+    /**
+     * Vérifie les jauges du gestionnaire pizzaïolo.
+     */
+    @Test
+    void testJaugesPizzaiolo() throws Exception {
+        gp.enregistrerMetriques(registre);
+        Client client = new Client("a@a.com", MotDePasse.hacher("123"), new InformationPersonnelle("A", "B", "C", 20));
+        gp.creerIngredient("tomate", 1.0);
+        Pizza p = gp.creerPizza("Reine", TypePizza.VIANDE);
+        gp.ajouterIngredientPizza(p, "tomate");
+        Commande c = new Commande(client);
+        c.ajouterPizza(p);
+        c.valider();
+        gp.enregistrerCommande(c);
+        assertEquals(1, registre.valeur("pizzaiolo.commandes.enAttente"));
+
+        gp.commandeNonTraitees();
+        assertEquals(0, registre.valeur("pizzaiolo.commandes.enAttente"));
+        assertEquals(1, registre.valeur("pizzaiolo.commandes.traitees"));
+
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new ByteArrayOutputStream())) {
+            out.writeObject(gp);
+        }
+        assertEquals(1, registre.valeur("pizzaiolo.sauvegarde.nombre"));
+    }
+}
@@ -0,0 +1,129 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import pizzas.*;
+import serveur.ServeurPizzas;
+
+/**
+ * Tests JUnit de la classe {@link serveur.ServeurPizzas ServeurPizzas}.
+ */
+class TestServeurPizzas {
+
+    private static final String JETON_PIZZAIOLO = "secret-cuisine";
+
+    private GestionPizzaiolo gestionPizzaiolo;
+    private ServeurPizzas serveur;
+    private Pizza reine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MotDePasse.setIterationsParDefaut(1000);
+        gestionPizzaiolo = new GestionPizzaiolo();
+        gestionPizzaiolo.creerIngredient("Tomate", 1.0);
+        reine = gestionPizzaiolo.creerPizza("Reine", TypePizza.VIANDE);
+        gestionPizzaiolo.ajouterIngredientPizza(reine, "Tomate");
+        GestionClient gestionClient = new GestionClient(gestionPizzaiolo.getPizzas());
+        gestionClient.setGestionPizzaiolo(gestionPizzaiolo);
+        serveur = new ServeurPizzas(gestionPizzaiolo, gestionClient, 0, 2);
+        serveur.setJetonPizzaiolo(JETON_PIZZAIOLO);
+        serveur.demarrer();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        serveur.arreter();
+        MotDePasse.setIterationsParDefaut(MotDePasse.ITERATIONS_DEFAUT);
+    }
+
+    /**
+     * Envoie une requête et retourne le code de statut suivi du corps.
+     */
+    private String appeler(String methode, String chemin, String corps, String jeton)
+            throws Exception {
+        return appeler(methode, chemin, corps, jeton, null);
+    }
+
+    /**
+     * Envoie une requête, avec un jeton pizzaïolo éventuel, et retourne le
+     * code de statut suivi du corps.
+     */
+    private String appeler(String methode, String chemin, String corps, String jeton,
+            String jetonPizzaiolo) throws Exception {
+        HttpURLConnection c = (HttpURLConnection)
+                URI.create("http://127.0.0.1:" + serveur.getPort() + chemin).toURL().openConnection();
+        c.setRequestMethod(methode);
+        if (jeton != null) {
+            c.setRequestProperty(ServeurPizzas.ENTETE_JETON, jeton);
+        }
+        if (jetonPizzaiolo != null) {
+            c.setRequestProperty(ServeurPizzas.ENTETE_PIZZAIOLO, jetonPizzaiolo);
+        }
+        if (corps != null) {
+            c.setDoOutput(true);
+            try (OutputStream out = c.getOutputStream()) {
+                out.write(corps.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int statut = c.getResponseCode();
+        try (InputStream in = statut < 400 ? c.getInputStream() : c.getErrorStream()) {
+            return statut + " " + new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Vérifie le parcours catalogue, inscription, connexion et commande.
+     */
+    @Test
+    void testParcoursCommande() throws Exception {
+        assertTrue(appeler("GET", "/pizzas?ingredients=tomate", null, null)
+                .contains("\"nom\":\"Reine\""));
+        assertEquals("200 []", appeler("GET", "/pizzas?type=VEGETARIENNE", null, null));
+
+        assertEquals("200 {\"code\":0}", appeler("POST", "/clients",
+                "email=a%40a.com&mdp=motdepasse&nom=A&prenom=B&adresse=C&age=20", null));
+        String session = appeler("POST", "/sessions", "email=a%40a.com&mdp=motdepasse", null);
+        assertTrue(session.startsWith("200 "));
+        String jeton = session.substring(session.indexOf(":\"") + 2, session.lastIndexOf('"'));
+
+        assertTrue(appeler("POST", "/commandes", "", null).startsWith("401"));
+        String commande = appeler("POST", "/commandes", "", jeton);
+        String id = commande.substring(commande.indexOf(":") + 1, commande.indexOf(","));
+        assertTrue(appeler("POST", "/commandes/" + id + "/pizzas",
+                "pizza=" + reine.getId() + "&nombre=2", jeton).startsWith("200"));
+        assertTrue(appeler("POST", "/commandes/" + id + "/validation", "", jeton)
+                .contains("VALIDEE"));
+        assertTrue(appeler("POST", "/cuisine/traitement", "", null).startsWith("403"));
+        assertTrue(appeler("POST", "/cuisine/traitement", "", jeton).startsWith("403"));
+        assertTrue(appeler("GET", "/statistiques", null, jeton).startsWith("403"));
+        assertTrue(appeler("POST", "/cuisine/traitement", "", null, JETON_PIZZAIOLO)
+                .contains("[" + id + "]"));
+        String statistiques = appeler("GET", "/statistiques", null, null, JETON_PIZZAIOLO);
+        assertTrue(statistiques.startsWith("200"));
+        assertTrue(statistiques.contains("\"commandesTraitees\":1"));
+        assertTrue(appeler("GET", "/inconnu", null, null).startsWith("404"));
+    }
+
+    /**
+     * Vérifie que les routes du pizzaïolo refusent un mauvais jeton et ne
+     * sont pas exposées sans jeton configuré.
+     */
+    @Test
+    void testRoutesPizzaiolo() throws Exception {
+        assertTrue(appeler("GET", "/statistiques", null, null, "mauvais").startsWith("403"));
+        assertTrue(appeler("GET", "/statistiques", null, null, JETON_PIZZAIOLO).startsWith("200"));
+        serveur.setJetonPizzaiolo(null);
+        assertTrue(appeler("GET", "/statistiques", null, null, JETON_PIZZAIOLO).startsWith("404"));
+        assertTrue(appeler("POST", "/cuisine/traitement", "", null, JETON_PIZZAIOLO).startsWith("404"));
+    }
+}
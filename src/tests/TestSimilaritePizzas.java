@@ -0,0 +1,66 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import pizzas.*;
+
+/**
+ * Tests JUnit de la classe {@link pizzas.SimilaritePizzas SimilaritePizzas}.
+ */
+class TestSimilaritePizzas {
+
+    private GestionPizzaiolo gestion;
+    private Pizza reine;
+    private Pizza royale;
+    private Pizza vege;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gestion = new GestionPizzaiolo();
+        for (String nom : new String[] {"Tomate", "Fromage", "Jambon",
+                "Champignon", "Oeuf", "Poivron", "Oignon"}) {
+            gestion.creerIngredient(nom, 1.0);
+        }
+        reine = gestion.creerPizza("Reine", TypePizza.VIANDE);
+        royale = gestion.creerPizza("Royale", TypePizza.VIANDE);
+        vege = gestion.creerPizza("Vege", TypePizza.VEGETARIENNE);
+        for (String nom : new String[] {"Tomate", "Fromage", "Jambon", "Champignon"}) {
+            gestion.ajouterIngredientPizza(reine, nom);
+            gestion.ajouterIngredientPizza(royale, nom);
+        }
+        gestion.ajouterIngredientPizza(vege, "Poivron");
+        gestion.ajouterIngredientPizza(vege, "Oignon");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    /**
+     * Vérifie que deux recettes identiques sont trouvées similaires.
+     */
+    @Test
+    void testRecettesIdentiques() {
+        List<Pizza> res = gestion.pizzasSimilaires(reine, 5);
+        assertEquals(List.of(royale), res);
+    }
+
+    /**
+     * Vérifie la mise à jour de l'index après un changement de recette.
+     */
+    @Test
+    void testMiseAJourRecette() {
+        for (String nom : new String[] {"Tomate", "Fromage", "Jambon", "Champignon"}) {
+            gestion.retirerIngredientPizza(royale, nom);
+        }
+        gestion.ajouterIngredientPizza(royale, "Poivron");
+        gestion.ajouterIngredientPizza(royale, "Oignon");
+        assertTrue(gestion.pizzasSimilaires(reine, 5).isEmpty());
+        assertEquals(List.of(royale), gestion.pizzasSimilaires(vege, 5));
+    }
+}
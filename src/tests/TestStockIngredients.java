@@ -0,0 +1,225 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import pizzas.*;
+
+/**
+ * Tests JUnit du stock des ingrédients de
+ * {@link pizzas.GestionPizzaiolo GestionPizzaiolo}.
+ */
+class TestStockIngredients {
+
+    private GestionPizzaiolo gestion;
+    private GestionClient gestionClient;
+    private Pizza reine;
+    private Pizza margherita;
+    private Client client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gestion = new GestionPizzaiolo();
+        gestion.creerIngredient("Tomate", 1.0);
+        gestion.creerIngredient("Jambon", 2.0);
+        reine = gestion.creerPizza("Reine", TypePizza.VIANDE);
+        gestion.ajouterIngredientPizza(reine, "Tomate");
+        gestion.ajouterIngredientPizza(reine, "Jambon");
+        margherita = gestion.creerPizza("Margherita", TypePizza.VEGETARIENNE);
+        gestion.ajouterIngredientPizza(margherita, "Tomate");
+        gestionClient = new GestionClient(gestion.getPizzas());
+        gestionClient.setGestionPizzaiolo(gestion);
+        client = new Client("a@a.com", MotDePasse.hacher("123"), new InformationPersonnelle("A", "A", "A", 20));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {}
+
+    /**
+     * Crée et valide une commande.
+     */
+    private Commande commander(Pizza pizza, int quantite) throws CommandeException {
+        Commande c = client.creerCommande();
+        c.ajouterPizza(pizza, quantite);
+        c.valider();
+        gestion.enregistrerCommande(c);
+        return c;
+    }
+
+    /**
+     * Vérifie qu'un ingrédient sans stock fixé n'est jamais limitant.
+     */
+    @Test
+    void testIllimiteParDefaut() throws Exception {
+        assertEquals(GestionPizzaiolo.STOCK_ILLIMITE, gestion.getStockDisponible("tomate"));
+        commander(reine, 1_000);
+        assertEquals(GestionPizzaiolo.STOCK_ILLIMITE, gestion.getStockDisponible("tomate"));
+        assertEquals(-4, gestion.reapprovisionner("tomate", 5));
+        assertEquals(-3, gestion.definirStock("inconnu", 5));
+        assertEquals(-2, gestion.definirStock("tomate", -1));
+    }
+
+    /**
+     * Vérifie la réservation à la validation et la consommation au
+     * traitement, et le refus d'une commande qui dépasse le stock.
+     */
+    @Test
+    void testReservationEtConsommation() throws Exception {
+        assertEquals(0, gestion.definirStock("jambon", 5));
+        commander(reine, 3);
+        assertEquals(2, gestion.getStockDisponible("jambon"));
+        assertEquals(3, gestion.getStockReserve("jambon"));
+
+        gestion.commandeNonTraitees();
+        assertEquals(2, gestion.getStockDisponible("jambon"));
+        assertEquals(0, gestion.getStockReserve("jambon"));
+
+        Commande trop = client.creerCommande();
+        trop.ajouterPizza(reine, 2);
+        trop.ajouterPizza(margherita);
+        assertTrue(gestion.peutPreparer(trop));
+        trop.ajouterPizza(reine);
+        assertFalse(gestion.peutPreparer(trop));
+        assertThrows(CommandeException.class, trop::valider);
+        assertEquals(EtatCommande.CREE, trop.getEtat());
+        assertEquals(2, gestion.getStockDisponible("jambon"));
+        assertEquals(0, gestion.getStockReserve("jambon"));
+    }
+
+    /**
+     * Vérifie que le traitement consomme exactement ce qui a été réservé,
+     * même si le stock est fixé ou la recette modifiée entre la validation
+     * et le traitement.
+     */
+    @Test
+    void testConsommationDeLaReservation() throws Exception {
+        commander(reine, 2);
+        gestion.definirStock("jambon", 5);
+        Commande tardive = client.creerCommande();
+        tardive.ajouterPizza(reine);
+        tardive.valider();
+        gestion.commandeNonTraitees();
+        assertEquals(1, gestion.getStockReserve("jambon"));
+
+        gestion.enregistrerCommande(tardive);
+        gestion.retirerIngredientPizza(reine, "Jambon");
+        gestion.commandeNonTraitees();
+        assertEquals(EtatCommande.TRAITEE, tardive.getEtat());
+        assertEquals(4, gestion.getStockDisponible("jambon"));
+        assertEquals(0, gestion.getStockReserve("jambon"));
+
+        gestion.ajouterIngredientPizza(reine, "Jambon");
+        commander(reine, 2);
+        gestion.definirStock("jambon", GestionPizzaiolo.STOCK_ILLIMITE);
+        assertEquals(0, gestion.getStockReserve("jambon"));
+        gestion.definirStock("jambon", 4);
+        commander(reine, 1);
+        gestion.commandeNonTraitees();
+        assertEquals(3, gestion.getStockDisponible("jambon"));
+        assertEquals(0, gestion.getStockReserve("jambon"));
+    }
+
+    /**
+     * Vérifie l'alerte de stock bas et le retrait des pizzas indisponibles
+     * du catalogue filtré, puis leur retour après une livraison.
+     */
+    @Test
+    void testIndisponibiliteEtAlerte() throws Exception {
+        gestion.definirStock("jambon", 3);
+        gestion.definirSeuilAlerte("jambon", 2);
+        BusEvenements.Curseur curseur = gestion.getBus().curseur();
+
+        commander(reine, 2);
+        List<Double> alertes = new ArrayList<>();
+        curseur.lire(e -> {
+            if (e.getType() == TypeEvenement.STOCK_BAS) {
+                alertes.add(e.getValeur());
+            }
+        }, 100);
+        assertEquals(List.of(1.0), alertes);
+        assertTrue(reine.estDisponible());
+
+        commander(reine, 1);
+        assertFalse(reine.estDisponible());
+        assertTrue(margherita.estDisponible());
+        assertEquals(Set.of(margherita), gestionClient.selectionPizzaFiltres());
+
+        assertEquals(0, gestion.reapprovisionner("jambon", 10));
+        assertTrue(reine.estDisponible());
+        assertEquals(Set.of(reine, margherita), gestionClient.selectionPizzaFiltres());
+    }
+
+    /**
+     * Vérifie que des validations concurrentes ne vendent jamais plus que le
+     * stock.
+     */
+    @Test
+    void testValidationsConcurrentes() throws Exception {
+        gestion.definirStock("jambon", 100);
+        AtomicInteger validees = new AtomicInteger();
+        Thread[] fils = new Thread[8];
+        for (int f = 0; f < fils.length; f++) {
+            fils[f] = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    Commande c = new Commande(client);
+                    try {
+                        c.ajouterPizza(reine);
+                        c.valider();
+                        validees.incrementAndGet();
+                    } catch (CommandeException e) {
+                        // stock épuisé
+                    }
+                }
+            });
+            fils[f].start();
+        }
+        for (Thread f : fils) {
+            f.join();
+        }
+        assertEquals(100, validees.get());
+        assertEquals(0, gestion.getStockDisponible("jambon"));
+        assertEquals(100, gestion.getStockReserve("jambon"));
+        assertFalse(reine.estDisponible());
+    }
+
+    /**
+     * Vérifie que le stock est conservé par une sauvegarde, sous les
+     * identifiants d'ingrédients réattribués à la relecture.
+     */
+    @Test
+    void testSauvegarde() throws Exception {
+        gestion.definirStock("jambon", 4);
+        gestion.definirSeuilAlerte("jambon", 1);
+        commander(reine, 4);
+
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(octets)) {
+            out.writeObject(gestion);
+        }
+        GestionPizzaiolo relu;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(octets.toByteArray()))) {
+            relu = (GestionPizzaiolo) in.readObject();
+        }
+        assertEquals(0, relu.getStockDisponible("jambon"));
+        assertEquals(4, relu.getStockReserve("jambon"));
+        assertEquals(GestionPizzaiolo.STOCK_ILLIMITE, relu.getStockDisponible("tomate"));
+        Pizza reineRelue = relu.getPizzas().stream()
+                .filter(p -> p.getNom().equals("Reine")).findFirst().orElseThrow();
+        assertFalse(reineRelue.estDisponible());
+
+        relu.commandeNonTraitees();
+        assertEquals(0, relu.getStockReserve("jambon"));
+    }
+}
@@ -1,7 +1,10 @@
 package ui;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -43,6 +46,11 @@ public class ClientControleur {
      */
     private Pizza pizzaSelectionnee;
 
+    /**
+     * Pizzas affichées dans la liste, dans l'ordre d'affichage.
+     */
+    private List<Pizza> pizzasAffichees = new ArrayList<>();
+
     // =====================
     // FXML
     // =====================
@@ -104,6 +112,9 @@ public class ClientControleur {
     /** Liste des ingrédients de la pizza sélectionnée */
     @FXML private ListView<String> listeIngredients;
 
+    /** Liste des pizzas suggérées */
+    @FXML private ListView<String> listeSuggestions;
+
     // =====================
     // INITIALISATION
     // =====================
@@ -138,13 +149,18 @@ public class ClientControleur {
      */
     @FXML
     void actionBoutonConnexion(ActionEvent event) {
-        if (gestionClient.connexion(
+        // la vérification du mot de passe se fait hors du fil JavaFX
+        gestionClient.ouvrirSessionAsync(
                 entreeEmailClient.getText(),
-                entreeMotDePasseClient.getText())) {
-            show("Connexion réussie");
-        } else {
-            show("Email ou mot de passe incorrect");
-        }
+                entreeMotDePasseClient.getText())
+            .thenAccept(jeton -> Platform.runLater(() -> {
+                if (jeton != null && gestionClient.utiliserSession(jeton)) {
+                    afficherSuggestionsClient();
+                    show("Connexion réussie");
+                } else {
+                    show("Email ou mot de passe incorrect");
+                }
+            }));
     }
 
     /**
@@ -170,13 +186,9 @@ public class ClientControleur {
     @FXML
     void actionSelectionPizza(MouseEvent event) {
         int index = listePizzas.getSelectionModel().getSelectedIndex();
-        if (index < 0) return;
+        if (index < 0 || index >= pizzasAffichees.size()) return;
 
-        pizzaSelectionnee = gestionClient
-                .getPizzas()
-                .stream()
-                .toList()
-                .get(index);
+        pizzaSelectionnee = pizzasAffichees.get(index);
 
         afficherPizzaSelectionnee();
     }
@@ -203,20 +215,22 @@ public class ClientControleur {
                 age
         );
 
-        int res = gestionClient.inscription(
+        // l'empreinte du mot de passe est calculée hors du fil JavaFX
+        gestionClient.inscriptionAsync(
                 entreeEmailClient.getText(),
                 entreeMotDePasseClient.getText(),
                 info
-        );
-
-        switch (res) {
-            case 0 -> show("Inscription réussie");
-            case -1 -> show("Tous les champs sont obligatoires et l’âge doit être > 0");
-            case -2 -> show("Mot de passe trop court (minimum 8 caractères)");
-            case -3 -> show("Email invalide");
-            case -4 -> show("Email déjà utilisé");
-            default -> show("Erreur inconnue");
-        }
+        ).thenAccept(res -> Platform.runLater(() -> {
+            switch (res) {
+                case 0 -> show("Inscription réussie");
+                case -1 -> show("Tous les champs sont obligatoires et l’âge doit être > 0");
+                case -2 -> show("Mot de passe trop court (minimum 8 caractères)");
+                case -3 -> show("Email invalide");
+                case -4 -> show("Email déjà utilisé");
+                case -5 -> show("Service surchargé, réessayez");
+                default -> show("Erreur inconnue");
+            }
+        }));
     }
 
     // =====================
@@ -224,14 +238,16 @@ public class ClientControleur {
     // =====================
 
     /**
-     * Affiche toutes les pizzas disponibles.
+     * Affiche toutes les pizzas disponibles, de la mieux notée à la moins
+     * bien notée.
      *
      * @param event événement JavaFX
      */
     @FXML
     void actionBoutonAfficherToutesPizzas(ActionEvent event) {
+        pizzasAffichees = gestionClient.getPizzasParNote();
         listePizzas.getItems().clear();
-        for (Pizza p : gestionClient.getPizzas()) {
+        for (Pizza p : pizzasAffichees) {
             listePizzas.getItems().add(
                 p.getNom() + " (" + p.getType() + ") - " + p.getPrixVente() + " €"
             );
@@ -251,7 +267,7 @@ public class ClientControleur {
         entreeTypePizza.setText(pizzaSelectionnee.getType().toString());
 
         listeIngredients.getItems().clear();
-        pizzaSelectionnee.getIngredients().forEach(i ->
+        pizzaSelectionnee.pourChaqueIngredient(i ->
                 listeIngredients.getItems().add(i.getNom())
         );
 
@@ -259,6 +275,25 @@ public class ClientControleur {
         entreeNoteMoyennePizza.setText(
                 note >= 0 ? String.format("%.1f / 5", note) : "-"
         );
+
+        listeSuggestions.getItems().clear();
+        gestionPizzaiolo.pizzasSimilaires(pizzaSelectionnee, 5).forEach(p ->
+                listeSuggestions.getItems().add(p.getNom())
+        );
+    }
+
+    /**
+     * Affiche les pizzas suggérées au client connecté.
+     */
+    private void afficherSuggestionsClient() {
+        listeSuggestions.getItems().clear();
+        try {
+            gestionClient.suggestionsClientConnecte(5).forEach(p ->
+                    listeSuggestions.getItems().add(p.getNom())
+            );
+        } catch (NonConnecteException e) {
+            // aucune suggestion hors connexion
+        }
     }
 
     // =====================
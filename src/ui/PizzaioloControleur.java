@@ -8,11 +8,8 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import pizzas.*;
 
+import io.FichierPizzaiolo;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -254,10 +251,8 @@ public class PizzaioloControleur {
         File file = fileChooser.showOpenDialog(stage);
         if (file == null) return;
 
-        try (ObjectInputStream ois =
-                     new ObjectInputStream(new FileInputStream(file))) {
-
-            gestionPizzaiolo = (GestionPizzaiolo) ois.readObject();
+        try {
+            gestionPizzaiolo = FichierPizzaiolo.charger(file);
             rafraichirClients();
         } catch (Exception e) {
             e.printStackTrace();
@@ -281,10 +276,8 @@ public class PizzaioloControleur {
         File file = fileChooser.showSaveDialog(stage);
         if (file == null) return;
 
-        try (ObjectOutputStream oos =
-                     new ObjectOutputStream(new FileOutputStream(file))) {
-
-            oos.writeObject(gestionPizzaiolo);
+        try {
+            FichierPizzaiolo.sauvegarder(gestionPizzaiolo, file);
         } catch (Exception e) {
             e.printStackTrace();
         }